@@ -0,0 +1,439 @@
+package frc.robot.analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import frc.robot.analyzer.MatchAnalysis.CANBusHealth;
+import frc.robot.analyzer.MatchAnalysis.CommandRun;
+import frc.robot.analyzer.MatchAnalysis.LoopTiming;
+import frc.robot.analyzer.MatchAnalysis.SettleTime;
+import frc.robot.analyzer.MatchAnalysis.StateInterval;
+import frc.robot.shared.LoopProfiler.MatchPhase;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+
+/**
+ * Reads match logs written by the {@link frc.robot.telemetry.DataLogger} and reports loop timing,
+ * mechanism settle times, swerve steering error, superstructure state durations, the auto command
+ * timeline and CAN bus health.
+ *
+ * <p>Run it with {@code ./gradlew analyzeLogs -PanalyzeLogs=logs/}, passing any number of logs or
+ * directories separated by commas. Each log is read once on its own thread. A summary across all
+ * of them is printed, and the measurements from each log are written as CSV files to {@code
+ * -PanalyzeOutput}, {@code build/analysis} by default.
+ */
+public final class LogAnalyzer {
+  private static final String LOG_EXTENSION = ".wpilog";
+  /** Loop periods longer than this count as overruns by default. */
+  private static final double DEFAULT_OVERRUN_MS = TimedRobot.kDefaultPeriod * 1000.0 * 1.1;
+
+  private LogAnalyzer() {}
+
+  public static void main(String[] args) {
+    final List<File> logs = new ArrayList<>();
+    File output = null;
+    double overrunMs = DEFAULT_OVERRUN_MS;
+    for (String arg : args) {
+      if (arg.startsWith("--logs=")) {
+        for (String path : value(arg).split(",")) {
+          findLogs(new File(path.trim()), logs);
+        }
+      } else if (arg.startsWith("--output=")) {
+        output = new File(value(arg));
+      } else if (arg.startsWith("--overrun-ms=")) {
+        overrunMs = Double.parseDouble(value(arg));
+      } else {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+    if (logs.isEmpty()) {
+      throw new IllegalArgumentException("No logs found, pass --logs=<files or directories>");
+    }
+
+    try {
+      final List<MatchAnalysis> analyses = analyze(logs, overrunMs);
+      printSummary(analyses, overrunMs);
+      if (output != null) {
+        writeCsv(analyses, output);
+        System.out.println("CSV files written to " + output);
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+
+  private static String value(String arg) {
+    return arg.substring(arg.indexOf('=') + 1);
+  }
+
+  private static void findLogs(File file, List<File> logs) {
+    if (file.isDirectory()) {
+      final File[] children = file.listFiles();
+      if (children != null) {
+        Arrays.sort(children);
+        for (File child : children) {
+          findLogs(child, logs);
+        }
+      }
+    } else if (file.getName().endsWith(LOG_EXTENSION)) {
+      logs.add(file);
+    }
+  }
+
+  /** Reads each log on its own thread, returning the analyses in the order the logs were given. */
+  private static List<MatchAnalysis> analyze(List<File> logs, double overrunMs)
+      throws InterruptedException {
+    final int threads = Math.min(logs.size(), Runtime.getRuntime().availableProcessors());
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<MatchAnalysis>> futures = new ArrayList<>();
+      for (File log : logs) {
+        futures.add(executor.submit(() -> MatchAnalysis.analyze(log, overrunMs)));
+      }
+
+      final List<MatchAnalysis> analyses = new ArrayList<>();
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          analyses.add(futures.get(i).get());
+        } catch (ExecutionException e) {
+          System.err.println("Skipping " + logs.get(i) + ": " + e.getCause());
+        }
+      }
+      return analyses;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void printSummary(List<MatchAnalysis> analyses, double overrunMs) {
+    int exceptions = 0;
+    for (MatchAnalysis analysis : analyses) {
+      exceptions += analysis.getExceptions();
+    }
+    System.out.printf(
+        Locale.ROOT, "%d log(s), %d exception(s) logged%n%n", analyses.size(), exceptions);
+
+    System.out.printf(Locale.ROOT, "Loop period (ms), overruns are over %.1f ms%n", overrunMs);
+    System.out.printf(
+        Locale.ROOT,
+        "  %-10s %8s %8s %8s %8s %8s %9s %8s%n",
+        "Phase",
+        "Loops",
+        "p50",
+        "p95",
+        "p99",
+        "Max",
+        "Overruns",
+        "Dropped");
+    for (MatchPhase phase : MatchPhase.values()) {
+      final Stats periods = new Stats();
+      int overruns = 0;
+      int dropped = 0;
+      for (MatchAnalysis analysis : analyses) {
+        final LoopTiming timing = analysis.getLoopTiming().get(phase);
+        periods.addAll(timing.periodsMs);
+        overruns += timing.overruns;
+        dropped += timing.droppedLoops;
+      }
+      if (periods.getCount() == 0 && dropped == 0) {
+        continue;
+      }
+      System.out.printf(
+          Locale.ROOT,
+          "  %-10s %8d %8.2f %8.2f %8.2f %8.2f %9d %8d%n",
+          phase,
+          periods.getCount(),
+          periods.getPercentile(0.50),
+          periods.getPercentile(0.95),
+          periods.getPercentile(0.99),
+          periods.getMax(),
+          overruns,
+          dropped);
+    }
+
+    final Map<String, Stats> settleTimes = new TreeMap<>();
+    final Map<String, Integer> unsettled = new TreeMap<>();
+    for (MatchAnalysis analysis : analyses) {
+      for (SettleTime settle : analysis.getSettleTimes()) {
+        final Stats stats = settleTimes.computeIfAbsent(settle.mechanism, m -> new Stats());
+        if (Double.isNaN(settle.settleSec)) {
+          unsettled.merge(settle.mechanism, 1, Integer::sum);
+        } else {
+          stats.add(settle.settleSec);
+        }
+      }
+    }
+    System.out.printf(Locale.ROOT, "%nSettle time (s)%n");
+    System.out.printf(
+        Locale.ROOT,
+        "  %-10s %8s %9s %8s %8s %8s%n",
+        "Mechanism",
+        "Moves",
+        "Unsettled",
+        "p50",
+        "p95",
+        "Max");
+    for (Map.Entry<String, Stats> entry : settleTimes.entrySet()) {
+      final Stats stats = entry.getValue();
+      final int interrupted = unsettled.getOrDefault(entry.getKey(), 0);
+      System.out.printf(
+          Locale.ROOT,
+          "  %-10s %8d %9d %8.3f %8.3f %8.3f%n",
+          entry.getKey(),
+          stats.getCount() + interrupted,
+          interrupted,
+          stats.getPercentile(0.50),
+          stats.getPercentile(0.95),
+          stats.getMax());
+    }
+
+    System.out.printf(Locale.ROOT, "%nSwerve steering error (deg)%n");
+    System.out.printf(
+        Locale.ROOT, "  %-10s %8s %8s %8s %8s%n", "Module", "Samples", "Mean", "p95", "Max");
+    for (int module = 0; module < 4; module++) {
+      final Stats error = new Stats();
+      for (MatchAnalysis analysis : analyses) {
+        error.addAll(analysis.getSteeringErrorDeg()[module]);
+      }
+      System.out.printf(
+          Locale.ROOT,
+          "  %-10d %8d %8.2f %8.2f %8.2f%n",
+          module,
+          error.getCount(),
+          error.getMean(),
+          error.getPercentile(0.95),
+          error.getMax());
+    }
+
+    final Map<String, Stats> stateDurations = new TreeMap<>();
+    for (MatchAnalysis analysis : analyses) {
+      for (StateInterval interval : analysis.getStateIntervals()) {
+        stateDurations.computeIfAbsent(interval.state, s -> new Stats()).add(interval.durationSec);
+      }
+    }
+    System.out.printf(Locale.ROOT, "%nSuperstructure state (s)%n");
+    System.out.printf(Locale.ROOT, "  %-24s %8s %8s %8s%n", "State", "Entered", "Mean", "Max");
+    for (Map.Entry<String, Stats> entry : stateDurations.entrySet()) {
+      final Stats stats = entry.getValue();
+      System.out.printf(
+          Locale.ROOT,
+          "  %-24s %8d %8.2f %8.2f%n",
+          entry.getKey(),
+          stats.getCount(),
+          stats.getMean(),
+          stats.getMax());
+    }
+
+    final Map<String, Stats> commandStarts = new TreeMap<>();
+    final Map<String, Stats> commandDurations = new TreeMap<>();
+    final Map<String, Integer> timeouts = new TreeMap<>();
+    for (MatchAnalysis analysis : analyses) {
+      for (CommandRun run : analysis.getCommandRuns()) {
+        commandStarts.computeIfAbsent(run.command, c -> new Stats()).add(run.startSec);
+        commandDurations.computeIfAbsent(run.command, c -> new Stats()).add(run.durationSec);
+        if (run.timedOut) {
+          timeouts.merge(run.command, 1, Integer::sum);
+        }
+      }
+    }
+    System.out.printf(Locale.ROOT, "%nAuto commands (s)%n");
+    System.out.printf(
+        Locale.ROOT,
+        "  %-32s %6s %10s %10s %10s %9s%n",
+        "Command",
+        "Runs",
+        "Mean start",
+        "Mean time",
+        "Max time",
+        "Timed out");
+    for (Map.Entry<String, Stats> entry : commandDurations.entrySet()) {
+      final Stats durations = entry.getValue();
+      System.out.printf(
+          Locale.ROOT,
+          "  %-32s %6d %10.2f %10.2f %10.2f %9d%n",
+          entry.getKey(),
+          durations.getCount(),
+          commandStarts.get(entry.getKey()).getMean(),
+          durations.getMean(),
+          durations.getMax(),
+          timeouts.getOrDefault(entry.getKey(), 0));
+    }
+
+    final Map<String, CANBusHealth> buses = new TreeMap<>();
+    final Map<String, Stats> staleness = new TreeMap<>();
+    for (MatchAnalysis analysis : analyses) {
+      for (Map.Entry<String, CANBusHealth> entry : analysis.getCanBuses().entrySet()) {
+        final CANBusHealth health = buses.computeIfAbsent(entry.getKey(), b -> new CANBusHealth());
+        health.utilizationPercent.addAll(entry.getValue().utilizationPercent);
+        health.busOffCount = Math.max(health.busOffCount, entry.getValue().busOffCount);
+        health.txFullCount = Math.max(health.txFullCount, entry.getValue().txFullCount);
+      }
+      for (Map.Entry<String, Stats> entry : analysis.getCanDeviceStalenessMs().entrySet()) {
+        staleness.computeIfAbsent(entry.getKey(), d -> new Stats()).addAll(entry.getValue());
+      }
+    }
+    System.out.printf(Locale.ROOT, "%nCAN bus utilization (%%)%n");
+    System.out.printf(
+        Locale.ROOT,
+        "  %-10s %8s %8s %8s %8s %8s%n",
+        "Bus",
+        "Mean",
+        "p95",
+        "Max",
+        "Bus off",
+        "TX full");
+    for (Map.Entry<String, CANBusHealth> entry : buses.entrySet()) {
+      final CANBusHealth health = entry.getValue();
+      System.out.printf(
+          Locale.ROOT,
+          "  %-10s %8.1f %8.1f %8.1f %8.0f %8.0f%n",
+          entry.getKey(),
+          health.utilizationPercent.getMean(),
+          health.utilizationPercent.getPercentile(0.95),
+          health.utilizationPercent.getMax(),
+          health.busOffCount,
+          health.txFullCount);
+    }
+    System.out.printf(Locale.ROOT, "%nCAN device staleness (ms)%n");
+    System.out.printf(Locale.ROOT, "  %-24s %8s %8s %8s%n", "Device", "Mean", "p95", "Max");
+    for (Map.Entry<String, Stats> entry : staleness.entrySet()) {
+      final Stats stats = entry.getValue();
+      System.out.printf(
+          Locale.ROOT,
+          "  %-24s %8.1f %8.1f %8.1f%n",
+          entry.getKey(),
+          stats.getMean(),
+          stats.getPercentile(0.95),
+          stats.getMax());
+    }
+  }
+
+  private static void writeCsv(List<MatchAnalysis> analyses, File output) throws IOException {
+    if (!output.isDirectory() && !output.mkdirs()) {
+      throw new IOException("Couldn't create " + output);
+    }
+
+    try (PrintWriter csv = new PrintWriter(new File(output, "loop_timing.csv"), "UTF-8")) {
+      csv.println("log,phase,loops,p50_ms,p95_ms,p99_ms,max_ms,overruns,dropped_loops");
+      for (MatchAnalysis analysis : analyses) {
+        for (Map.Entry<MatchPhase, LoopTiming> entry : analysis.getLoopTiming().entrySet()) {
+          final LoopTiming timing = entry.getValue();
+          row(
+              csv,
+              analysis,
+              entry.getKey(),
+              timing.periodsMs.getCount(),
+              timing.periodsMs.getPercentile(0.50),
+              timing.periodsMs.getPercentile(0.95),
+              timing.periodsMs.getPercentile(0.99),
+              timing.periodsMs.getMax(),
+              timing.overruns,
+              timing.droppedLoops);
+        }
+      }
+    }
+
+    try (PrintWriter csv = new PrintWriter(new File(output, "settle_times.csv"), "UTF-8")) {
+      csv.println("log,mechanism,start_sec,target,settle_sec");
+      for (MatchAnalysis analysis : analyses) {
+        for (SettleTime settle : analysis.getSettleTimes()) {
+          row(csv, analysis, settle.mechanism, settle.startSec, settle.target, settle.settleSec);
+        }
+      }
+    }
+
+    try (PrintWriter csv = new PrintWriter(new File(output, "steering_error.csv"), "UTF-8")) {
+      csv.println("log,module,samples,mean_deg,p95_deg,max_deg");
+      for (MatchAnalysis analysis : analyses) {
+        final Stats[] errors = analysis.getSteeringErrorDeg();
+        for (int module = 0; module < errors.length; module++) {
+          row(
+              csv,
+              analysis,
+              module,
+              errors[module].getCount(),
+              errors[module].getMean(),
+              errors[module].getPercentile(0.95),
+              errors[module].getMax());
+        }
+      }
+    }
+
+    try (PrintWriter csv = new PrintWriter(new File(output, "state_transitions.csv"), "UTF-8")) {
+      csv.println("log,state,start_sec,duration_sec");
+      for (MatchAnalysis analysis : analyses) {
+        for (StateInterval interval : analysis.getStateIntervals()) {
+          row(csv, analysis, interval.state, interval.startSec, interval.durationSec);
+        }
+      }
+    }
+
+    try (PrintWriter csv = new PrintWriter(new File(output, "auto_timeline.csv"), "UTF-8")) {
+      csv.println("log,command,start_sec,duration_sec,timed_out");
+      for (MatchAnalysis analysis : analyses) {
+        for (CommandRun run : analysis.getCommandRuns()) {
+          row(csv, analysis, run.command, run.startSec, run.durationSec, run.timedOut);
+        }
+      }
+    }
+
+    try (PrintWriter csv = new PrintWriter(new File(output, "can.csv"), "UTF-8")) {
+      csv.println("log,name,kind,samples,mean,p95,max");
+      for (MatchAnalysis analysis : analyses) {
+        for (Map.Entry<String, CANBusHealth> entry : analysis.getCanBuses().entrySet()) {
+          final Stats utilization = entry.getValue().utilizationPercent;
+          row(
+              csv,
+              analysis,
+              entry.getKey(),
+              "utilization_percent",
+              utilization.getCount(),
+              utilization.getMean(),
+              utilization.getPercentile(0.95),
+              utilization.getMax());
+        }
+        for (Map.Entry<String, Stats> entry : analysis.getCanDeviceStalenessMs().entrySet()) {
+          final Stats staleness = entry.getValue();
+          row(
+              csv,
+              analysis,
+              entry.getKey(),
+              "staleness_ms",
+              staleness.getCount(),
+              staleness.getMean(),
+              staleness.getPercentile(0.95),
+              staleness.getMax());
+        }
+      }
+    }
+  }
+
+  /** Writes a CSV row starting with the log's name. Missing measurements are left empty. */
+  private static void row(PrintWriter csv, MatchAnalysis analysis, Object... values) {
+    final StringBuilder line = new StringBuilder(analysis.getFile().getName());
+    for (Object value : values) {
+      line.append(',');
+      if (value instanceof Double) {
+        final double number = (Double) value;
+        if (!Double.isNaN(number)) {
+          line.append(String.format(Locale.ROOT, "%.4f", number));
+        }
+      } else {
+        line.append(value);
+      }
+    }
+    csv.println(line);
+  }
+}
@@ -0,0 +1,503 @@
+package frc.robot.analyzer;
+
+import static frc.robot.greydash.GreyDashConstants.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import frc.robot.shared.LoopProfiler.MatchPhase;
+import frc.robot.shared.RobotInfo.DriveInfo;
+import frc.robot.subsystems.Elevator;
+import frc.robot.subsystems.Wrist;
+import frc.robot.telemetry.AutoCommandLog;
+import frc.robot.telemetry.DataLogger;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * Everything measured from one match log. The log is read once, front to back; values are kept as
+ * they arrive and the per-loop measurements are taken when the loop's {@link
+ * DataLogger#LOOP_ENTRY} record comes in, since every value changed in a loop is written before it
+ * with the same timestamp.
+ */
+@Accessors(prefix = "m_")
+final class MatchAnalysis {
+  /** Below this speed the modules hold their angle, so the steering isn't following a setpoint. */
+  private static final double MIN_STEERING_SPEED_METERS_PER_SECOND =
+      DriveInfo.MAX_VELOCITY_METERS_PER_SECOND * 0.01;
+
+  private static final String CAN_BUS_PREFIX = "/" + CAN_BUS_TABLE + "/";
+
+  /** The loop periods in one match phase. */
+  static final class LoopTiming {
+    final Stats periodsMs = new Stats();
+    int overruns = 0;
+    int droppedLoops = 0;
+  }
+
+  /** A mechanism being given a new target, and how long it took to get there. */
+  static final class SettleTime {
+    final String mechanism;
+    final double startSec;
+    final double target;
+    /** NaN if the target changed or the robot was disabled first. */
+    final double settleSec;
+
+    SettleTime(String mechanism, double startSec, double target, double settleSec) {
+      this.mechanism = mechanism;
+      this.startSec = startSec;
+      this.target = target;
+      this.settleSec = settleSec;
+    }
+  }
+
+  /** A stretch of time the superstructure spent in one desired state. */
+  static final class StateInterval {
+    final String state;
+    final double startSec;
+    final double durationSec;
+
+    StateInterval(String state, double startSec, double durationSec) {
+      this.state = state;
+      this.startSec = startSec;
+      this.durationSec = durationSec;
+    }
+  }
+
+  /** An auto command's run, timed from the start of auto. */
+  static final class CommandRun {
+    final String command;
+    final double startSec;
+    final double durationSec;
+    final boolean timedOut;
+
+    CommandRun(String command, double startSec, double durationSec, boolean timedOut) {
+      this.command = command;
+      this.startSec = startSec;
+      this.durationSec = durationSec;
+      this.timedOut = timedOut;
+    }
+  }
+
+  /** A CAN bus's utilization and the worst error counters seen on it. */
+  static final class CANBusHealth {
+    final Stats utilizationPercent = new Stats();
+    double busOffCount = 0.0;
+    double txFullCount = 0.0;
+  }
+
+  private static final class PhaseChange {
+    final long timeUsec;
+    final MatchPhase phase;
+
+    PhaseChange(long timeUsec, MatchPhase phase) {
+      this.timeUsec = timeUsec;
+      this.phase = phase;
+    }
+  }
+
+  private enum Channel {
+    Loop,
+    Marker,
+    AutoCommand,
+    ElevatorPosition,
+    ElevatorTarget,
+    WristAngle,
+    WristTarget,
+    SwerveSetpoints,
+    SwerveActual,
+    GlobalState,
+    CANBusStatus,
+    CANDeviceNames,
+    CANDeviceStaleness
+  }
+
+  private static final Map<String, Channel> CHANNELS = new HashMap<>();
+
+  static {
+    CHANNELS.put(DataLogger.LOOP_ENTRY, Channel.Loop);
+    CHANNELS.put(DataLogger.MARKER_ENTRY, Channel.Marker);
+    CHANNELS.put(DataLogger.AUTO_COMMAND_ENTRY, Channel.AutoCommand);
+    CHANNELS.put(DataLogger.TELEMETRY_PREFIX + "Elevator Position", Channel.ElevatorPosition);
+    CHANNELS.put(DataLogger.TELEMETRY_PREFIX + "Elevator Target Position", Channel.ElevatorTarget);
+    CHANNELS.put(DataLogger.TELEMETRY_PREFIX + "Wrist Angle", Channel.WristAngle);
+    CHANNELS.put(DataLogger.TELEMETRY_PREFIX + "Wrist Angle Target", Channel.WristTarget);
+    CHANNELS.put(DataLogger.TELEMETRY_PREFIX + "swerve/setpoints", Channel.SwerveSetpoints);
+    CHANNELS.put(DataLogger.TELEMETRY_PREFIX + "swerve/actual", Channel.SwerveActual);
+    CHANNELS.put(DataLogger.TELEMETRY_PREFIX + "Desired Global State", Channel.GlobalState);
+  }
+
+  /** Times a mechanism from each new target to when it's within tolerance of it. */
+  private final class SettleTracker {
+    private final String m_name;
+    private final double m_tolerance;
+    private double m_position = Double.NaN;
+    private double m_target = Double.NaN;
+    private boolean m_targetChanged = false;
+    private long m_startUsec = -1;
+
+    SettleTracker(String name, double tolerance) {
+      m_name = name;
+      m_tolerance = tolerance;
+    }
+
+    void setTarget(double target) {
+      if (target != m_target) {
+        m_target = target;
+        m_targetChanged = true;
+      }
+    }
+
+    void update(long timeUsec, boolean enabled, boolean justEnabled) {
+      final boolean moving = m_targetChanged || justEnabled;
+      m_targetChanged = false;
+      if (!enabled || moving) {
+        unsettled();
+      }
+      if (!enabled || Double.isNaN(m_position) || Double.isNaN(m_target)) {
+        return;
+      }
+
+      final boolean atTarget = Math.abs(m_position - m_target) < m_tolerance;
+      // Enabling only counts as a move when the mechanism has somewhere to go
+      if (moving && !(justEnabled && atTarget)) {
+        m_startUsec = timeUsec;
+      }
+      if (m_startUsec >= 0 && atTarget) {
+        m_settleTimes.add(
+            new SettleTime(
+                m_name, sinceStart(m_startUsec), m_target, toSec(timeUsec - m_startUsec)));
+        m_startUsec = -1;
+      }
+    }
+
+    void unsettled() {
+      if (m_startUsec >= 0) {
+        m_settleTimes.add(new SettleTime(m_name, sinceStart(m_startUsec), m_target, Double.NaN));
+        m_startUsec = -1;
+      }
+    }
+  }
+
+  @Getter private final File m_file;
+  private final double m_overrunMs;
+
+  @Getter private final Map<MatchPhase, LoopTiming> m_loopTiming = new EnumMap<>(MatchPhase.class);
+  @Getter private final List<SettleTime> m_settleTimes = new ArrayList<>();
+  /** Steering error per module, in degrees. */
+  @Getter private final Stats[] m_steeringErrorDeg = new Stats[4];
+
+  @Getter private final List<StateInterval> m_stateIntervals = new ArrayList<>();
+  @Getter private final List<CommandRun> m_commandRuns = new ArrayList<>();
+  @Getter private final Map<String, CANBusHealth> m_canBuses = new TreeMap<>();
+  /** How long each CAN device went without reporting, in milliseconds. */
+  @Getter private final Map<String, Stats> m_canDeviceStalenessMs = new TreeMap<>();
+  @Getter private int m_exceptions = 0;
+
+  // Reader state
+  private final Map<Integer, Channel> m_channels = new HashMap<>();
+  private final Map<Integer, String> m_busNames = new HashMap<>();
+
+  private long m_startUsec = -1;
+  private MatchPhase m_phase = MatchPhase.Disabled;
+  private boolean m_wasEnabled = false;
+  /** Markers are written ahead of the loops before them, so phase changes wait for their loop. */
+  private final ArrayDeque<PhaseChange> m_phaseChanges = new ArrayDeque<>();
+
+  private long m_lastLoop = -1;
+  private long m_lastLoopUsec = 0;
+
+  private final SettleTracker m_elevator =
+      new SettleTracker("Elevator", Elevator.POSITION_TARGET_TOLERANCE);
+  private final SettleTracker m_wrist = new SettleTracker("Wrist", Wrist.ANGLE_TOLERANCE);
+
+  private double[] m_swerveSetpoints = null;
+  private double[] m_swerveActual = null;
+
+  private String m_state = null;
+  private long m_stateStartUsec = 0;
+
+  private long m_autoStartUsec = -1;
+  private final Map<String, ArrayDeque<Long>> m_runningCommands = new HashMap<>();
+
+  private String[] m_deviceNames = new String[0];
+
+  private MatchAnalysis(File file, double overrunMs) {
+    m_file = file;
+    m_overrunMs = overrunMs;
+    for (MatchPhase phase : MatchPhase.values()) {
+      m_loopTiming.put(phase, new LoopTiming());
+    }
+    for (int i = 0; i < m_steeringErrorDeg.length; i++) {
+      m_steeringErrorDeg[i] = new Stats();
+    }
+  }
+
+  /**
+   * Reads a match log and measures it.
+   *
+   * @param file The log, as written by {@link DataLogger}.
+   * @param overrunMs Loop periods longer than this count as overruns.
+   * @return The measurements.
+   * @throws IOException If the file can't be read or isn't a data log.
+   */
+  static MatchAnalysis analyze(File file, double overrunMs) throws IOException {
+    final DataLogReader reader = new DataLogReader(file.getPath());
+    if (!reader.isValid()) {
+      throw new IOException("Not a data log: " + file);
+    }
+
+    final MatchAnalysis analysis = new MatchAnalysis(file, overrunMs);
+    for (DataLogRecord record : reader) {
+      analysis.read(record);
+    }
+    analysis.finish();
+    return analysis;
+  }
+
+  private void read(DataLogRecord record) {
+    if (record.isControl()) {
+      if (record.isStart()) {
+        start(record.getStartData());
+      } else if (record.isFinish()) {
+        m_channels.remove(record.getFinishEntry());
+      }
+      return;
+    }
+
+    final Channel channel = m_channels.get(record.getEntry());
+    if (channel == null) {
+      return;
+    }
+    final long timeUsec = record.getTimestamp();
+    if (m_startUsec < 0) {
+      m_startUsec = timeUsec;
+    }
+
+    switch (channel) {
+      case Loop:
+        loop(record.getInteger(), timeUsec);
+        break;
+      case Marker:
+        marker(record.getString(), timeUsec);
+        break;
+      case AutoCommand:
+        autoCommand(record.getString(), timeUsec);
+        break;
+      case ElevatorPosition:
+        m_elevator.m_position = record.getDouble();
+        break;
+      case ElevatorTarget:
+        m_elevator.setTarget(record.getDouble());
+        break;
+      case WristAngle:
+        m_wrist.m_position = record.getDouble();
+        break;
+      case WristTarget:
+        m_wrist.setTarget(record.getDouble());
+        break;
+      case SwerveSetpoints:
+        m_swerveSetpoints = record.getDoubleArray();
+        break;
+      case SwerveActual:
+        m_swerveActual = record.getDoubleArray();
+        break;
+      case GlobalState:
+        globalState(record.getString(), timeUsec);
+        break;
+      case CANBusStatus:
+        canBusStatus(m_busNames.get(record.getEntry()), record.getDoubleArray());
+        break;
+      case CANDeviceNames:
+        m_deviceNames = record.getStringArray();
+        break;
+      case CANDeviceStaleness:
+        canDeviceStaleness(record.getDoubleArray());
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void start(DataLogRecord.StartRecordData data) {
+    final Channel channel = CHANNELS.get(data.name);
+    if (channel != null) {
+      m_channels.put(data.entry, channel);
+      return;
+    }
+
+    // NetworkTables entries are logged under "NT:/GreyDash/canbus/..."
+    final int canBus = data.name.indexOf(CAN_BUS_PREFIX);
+    if (canBus < 0) {
+      return;
+    }
+    final String topic = data.name.substring(canBus + CAN_BUS_PREFIX.length());
+    if (topic.equals(CAN_DEVICE_NAMES_TOPIC)) {
+      m_channels.put(data.entry, Channel.CANDeviceNames);
+    } else if (topic.equals(CAN_DEVICE_STALENESS_TOPIC)) {
+      m_channels.put(data.entry, Channel.CANDeviceStaleness);
+    } else if (topic.endsWith("/" + CAN_BUS_STATUS_TOPIC)) {
+      m_channels.put(data.entry, Channel.CANBusStatus);
+      m_busNames.put(data.entry, topic.substring(0, topic.lastIndexOf('/')));
+    }
+  }
+
+  private void loop(long loop, long timeUsec) {
+    while (!m_phaseChanges.isEmpty() && m_phaseChanges.peek().timeUsec <= timeUsec) {
+      m_phase = m_phaseChanges.poll().phase;
+    }
+
+    final LoopTiming timing = m_loopTiming.get(m_phase);
+    if (m_lastLoop >= 0 && loop > m_lastLoop) {
+      if (loop == m_lastLoop + 1) {
+        final double periodMs = (timeUsec - m_lastLoopUsec) / 1000.0;
+        timing.periodsMs.add(periodMs);
+        if (periodMs > m_overrunMs) {
+          timing.overruns++;
+        }
+      } else {
+        // Periods across a gap would include the dropped loops
+        timing.droppedLoops += loop - m_lastLoop - 1;
+      }
+    }
+    m_lastLoop = loop;
+    m_lastLoopUsec = timeUsec;
+
+    final boolean enabled = m_phase != MatchPhase.Disabled;
+    final boolean justEnabled = enabled && !m_wasEnabled;
+    m_wasEnabled = enabled;
+    m_elevator.update(timeUsec, enabled, justEnabled);
+    m_wrist.update(timeUsec, enabled, justEnabled);
+    if (enabled) {
+      steeringError();
+    }
+  }
+
+  private void marker(String marker, long timeUsec) {
+    final MatchPhase phase;
+    switch (marker) {
+      case "auto init":
+        phase = MatchPhase.Auto;
+        m_autoStartUsec = timeUsec;
+        m_runningCommands.clear();
+        break;
+      case "teleop init":
+        phase = MatchPhase.Teleop;
+        break;
+      case "test init":
+        phase = MatchPhase.Test;
+        break;
+      case "disabled init":
+        phase = MatchPhase.Disabled;
+        break;
+      default:
+        if (marker.startsWith("Exception")) {
+          m_exceptions++;
+        }
+        return;
+    }
+    m_phaseChanges.add(new PhaseChange(timeUsec, phase));
+  }
+
+  private void autoCommand(String event, long timeUsec) {
+    if (m_autoStartUsec < 0) {
+      return;
+    }
+
+    if (event.startsWith(AutoCommandLog.STARTED)) {
+      final String command = event.substring(AutoCommandLog.STARTED.length());
+      m_runningCommands.computeIfAbsent(command, c -> new ArrayDeque<>()).push(timeUsec);
+      return;
+    }
+
+    final boolean timedOut = event.startsWith(AutoCommandLog.TIMED_OUT);
+    final String prefix = timedOut ? AutoCommandLog.TIMED_OUT : AutoCommandLog.FINISHED;
+    if (!event.startsWith(prefix)) {
+      return;
+    }
+    final String command = event.substring(prefix.length());
+    final ArrayDeque<Long> starts = m_runningCommands.get(command);
+    if (starts == null || starts.isEmpty()) {
+      return;
+    }
+    final long startUsec = starts.pop();
+    m_commandRuns.add(
+        new CommandRun(
+            command, toSec(startUsec - m_autoStartUsec), toSec(timeUsec - startUsec), timedOut));
+  }
+
+  private void steeringError() {
+    if (m_swerveSetpoints == null || m_swerveActual == null) {
+      return;
+    }
+
+    final int modules = Math.min(m_steeringErrorDeg.length, m_swerveSetpoints.length / 2);
+    for (int i = 0; i < modules; i++) {
+      if (Math.abs(m_swerveSetpoints[2 * i + 1]) <= MIN_STEERING_SPEED_METERS_PER_SECOND) {
+        continue;
+      }
+      // The modules reverse instead of turning more than 90 degrees, so 180 apart is no error
+      final double error = Math.abs(m_swerveSetpoints[2 * i] - m_swerveActual[2 * i]) % 180.0;
+      m_steeringErrorDeg[i].add(Math.min(error, 180.0 - error));
+    }
+  }
+
+  private void globalState(String state, long timeUsec) {
+    if (state.equals(m_state)) {
+      return;
+    }
+    endState(timeUsec);
+    m_state = state;
+    m_stateStartUsec = timeUsec;
+  }
+
+  private void endState(long timeUsec) {
+    if (m_state != null) {
+      m_stateIntervals.add(
+          new StateInterval(
+              m_state, sinceStart(m_stateStartUsec), toSec(timeUsec - m_stateStartUsec)));
+    }
+  }
+
+  private void canBusStatus(String bus, double[] status) {
+    if (status.length < 3) {
+      return;
+    }
+    final CANBusHealth health = m_canBuses.computeIfAbsent(bus, b -> new CANBusHealth());
+    health.utilizationPercent.add(status[0]);
+    health.busOffCount = Math.max(health.busOffCount, status[1]);
+    health.txFullCount = Math.max(health.txFullCount, status[2]);
+  }
+
+  private void canDeviceStaleness(double[] stalenessMs) {
+    for (int i = 0; i < stalenessMs.length; i++) {
+      final String name = i < m_deviceNames.length ? m_deviceNames[i] : "Device " + i;
+      m_canDeviceStalenessMs.computeIfAbsent(name, n -> new Stats()).add(stalenessMs[i]);
+    }
+  }
+
+  private void finish() {
+    m_elevator.unsettled();
+    m_wrist.unsettled();
+    endState(m_lastLoopUsec);
+  }
+
+  private static double toSec(long usec) {
+    return usec / 1e6;
+  }
+
+  /** Converts a log timestamp to seconds since the first record read. */
+  private double sinceStart(long timeUsec) {
+    return toSec(timeUsec - m_startUsec);
+  }
+}
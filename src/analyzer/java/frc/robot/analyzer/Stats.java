@@ -0,0 +1,58 @@
+package frc.robot.analyzer;
+
+import java.util.Arrays;
+
+/** Collects samples and reports their distribution. */
+final class Stats {
+  private double[] m_values = new double[256];
+  private int m_count = 0;
+  private double m_sum = 0.0;
+  private double m_max = Double.NEGATIVE_INFINITY;
+  private boolean m_sorted = true;
+
+  void add(double value) {
+    if (m_count == m_values.length) {
+      m_values = Arrays.copyOf(m_values, m_count * 2);
+    }
+    m_values[m_count++] = value;
+    m_sum += value;
+    m_max = Math.max(m_max, value);
+    m_sorted = false;
+  }
+
+  void addAll(Stats other) {
+    for (int i = 0; i < other.m_count; i++) {
+      add(other.m_values[i]);
+    }
+  }
+
+  int getCount() {
+    return m_count;
+  }
+
+  double getMean() {
+    return m_count == 0 ? Double.NaN : m_sum / m_count;
+  }
+
+  double getMax() {
+    return m_count == 0 ? Double.NaN : m_max;
+  }
+
+  /**
+   * Returns the value below which the given fraction of the samples fall, using the nearest rank.
+   *
+   * @param fraction The fraction, in [0, 1].
+   * @return The percentile, or NaN if there are no samples.
+   */
+  double getPercentile(double fraction) {
+    if (m_count == 0) {
+      return Double.NaN;
+    }
+    if (!m_sorted) {
+      Arrays.sort(m_values, 0, m_count);
+      m_sorted = true;
+    }
+    final int rank = (int) Math.ceil(fraction * m_count);
+    return m_values[Math.max(0, Math.min(m_count - 1, rank - 1))];
+  }
+}
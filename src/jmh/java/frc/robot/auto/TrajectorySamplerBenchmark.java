@@ -0,0 +1,91 @@
+package frc.robot.auto;
+
+import java.util.concurrent.TimeUnit;
+
+import com.pathplanner.lib.PathPlannerTrajectory;
+import com.pathplanner.lib.PathPlannerTrajectory.PathPlannerState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks sampling the trajectory each loop of an auto, along every segment of Bump3Charge, our
+ * longest path group. The setup first checks that the cursor sampler matches PathPlanner's sample()
+ * exactly.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class TrajectorySamplerBenchmark {
+  private static final double LOOP_PERIOD_SECONDS = 0.02;
+  /** Checked more finely than a loop, to land between states. */
+  private static final double CHECK_PERIOD_SECONDS = 0.001;
+
+  private PathPlannerTrajectory[] m_segments;
+  private TrajectorySampler[] m_samplers;
+  private int m_segment = 0;
+  private double m_timeSeconds = 0.0;
+
+  @Setup
+  public void setup() {
+    final TrajectoryManager.TrajectoryPair path = TrajectoryManager.Bump3Charge;
+    m_segments = new PathPlannerTrajectory[path.getNumSegments()];
+    m_samplers = new TrajectorySampler[m_segments.length];
+    for (int i = 0; i < m_segments.length; i++) {
+      m_segments[i] = path.get(i);
+      m_samplers[i] = new TrajectorySampler(m_segments[i]);
+      check(m_segments[i]);
+    }
+  }
+
+  /** Throws if the sampler differs from sample() anywhere along the trajectory. */
+  private static void check(PathPlannerTrajectory trajectory) {
+    final TrajectorySampler sampler = new TrajectorySampler(trajectory);
+    final double endSeconds = trajectory.getTotalTimeSeconds() + CHECK_PERIOD_SECONDS;
+    for (double time = -CHECK_PERIOD_SECONDS; time <= endSeconds; time += CHECK_PERIOD_SECONDS) {
+      final PathPlannerState expected = trajectory.sample(time);
+      final PathPlannerState actual = sampler.sample(time);
+      if (expected.timeSeconds != actual.timeSeconds
+          || expected.poseMeters.getX() != actual.poseMeters.getX()
+          || expected.poseMeters.getY() != actual.poseMeters.getY()
+          || expected.poseMeters.getRotation().getRadians()
+              != actual.poseMeters.getRotation().getRadians()
+          || expected.velocityMetersPerSecond != actual.velocityMetersPerSecond
+          || expected.accelerationMetersPerSecondSq != actual.accelerationMetersPerSecondSq
+          || expected.curvatureRadPerMeter != actual.curvatureRadPerMeter
+          || expected.angularVelocityRadPerSec != actual.angularVelocityRadPerSec
+          || expected.holonomicRotation.getRadians() != actual.holonomicRotation.getRadians()
+          || expected.holonomicAngularVelocityRadPerSec
+              != actual.holonomicAngularVelocityRadPerSec) {
+        throw new IllegalStateException(
+            String.format(
+                "Sampler differs from sample() at %.3f s: %s vs %s", time, expected, actual));
+      }
+    }
+  }
+
+  /** Steps a loop along the current segment, moving to the next one at the end. */
+  private void step() {
+    m_timeSeconds += LOOP_PERIOD_SECONDS;
+    if (m_timeSeconds > m_segments[m_segment].getTotalTimeSeconds()) {
+      m_timeSeconds = 0.0;
+      m_segment = (m_segment + 1) % m_segments.length;
+    }
+  }
+
+  @Benchmark
+  public PathPlannerState sample() {
+    step();
+    return m_segments[m_segment].sample(m_timeSeconds);
+  }
+
+  @Benchmark
+  public PathPlannerState sampleCursor() {
+    step();
+    return m_samplers[m_segment].sample(m_timeSeconds);
+  }
+}
@@ -0,0 +1,110 @@
+package frc.robot.devices;
+
+import java.util.concurrent.TimeUnit;
+
+import frc.robot.devices.GreyTalonFX.ControlMode;
+
+import com.ctre.phoenixpro.StatusCode;
+import com.ctre.phoenixpro.controls.ControlRequest;
+import com.ctre.phoenixpro.controls.DutyCycleOut;
+import com.ctre.phoenixpro.controls.MotionMagicDutyCycle;
+import com.ctre.phoenixpro.controls.MotionMagicVoltage;
+import com.ctre.phoenixpro.controls.PositionDutyCycle;
+import com.ctre.phoenixpro.controls.PositionVoltage;
+import com.ctre.phoenixpro.controls.VelocityDutyCycle;
+import com.ctre.phoenixpro.controls.VelocityVoltage;
+import edu.wpi.first.hal.HAL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks setting a motor's output, which happens every loop for each motor, in each control
+ * mode. The drive motors' demand changes almost every loop, so most calls send a new request.
+ *
+ * <p>Compare {@link #setControl} against {@link #setControlNewRequest}, which allocates a request
+ * each call the way setControl did before each motor kept one per mode.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class GreyTalonFXBenchmark {
+  /** A simulated device, so nothing goes out on a real bus. */
+  private static final int DEVICE_ID = 60;
+
+  @Param({
+    "DutyCycleOut",
+    "MotionMagicDutyCycle",
+    "MotionMagicVoltage",
+    "PositionDutyCycle",
+    "PositionVoltage",
+    "VelocityDutyCycle",
+    "VelocityVoltage"
+  })
+  public ControlMode controlMode;
+
+  private GreyTalonFX m_motor;
+  private double m_demand = 0.0;
+
+  @Setup
+  public void setup() {
+    HAL.initialize(500, 0);
+    m_motor = new GreyTalonFX(DEVICE_ID);
+  }
+
+  /** A different demand each call, so every call sends a request. */
+  private double nextDemand() {
+    m_demand = m_demand > 0.5 ? 0.0 : m_demand + 0.01;
+    return m_demand;
+  }
+
+  @Benchmark
+  public StatusCode setControl() {
+    return m_motor.setControl(controlMode, nextDemand(), true, 0.1, 0, false);
+  }
+
+  /** The same demand every call, which is skipped without sending anything. */
+  @Benchmark
+  public StatusCode setControlRepeated() {
+    return m_motor.setControl(controlMode, 0.25, true, 0.1, 0, false);
+  }
+
+  /** Sends a new request each call, as setControl did before it reused them. */
+  @Benchmark
+  @SuppressWarnings("deprecation")
+  public StatusCode setControlNewRequest() {
+    final double demand = nextDemand();
+    ControlRequest request = new DutyCycleOut(0.0);
+    switch (controlMode) {
+      case DutyCycleOut:
+        request = new DutyCycleOut(demand, true, false);
+        break;
+      case MotionMagicDutyCycle:
+        request = new MotionMagicDutyCycle(demand, true, 0.1, 0, false);
+        break;
+      case MotionMagicVoltage:
+        request = new MotionMagicVoltage(demand, true, 0.1, 0, false);
+        break;
+      case PositionDutyCycle:
+        request = new PositionDutyCycle(demand, true, 0.1, 0, false);
+        break;
+      case PositionVoltage:
+        request = new PositionVoltage(demand, true, 0.1, 0, false);
+        break;
+      case VelocityDutyCycle:
+        request = new VelocityDutyCycle(demand, true, 0.1, 0, false);
+        break;
+      case VelocityVoltage:
+        request = new VelocityVoltage(demand, true, 0.1, 0, false);
+        break;
+      default:
+        break;
+    }
+    return m_motor.setControl(request);
+  }
+}
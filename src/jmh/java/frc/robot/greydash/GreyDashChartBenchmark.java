@@ -0,0 +1,66 @@
+package frc.robot.greydash;
+
+import java.util.concurrent.TimeUnit;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** Benchmarks adding a data point to a chart, which happens every loop for each charted value. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class GreyDashChartBenchmark {
+  /** Five loops of points, the batch size at the default 10 Hz publish rate. */
+  private static final int POINTS_PER_PUBLISH = 5;
+
+  @Param({"1", "4"})
+  public int numSeries;
+
+  private NetworkTableInstance m_instance;
+  private GreyDashChart m_chart;
+  private String[] m_labels;
+
+  @Setup
+  public void setup() {
+    // A private instance, so nothing is sent anywhere
+    m_instance = NetworkTableInstance.create();
+    // Never publishes on its own, so only the publish benchmark publishes
+    m_chart = new GreyDashChart(m_instance.getTable("charts"), "benchmark", 1e-9, 500);
+    m_labels = new String[numSeries];
+    for (int i = 0; i < numSeries; i++) {
+      m_labels[i] = "Series " + i;
+      m_chart.addDataToSeries(m_labels[i], i);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    m_instance.close();
+  }
+
+  @Benchmark
+  public void addDataToSeries() {
+    for (int i = 0; i < numSeries; i++) {
+      m_chart.addDataToSeries(m_labels[i], i);
+    }
+  }
+
+  /** Encodes and publishes a full batch, which happens at the chart's publish rate. */
+  @Benchmark
+  public void publish() {
+    for (int i = 0; i < numSeries; i++) {
+      for (int j = 0; j < POINTS_PER_PUBLISH; j++) {
+        m_chart.addDataToSeries(m_labels[i], j);
+      }
+    }
+    m_chart.publish();
+  }
+}
@@ -0,0 +1,46 @@
+package frc.robot.shared;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import frc.robot.shared.LimelightHelpers.LimelightResults;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks parsing Limelight JSON dumps. The payloads are in src/jmh/resources/limelight; add a
+ * dump from the robot there and to {@link #payload} to benchmark it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class LimelightHelpersBenchmark {
+  @Param({"no-targets.json", "two-fiducials.json"})
+  public String payload;
+
+  private String m_json;
+
+  @Setup
+  public void setup() throws IOException {
+    try (InputStream stream = getClass().getResourceAsStream("/limelight/" + payload)) {
+      if (stream == null) {
+        throw new IOException("Missing Limelight payload " + payload);
+      }
+      m_json = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Benchmark
+  public LimelightResults parseLatestResults() {
+    return LimelightHelpers.parseLatestResults(m_json);
+  }
+}
@@ -0,0 +1,54 @@
+package frc.robot.shared;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks the gyro rotation math. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class StandardizedRotation3dBenchmark {
+  private static final int NUM_INPUTS = 1024;
+
+  private final double[] m_rolls = new double[NUM_INPUTS];
+  private final double[] m_pitches = new double[NUM_INPUTS];
+  private final double[] m_yaws = new double[NUM_INPUTS];
+  private final StandardizedRotation3d[] m_rotations = new StandardizedRotation3d[NUM_INPUTS];
+  private final StandardizedRotation3d m_offset = new StandardizedRotation3d(0.02, -0.01, 1.2);
+  private int m_index = 0;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(973);
+    for (int i = 0; i < NUM_INPUTS; i++) {
+      m_rolls[i] = random.nextDouble() * 0.5 - 0.25;
+      m_pitches[i] = random.nextDouble() * 0.5 - 0.25;
+      m_yaws[i] = random.nextDouble() * 2.0 * Math.PI - Math.PI;
+      m_rotations[i] = new StandardizedRotation3d(m_rolls[i], m_pitches[i], m_yaws[i]);
+    }
+  }
+
+  private int nextIndex() {
+    m_index = (m_index + 1) & (NUM_INPUTS - 1);
+    return m_index;
+  }
+
+  @Benchmark
+  public StandardizedRotation3d construct() {
+    final int i = nextIndex();
+    return new StandardizedRotation3d(m_rolls[i], m_pitches[i], m_yaws[i]);
+  }
+
+  @Benchmark
+  public StandardizedRotation3d minus() {
+    return m_rotations[nextIndex()].minus(m_offset);
+  }
+}
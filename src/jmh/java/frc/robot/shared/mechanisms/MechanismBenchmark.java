@@ -0,0 +1,75 @@
+package frc.robot.shared.mechanisms;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import frc.robot.shared.RobotInfo.DriveInfo;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks the rotor to output conversions, comparing the Rotation2d and primitive versions. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class MechanismBenchmark {
+  private static final int NUM_INPUTS = 1024;
+
+  private final GearedMechanism m_gearedMechanism = new GearedMechanism(DriveInfo.ANGLE_GEAR_RATIO);
+  private final LinearMechanism m_linearMechanism =
+      new LinearMechanism(DriveInfo.DRIVE_GEAR_RATIO, DriveInfo.WHEEL_DIAMETER_METERS);
+
+  private final double[] m_rotorRotations = new double[NUM_INPUTS];
+  private final Rotation2d[] m_rotorRotation2ds = new Rotation2d[NUM_INPUTS];
+  private int m_index = 0;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(973);
+    for (int i = 0; i < NUM_INPUTS; i++) {
+      m_rotorRotations[i] = random.nextDouble() * 2000.0 - 1000.0;
+      m_rotorRotation2ds[i] = Rotation2d.fromRotations(m_rotorRotations[i]);
+    }
+  }
+
+  private int nextIndex() {
+    m_index = (m_index + 1) & (NUM_INPUTS - 1);
+    return m_index;
+  }
+
+  @Benchmark
+  public Rotation2d gearedOutputRotation() {
+    return m_gearedMechanism.getOutputRotationFromRotorRotation(m_rotorRotation2ds[nextIndex()]);
+  }
+
+  @Benchmark
+  public double gearedOutputRotations() {
+    return m_gearedMechanism.getOutputRotationsFromRotorRotations(m_rotorRotations[nextIndex()]);
+  }
+
+  @Benchmark
+  public double linearOutputDistanceFromRotation() {
+    return m_linearMechanism.getOutputDistanceFromRotorRotation(m_rotorRotation2ds[nextIndex()]);
+  }
+
+  @Benchmark
+  public double linearOutputDistanceFromRotations() {
+    return m_linearMechanism.getOutputDistanceFromRotorRotations(m_rotorRotations[nextIndex()]);
+  }
+
+  @Benchmark
+  public Rotation2d linearRotorRotationFromDistance() {
+    return m_linearMechanism.getRotorRotationFromOutputDistance(m_rotorRotations[nextIndex()]);
+  }
+
+  @Benchmark
+  public double linearRotorRotationsFromDistance() {
+    return m_linearMechanism.getRotorRotationsFromOutputDistance(m_rotorRotations[nextIndex()]);
+  }
+}
@@ -0,0 +1,70 @@
+package frc.robot.subsystems.swerve;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Benchmarks the module state optimization every swerve module runs each loop. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class CTREModuleStateBenchmark {
+  private static final int NUM_INPUTS = 1024;
+
+  private final double[] m_speeds = new double[NUM_INPUTS];
+  private final double[] m_desiredAnglesDegrees = new double[NUM_INPUTS];
+  private final double[] m_currentAnglesDegrees = new double[NUM_INPUTS];
+  private final SwerveModuleState[] m_desiredStates = new SwerveModuleState[NUM_INPUTS];
+  private final Rotation2d[] m_currentAngles = new Rotation2d[NUM_INPUTS];
+  private final SwerveModuleSetpoint m_setpoint = new SwerveModuleSetpoint();
+  private int m_index = 0;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(973);
+    for (int i = 0; i < NUM_INPUTS; i++) {
+      m_speeds[i] = random.nextDouble() * 9.0 - 4.5;
+      m_desiredAnglesDegrees[i] = random.nextDouble() * 360.0 - 180.0;
+      // The module angle is continuous, so it wanders well outside [0, 360)
+      m_currentAnglesDegrees[i] = random.nextDouble() * 2160.0 - 1080.0;
+      m_desiredStates[i] =
+          new SwerveModuleState(m_speeds[i], Rotation2d.fromDegrees(m_desiredAnglesDegrees[i]));
+      m_currentAngles[i] = Rotation2d.fromDegrees(m_currentAnglesDegrees[i]);
+    }
+  }
+
+  private int nextIndex() {
+    m_index = (m_index + 1) & (NUM_INPUTS - 1);
+    return m_index;
+  }
+
+  @Benchmark
+  public SwerveModuleState optimizeState() {
+    final int i = nextIndex();
+    return CTREModuleState.optimize(m_desiredStates[i], m_currentAngles[i]);
+  }
+
+  @Benchmark
+  public SwerveModuleSetpoint optimizePrimitive() {
+    final int i = nextIndex();
+    CTREModuleState.optimize(
+        m_speeds[i], m_desiredAnglesDegrees[i], m_currentAnglesDegrees[i], m_setpoint);
+    return m_setpoint;
+  }
+
+  @Benchmark
+  public double placeInAppropriate0To360Scope() {
+    final int i = nextIndex();
+    return CTREModuleState.placeInAppropriate0To360Scope(
+        m_currentAnglesDegrees[i], m_desiredAnglesDegrees[i]);
+  }
+}
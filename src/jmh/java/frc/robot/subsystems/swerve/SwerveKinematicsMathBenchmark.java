@@ -0,0 +1,96 @@
+package frc.robot.subsystems.swerve;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import frc.robot.shared.RobotInfo.DriveInfo;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks the chassis speed discretization and inverse kinematics Drive runs each loop, against
+ * the WPILib objects it replaced.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class SwerveKinematicsMathBenchmark {
+  private static final int NUM_INPUTS = 1024;
+  private static final double DISCRETIZE_PERIOD_SEC = 0.03;
+
+  private static final Translation2d[] MODULE_LOCATIONS = {
+    new Translation2d(DriveInfo.TRACKWIDTH_METERS / 2.0, DriveInfo.WHEELBASE_METERS / 2.0),
+    new Translation2d(DriveInfo.TRACKWIDTH_METERS / 2.0, -DriveInfo.WHEELBASE_METERS / 2.0),
+    new Translation2d(-DriveInfo.TRACKWIDTH_METERS / 2.0, DriveInfo.WHEELBASE_METERS / 2.0),
+    new Translation2d(-DriveInfo.TRACKWIDTH_METERS / 2.0, -DriveInfo.WHEELBASE_METERS / 2.0)
+  };
+
+  private final SwerveDriveKinematics m_kinematics = new SwerveDriveKinematics(MODULE_LOCATIONS);
+
+  private final ChassisSpeeds[] m_chassisSpeeds = new ChassisSpeeds[NUM_INPUTS];
+  private final double[] m_moduleSpeeds = new double[MODULE_LOCATIONS.length];
+  private final double[] m_moduleAnglesDegrees = new double[MODULE_LOCATIONS.length];
+  private int m_index = 0;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(973);
+    for (int i = 0; i < NUM_INPUTS; i++) {
+      m_chassisSpeeds[i] =
+          new ChassisSpeeds(
+              random.nextDouble() * 9.0 - 4.5,
+              random.nextDouble() * 9.0 - 4.5,
+              random.nextDouble() * 4.0 * Math.PI - 2.0 * Math.PI);
+    }
+  }
+
+  private ChassisSpeeds nextSpeeds() {
+    m_index = (m_index + 1) & (NUM_INPUTS - 1);
+    return m_chassisSpeeds[m_index];
+  }
+
+  @Benchmark
+  public double[] toModuleSetpoints() {
+    final ChassisSpeeds speeds = nextSpeeds();
+    SwerveKinematicsMath.toModuleSetpoints(
+        speeds.vxMetersPerSecond,
+        speeds.vyMetersPerSecond,
+        speeds.omegaRadiansPerSecond,
+        DISCRETIZE_PERIOD_SEC,
+        MODULE_LOCATIONS,
+        m_moduleSpeeds,
+        m_moduleAnglesDegrees);
+    return m_moduleAnglesDegrees;
+  }
+
+  /** What Drive.update did before it was made allocation-free. */
+  @Benchmark
+  public SwerveModuleState[] wpilibKinematics() {
+    final ChassisSpeeds speeds = nextSpeeds();
+    final Pose2d robotPoseVel =
+        new Pose2d(
+            speeds.vxMetersPerSecond * DISCRETIZE_PERIOD_SEC,
+            speeds.vyMetersPerSecond * DISCRETIZE_PERIOD_SEC,
+            Rotation2d.fromRadians(speeds.omegaRadiansPerSecond * DISCRETIZE_PERIOD_SEC));
+    final Twist2d twist = new Pose2d().log(robotPoseVel);
+    final ChassisSpeeds discretized =
+        new ChassisSpeeds(
+            twist.dx / DISCRETIZE_PERIOD_SEC,
+            twist.dy / DISCRETIZE_PERIOD_SEC,
+            twist.dtheta / DISCRETIZE_PERIOD_SEC);
+    return m_kinematics.toSwerveModuleStates(discretized);
+  }
+}
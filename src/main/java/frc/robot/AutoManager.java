@@ -3,6 +3,8 @@ package frc.robot;
 import java.util.Arrays;
 import java.util.List;
 
+import frc.robot.auto.TrajectoryManager;
+import frc.robot.auto.TrajectoryManager.TrajectoryPair;
 import frc.robot.auto.modes.Bump1HoldCharge;
 import frc.robot.auto.modes.Bump2;
 import frc.robot.auto.modes.Bump2Charge;
@@ -29,6 +31,7 @@ public class AutoManager {
           AutoMode.Center1Charge,
           AutoMode.NoAuto);
   private int m_selectedMode = 0;
+  private AutoMode m_modeOverride = null;
 
   public enum AutoMode {
     Test,
@@ -91,15 +94,67 @@ public class AutoManager {
     return m_availableAutoModes.get(m_selectedMode);
   }
 
+  /**
+   * Runs the given mode on the next init instead of the selected one, even if it isn't one of the
+   * available modes. Used by the auto replay runner.
+   *
+   * @param mode The mode to run, or null to go back to the selected mode.
+   */
+  public void setModeOverride(AutoMode mode) {
+    m_modeOverride = mode;
+  }
+
+  /**
+   * Returns whether the running mode has finished.
+   *
+   * @return True if the running mode has finished.
+   */
+  public boolean isCompleted() {
+    return m_currentMode != null && m_currentMode.isCompleted();
+  }
+
   public void run() {
     m_currentMode.run();
   }
 
   public void init() {
-    selectAuto(m_availableAutoModes.get(m_selectedMode));
+    selectAuto(m_modeOverride != null ? m_modeOverride : m_availableAutoModes.get(m_selectedMode));
     m_currentMode.init();
   }
 
+  /**
+   * Returns the paths a mode drives.
+   *
+   * @param mode The mode.
+   * @return The mode's paths, or null if it doesn't drive any.
+   */
+  public static TrajectoryPair getTrajectory(AutoMode mode) {
+    switch (mode) {
+      case Flat1Charge:
+        return TrajectoryManager.Flat1Charge;
+      case Flat1HoldCharge:
+        return TrajectoryManager.Flat1HoldCharge;
+      case Bump1HoldCharge:
+        return TrajectoryManager.Bump1HoldCharge;
+      case Bump2:
+        return TrajectoryManager.Bump2;
+      case Bump2Charge:
+        return TrajectoryManager.Bump2Charge;
+      case Bump3:
+        return TrajectoryManager.Bump3;
+      case Bump3Charge:
+        return TrajectoryManager.Bump3Charge;
+      case Center1Charge:
+        return TrajectoryManager.Center1Charge;
+      case Flat2Charge:
+        return TrajectoryManager.Flat2Charge;
+      case Flat3:
+        return TrajectoryManager.Flat3;
+      default:
+        return null;
+    }
+  }
+
   private void selectAuto(AutoMode mode) {
     switch (mode) {
       case Test:
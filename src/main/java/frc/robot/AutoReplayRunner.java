@@ -0,0 +1,338 @@
+package frc.robot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+import frc.robot.AutoManager.AutoMode;
+import frc.robot.auto.TrajectoryManager.TrajectoryPair;
+import frc.robot.shared.AutoCommand;
+import frc.robot.shared.AutoCommandTracer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.PathPlannerTrajectory.PathPlannerState;
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.DriverStationJNI;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+/**
+ * Runs auto modes in simulation, faster than real time, and reports how each one went: how long it
+ * took, how many game pieces it scored, how far the robot ended from the end of the path, and how
+ * long each command took.
+ *
+ * <p>Run it with {@code ./gradlew autoReplay}, optionally passing {@code -PautoModes=Bump3,Flat3},
+ * {@code -PautoAlliance=Red} and {@code -PautoTimeScale=4}. Every mode runs when none are given.
+ * The HAL simulation is global to a process, so each mode runs in its own JVM, with as many at once
+ * as there are cores.
+ *
+ * <p>The robot loop is stepped in simulated time, so the code always sees 20 ms between loops no
+ * matter how fast it actually runs. The Phoenix devices simulate on the wall clock though, so their
+ * signals and Motion Magic profiles only move in real time. The time scale limits how much faster
+ * than real time the loop runs, so the devices keep up; 0 runs the loop as fast as it can, which
+ * makes the mechanisms look slower than they are.
+ */
+public final class AutoReplayRunner {
+  private static final double LOOP_PERIOD_SEC = 0.02;
+  private static final double AUTO_LENGTH_SEC = 15.0;
+  private static final double DEFAULT_TIME_SCALE = 4.0;
+  private static final String RESULT_PREFIX = "AUTO_REPLAY_RESULT ";
+
+  private static final ObjectMapper m_mapper = new ObjectMapper();
+
+  /** How long a single command ran for. */
+  public static class CommandTiming {
+    public String name;
+    public double startSec;
+    public double durationSec;
+    public boolean interrupted;
+  }
+
+  /** The outcome of one auto mode. */
+  public static class Result {
+    public String mode;
+    public String error;
+    public boolean completed;
+    public double completionSec;
+    public int scoredGamePieces;
+    public double poseErrorMeters = Double.NaN;
+    public double headingErrorDegrees = Double.NaN;
+    public List<CommandTiming> commands = new ArrayList<>();
+  }
+
+  private AutoReplayRunner() {}
+
+  public static void main(String[] args) {
+    final List<AutoMode> modes = new ArrayList<>();
+    Alliance alliance = Alliance.Blue;
+    double timeScale = DEFAULT_TIME_SCALE;
+    boolean child = false;
+    String output = null;
+
+    for (String arg : args) {
+      if (arg.equals("--child")) {
+        child = true;
+      } else if (arg.startsWith("--alliance=")) {
+        alliance = Alliance.valueOf(value(arg));
+      } else if (arg.startsWith("--time-scale=")) {
+        timeScale = Double.parseDouble(value(arg));
+      } else if (arg.startsWith("--output=")) {
+        output = value(arg);
+      } else if (arg.startsWith("--modes=")) {
+        for (String mode : value(arg).split(",")) {
+          if (mode.equalsIgnoreCase("all")) {
+            modes.addAll(List.of(AutoMode.values()));
+          } else if (!mode.isBlank()) {
+            modes.add(AutoMode.valueOf(mode.trim()));
+          }
+        }
+      } else {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+    if (modes.isEmpty()) {
+      modes.addAll(List.of(AutoMode.values()));
+    }
+
+    try {
+      if (child) {
+        final Result result = runMode(modes.get(0), alliance, timeScale);
+        System.out.println(RESULT_PREFIX + m_mapper.writeValueAsString(result));
+      } else {
+        final List<Result> results = runInChildren(modes, alliance, timeScale);
+        printReport(results);
+        if (output != null) {
+          m_mapper.writerWithDefaultPrettyPrinter().writeValue(new File(output), results);
+        }
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+    // The robot leaves non-daemon threads running
+    System.exit(0);
+  }
+
+  private static String value(String arg) {
+    return arg.substring(arg.indexOf('=') + 1);
+  }
+
+  /** Runs each mode in its own JVM, as many at once as there are cores. */
+  private static List<Result> runInChildren(
+      List<AutoMode> modes, Alliance alliance, double timeScale) throws InterruptedException {
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(modes.size(), Runtime.getRuntime().availableProcessors()));
+    final List<Future<Result>> futures = new ArrayList<>();
+    for (AutoMode mode : modes) {
+      futures.add(executor.submit(() -> runChild(mode, alliance, timeScale)));
+    }
+
+    final List<Result> results = new ArrayList<>();
+    for (int i = 0; i < modes.size(); i++) {
+      try {
+        results.add(futures.get(i).get());
+      } catch (ExecutionException e) {
+        final Result result = new Result();
+        result.mode = modes.get(i).name();
+        result.error = e.getCause().toString();
+        results.add(result);
+      }
+    }
+    executor.shutdown();
+    return results;
+  }
+
+  private static Result runChild(AutoMode mode, Alliance alliance, double timeScale)
+      throws IOException, InterruptedException {
+    final String java =
+        System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+    final Process process =
+        new ProcessBuilder(
+                java,
+                "-Djava.library.path=" + System.getProperty("java.library.path"),
+                "-cp",
+                System.getProperty("java.class.path"),
+                AutoReplayRunner.class.getName(),
+                "--child",
+                "--modes=" + mode.name(),
+                "--alliance=" + alliance.name(),
+                "--time-scale=" + timeScale)
+            .redirectErrorStream(true)
+            .start();
+
+    // Keep the end of the output to explain a failed run
+    final Deque<String> tail = new ArrayDeque<>();
+    Result result = null;
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(RESULT_PREFIX)) {
+          result = m_mapper.readValue(line.substring(RESULT_PREFIX.length()), Result.class);
+        } else {
+          tail.addLast(line);
+          if (tail.size() > 20) {
+            tail.removeFirst();
+          }
+        }
+      }
+    }
+
+    final int exitCode = process.waitFor();
+    if (result == null) {
+      result = new Result();
+      result.mode = mode.name();
+      result.error = "exited with code " + exitCode + ":\n" + String.join("\n", tail);
+    }
+    return result;
+  }
+
+  /** Runs one auto mode in this process. The HAL simulation can only be set up once per process. */
+  private static Result runMode(AutoMode mode, Alliance alliance, double timeScale) {
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    SimHooks.pauseTiming();
+
+    DriverStationSim.setAllianceStationId(
+        alliance == Alliance.Red ? AllianceStationID.Red1 : AllianceStationID.Blue1);
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+
+    final Robot robot = new Robot();
+    robot.getAutoManager().setModeOverride(mode);
+    robot.robotInit();
+    robot.simulationInit();
+    DriverStationJNI.observeUserProgramStarting();
+
+    // One disabled loop, so the alliance is known before the paths are flipped for it
+    robot.loopFunc();
+
+    final Result result = new Result();
+    result.mode = mode.name();
+    final CommandListener listener = new CommandListener(result.commands);
+    AutoCommandTracer.addListener(listener);
+
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+
+    final long wallStartNanos = System.nanoTime();
+    listener.m_startSec = Timer.getFPGATimestamp();
+    double elapsedSec = 0.0;
+    while (elapsedSec < AUTO_LENGTH_SEC) {
+      SimHooks.stepTiming(LOOP_PERIOD_SEC);
+      robot.loopFunc();
+      elapsedSec = Timer.getFPGATimestamp() - listener.m_startSec;
+
+      if (robot.getAutoManager().isCompleted()) {
+        result.completed = true;
+        break;
+      }
+
+      if (timeScale > 0.0) {
+        final long wakeNanos = wallStartNanos + (long) (elapsedSec / timeScale * 1e9);
+        LockSupport.parkNanos(wakeNanos - System.nanoTime());
+      }
+    }
+    AutoCommandTracer.removeListener(listener);
+
+    result.completionSec = elapsedSec;
+    result.scoredGamePieces = robot.getClaw().getSimScoredGamePieces();
+
+    final TrajectoryPair trajectory = AutoManager.getTrajectory(mode);
+    if (trajectory != null) {
+      final PathPlannerState end =
+          trajectory.getPathSegment(trajectory.getNumSegments() - 1).determine().getEndState();
+      final Pose2d pose = robot.getDrive().getPose();
+      result.poseErrorMeters = pose.getTranslation().getDistance(end.poseMeters.getTranslation());
+      result.headingErrorDegrees =
+          Math.abs(pose.getRotation().minus(end.holonomicRotation).getDegrees());
+    }
+    return result;
+  }
+
+  private static void printReport(List<Result> results) {
+    System.out.printf(
+        "%n%-16s %-9s %8s %7s %10s %12s%n",
+        "Mode", "Completed", "Time (s)", "Scored", "Pose (m)", "Heading (deg)");
+    for (Result result : results) {
+      if (result.error != null) {
+        System.out.printf("%-16s FAILED: %s%n", result.mode, result.error);
+        continue;
+      }
+      System.out.printf(
+          "%-16s %-9s %8.2f %7d %10.3f %12.1f%n",
+          result.mode,
+          result.completed ? "yes" : "no",
+          result.completionSec,
+          result.scoredGamePieces,
+          result.poseErrorMeters,
+          result.headingErrorDegrees);
+    }
+
+    for (Result result : results) {
+      if (result.commands.isEmpty()) {
+        continue;
+      }
+      System.out.printf("%n%s%n", result.mode);
+      for (CommandTiming command : result.commands) {
+        System.out.printf(
+            "  %8.2f %8.2f  %s%s%n",
+            command.startSec,
+            command.durationSec,
+            command.name,
+            command.interrupted ? " (timed out)" : "");
+      }
+    }
+  }
+
+  /** Records the start and duration of every command, in the order they finish. */
+  private static class CommandListener implements AutoCommandTracer.Listener {
+    private final List<CommandTiming> m_commands;
+    private final Map<AutoCommand, Double> m_startTimes = new IdentityHashMap<>();
+    private double m_startSec = 0.0;
+
+    private CommandListener(List<CommandTiming> commands) {
+      m_commands = commands;
+    }
+
+    @Override
+    public void started(AutoCommand command) {
+      m_startTimes.put(command, Timer.getFPGATimestamp() - m_startSec);
+    }
+
+    @Override
+    public void finished(AutoCommand command, boolean interrupted) {
+      final Double start = m_startTimes.remove(command);
+      if (start == null) {
+        return;
+      }
+
+      final CommandTiming timing = new CommandTiming();
+      timing.name = command.getClass().getSimpleName();
+      timing.startSec = start;
+      timing.durationSec = Timer.getFPGATimestamp() - m_startSec - start;
+      timing.interrupted = interrupted;
+      m_commands.add(timing);
+    }
+  }
+}
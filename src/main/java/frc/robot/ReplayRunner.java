@@ -0,0 +1,100 @@
+package frc.robot;
+
+import java.io.File;
+
+import frc.robot.replay.ReplayDiff;
+import frc.robot.replay.ReplayLog;
+import frc.robot.replay.ReplayLogReader;
+
+import edu.wpi.first.hal.DriverStationJNI;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+/**
+ * Replays a log recorded on the robot through the robot's code, as fast as it can, then compares
+ * the outputs with the ones that were recorded.
+ *
+ * <p>Run it with {@code ./gradlew replay -PreplayLog=logs/match.rlog}, optionally passing {@code
+ * -PreplayOutput=replayed.rlog}. The replayed log is written next to the original by default. The
+ * simulated clock is set to the time each cycle was recorded at, and the driver station and
+ * controllers to what they were, so a change to the code can be checked against a real match.
+ */
+public final class ReplayRunner {
+  private ReplayRunner() {}
+
+  public static void main(String[] args) {
+    File log = null;
+    File output = null;
+    for (String arg : args) {
+      if (arg.startsWith("--log=")) {
+        log = new File(value(arg));
+      } else if (arg.startsWith("--output=")) {
+        output = new File(value(arg));
+      } else {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+    if (log == null) {
+      throw new IllegalArgumentException("No log given, pass --log=<file>");
+    }
+    if (output == null) {
+      output = new File(log.getParentFile(), log.getName().replace(".rlog", "") + "_replay.rlog");
+    }
+
+    try {
+      run(log, output);
+    } catch (Exception e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+    // The robot leaves non-daemon threads running
+    System.exit(0);
+  }
+
+  private static String value(String arg) {
+    return arg.substring(arg.indexOf('=') + 1);
+  }
+
+  private static void run(File log, File output) throws Exception {
+    if (!HAL.initialize(500, 0)) {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    SimHooks.pauseTiming();
+    ReplayLog.startReplay(log, output);
+
+    final Robot robot = new Robot();
+    robot.robotInit();
+    DriverStationJNI.observeUserProgramStarting();
+
+    int cycles = 0;
+    long totalNanos = 0;
+    long maxNanos = 0;
+    double startSec = 0.0;
+    while (ReplayLog.hasNextCycle()) {
+      final long startNanos = System.nanoTime();
+      robot.loopFunc();
+      final long nanos = System.nanoTime() - startNanos;
+
+      cycles++;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+      if (cycles == 1) {
+        // The clock jumps to when the log started on the first cycle
+        startSec = Timer.getFPGATimestamp();
+      }
+    }
+    final double replayedSec = Timer.getFPGATimestamp() - startSec;
+    ReplayLog.finishReplay();
+
+    System.out.printf(
+        "Replayed %d cycles (%.1f s) in %.1f s, %.0fx real time%n",
+        cycles, replayedSec, totalNanos / 1e9, replayedSec / (totalNanos / 1e9));
+    System.out.printf(
+        "Loop time: mean %.3f ms, max %.3f ms%n",
+        cycles > 0 ? totalNanos / 1e6 / cycles : 0.0, maxNanos / 1e6);
+    System.out.println("Wrote " + output);
+
+    new ReplayDiff(new ReplayLogReader(log), new ReplayLogReader(output)).printReport();
+  }
+}
@@ -6,9 +6,18 @@ package frc.robot;
 
 import static frc.robot.shared.RobotInfo.*;
 
+import frc.robot.AutoManager.AutoMode;
+import frc.robot.auto.TrajectoryManager;
 import frc.robot.devices.GreyPigeon;
+import frc.robot.devices.SignalPlanner;
+import frc.robot.devices.SignalRegistry;
+import frc.robot.replay.ReplayLog;
+import frc.robot.shared.AutoCommandTracer;
 import frc.robot.shared.Conversions.MathHelpers;
 import frc.robot.shared.CrashTracker;
+import frc.robot.shared.LoopBudgetGovernor;
+import frc.robot.shared.LoopProfiler;
+import frc.robot.subsystems.CANBusMonitor;
 import frc.robot.subsystems.Claw;
 import frc.robot.subsystems.Claw.IntakeState;
 import frc.robot.subsystems.Drive;
@@ -23,15 +32,20 @@ import frc.robot.subsystems.Wrist.WristPreset;
 import frc.robot.subsystems.Wrist.WristState;
 import frc.robot.subsystems.candle.CANdleManager;
 import frc.robot.subsystems.candle.CANdleManager.LightState;
+import frc.robot.telemetry.AutoCommandLog;
+import frc.robot.telemetry.DataLogger;
+import frc.robot.telemetry.Telemetry;
 
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.XboxController;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 
@@ -50,41 +64,74 @@ public class Robot extends TimedRobot {
   private final GreyPigeon m_pigeon = new GreyPigeon();
   private final Elevator m_elevator = new Elevator();
   private final Wrist m_wrist = new Wrist(m_pigeon);
+
+  @Getter(AccessLevel.PACKAGE)
   private final Claw m_claw = new Claw();
+
+  @Getter(AccessLevel.PACKAGE)
   private final Drive m_drive = new Drive(m_pigeon);
+
   private final CANdleManager m_candleManager = new CANdleManager();
   private final Superstructure m_superstructure = new Superstructure(m_elevator, m_wrist, m_claw);
+  private final CANBusMonitor m_canBusMonitor = new CANBusMonitor(m_candleManager);
+
+  @Getter(AccessLevel.PACKAGE)
   private final AutoManager m_autoManager = new AutoManager(m_drive, m_superstructure);
+
   private final XboxController m_driverStick = new XboxController(0);
   private final XboxController m_operatorStick = new XboxController(1);
 
+  // Shown on the driver station dashboard, on the field too, so it skips the telemetry pipeline
+  private final StringPublisher m_selectedAutoPublisher =
+      NetworkTableInstance.getDefault()
+          .getTable("SmartDashboard")
+          .getStringTopic("DB/String 0")
+          .publish();
+  private AutoMode m_publishedAutoMode = null;
+
+  private final LoopProfiler m_loopProfiler =
+      new LoopProfiler(
+          m_elevator,
+          m_wrist,
+          m_claw,
+          m_drive,
+          m_candleManager,
+          m_superstructure,
+          m_canBusMonitor);
+  private final LoopBudgetGovernor m_loopGovernor =
+      new LoopBudgetGovernor(
+          m_elevator,
+          m_wrist,
+          m_claw,
+          m_drive,
+          m_candleManager,
+          m_superstructure,
+          m_canBusMonitor);
+
   private final SlewRateLimiter m_rotLimiter = new SlewRateLimiter(3);
 
   private void dashboardUpdateSubsystems() {
-    m_elevator.dashboardUpdate();
-    m_wrist.dashboardUpdate();
-    m_claw.dashboardUpdate();
-    m_drive.dashboardUpdate();
-    m_candleManager.dashboardUpdate();
-    m_superstructure.dashboardUpdate();
+    m_loopProfiler.dashboardUpdate(m_elevator);
+    m_loopProfiler.dashboardUpdate(m_wrist);
+    m_loopProfiler.dashboardUpdate(m_claw);
+    m_loopProfiler.dashboardUpdate(m_drive);
+    m_loopProfiler.dashboardUpdate(m_candleManager);
+    m_loopProfiler.dashboardUpdate(m_superstructure);
+    m_loopProfiler.dashboardUpdate(m_canBusMonitor);
   }
 
+  /** Update debug dashboards. The governor sheds these when the loop is running long. */
   private void debugDashboardUpdateSubsystems() {
-    m_elevator.debugDashboardUpdate();
-    m_wrist.debugDashboardUpdate();
-    m_claw.debugDashboardUpdate();
-    m_drive.debugDashboardUpdate();
-    m_candleManager.debugDashboardUpdate();
-    m_superstructure.debugDashboardUpdate();
+    m_loopGovernor.debugDashboardUpdate(m_loopProfiler);
   }
 
   /** Update subsystems. Called me when enabled. */
   private void updateSubsystems() {
-    m_elevator.update();
-    m_wrist.update();
-    m_claw.update();
-    m_drive.update();
-    m_superstructure.update();
+    m_loopProfiler.update(m_elevator);
+    m_loopProfiler.update(m_wrist);
+    m_loopProfiler.update(m_claw);
+    m_loopProfiler.update(m_drive);
+    m_loopProfiler.update(m_superstructure);
   }
 
   /** Reset subsystems. Called me when initializing. */
@@ -95,6 +142,24 @@ public class Robot extends TimedRobot {
     m_drive.reset();
     m_candleManager.reset();
     m_superstructure.reset();
+    m_canBusMonitor.reset();
+  }
+
+  /**
+   * Runs one robot cycle. Overridden to mark the cycle start for the loop budget governor, to
+   * refresh every CAN signal and sample every input before any of the periodic functions read them,
+   * and to record the cycle for replay.
+   */
+  @Override
+  protected void loopFunc() {
+    m_loopGovernor.startCycle();
+    if (!ReplayLog.isReplaying()) {
+      SignalRegistry.refreshAll();
+    }
+    ReplayLog.beginCycle();
+    m_pigeon.sample();
+    super.loopFunc();
+    ReplayLog.endCycle();
   }
 
   /**
@@ -105,6 +170,11 @@ public class Robot extends TimedRobot {
   public void robotInit() {
     try {
       CrashTracker.logRobotInit();
+      Telemetry.start();
+      DataLogger.start();
+      AutoCommandTracer.addListener(new AutoCommandLog());
+      ReplayLog.startRecording();
+      SignalPlanner.report();
       this.resetSubsystems();
     } catch (Exception e) {
       CrashTracker.logThrowableCrash(e);
@@ -120,21 +190,26 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotPeriodic() {
+    m_loopProfiler.startLoop();
     try {
       // Subsystems
-      m_candleManager.update();
+      m_loopProfiler.update(m_canBusMonitor);
+      m_loopProfiler.update(m_candleManager);
       if (isEnabled()) {
         updateSubsystems();
       }
 
       dashboardUpdateSubsystems();
 
-      if (!DriverStation.isFMSAttached()) {
-        debugDashboardUpdateSubsystems();
-      } else {
+      // Debug values are always recorded to the data log, and published at their tier's rate
+      debugDashboardUpdateSubsystems();
+      Telemetry.setMode(Telemetry.Mode.fromDriverStation());
+      if (DriverStation.isFMSAttached()) {
         CrashTracker.logFMSData();
       }
 
+      Telemetry.commit();
+
       m_calculatedAlliance = DriverStation.getAlliance();
 
       // CANdle
@@ -145,6 +220,8 @@ public class Robot extends TimedRobot {
     } catch (Exception e) {
       CrashTracker.logThrowableCrash(e);
     }
+    m_loopProfiler.endLoop();
+    m_loopGovernor.endCycle();
   }
 
   /**
@@ -160,6 +237,10 @@ public class Robot extends TimedRobot {
   @Override
   public void autonomousInit() {
     try {
+      if (DriverStation.isFMSAttached()) {
+        DataLogger.startMatch();
+        ReplayLog.startMatch();
+      }
       CrashTracker.logAutoInit();
       m_autoManager.init();
     } catch (Exception e) {
@@ -356,6 +437,7 @@ public class Robot extends TimedRobot {
   public void disabledInit() {
     try {
       CrashTracker.logDisabledInit();
+      TrajectoryManager.startLoading(AutoManager.getTrajectory(m_autoManager.getSelectedMode()));
     } catch (Exception e) {
       CrashTracker.logThrowableCrash(e);
     }
@@ -372,8 +454,13 @@ public class Robot extends TimedRobot {
         m_autoManager.decrement();
       }
 
-      SmartDashboard.putString("DB/String 0", m_autoManager.getSelectedMode().toString());
-
+      final AutoMode selectedMode = m_autoManager.getSelectedMode();
+      if (selectedMode != m_publishedAutoMode) {
+        m_selectedAutoPublisher.set(selectedMode.toString());
+        m_publishedAutoMode = selectedMode;
+        TrajectoryManager.prioritize(AutoManager.getTrajectory(selectedMode));
+      }
+      TrajectoryManager.updateAlliance(m_calculatedAlliance);
     } catch (Exception e) {
       CrashTracker.logThrowableCrash(e);
     }
@@ -401,7 +488,15 @@ public class Robot extends TimedRobot {
   /** This function is called once when the robot is first started up. */
   @Override
   public void simulationInit() {
+    // While replaying, the inputs come from the log rather than the physics models
+    if (ReplayLog.isReplaying()) {
+      return;
+    }
     try {
+      m_elevator.simulationInit();
+      m_wrist.simulationInit();
+      m_claw.simulationInit();
+      m_drive.simulationInit();
     } catch (Exception e) {
       CrashTracker.logThrowableCrash(e);
     }
@@ -410,7 +505,15 @@ public class Robot extends TimedRobot {
   /** This function is called periodically whilst in simulation. */
   @Override
   public void simulationPeriodic() {
+    if (ReplayLog.isReplaying()) {
+      return;
+    }
     try {
+      final double dtSec = getPeriod();
+      m_elevator.simulationUpdate(dtSec);
+      m_wrist.simulationUpdate(dtSec);
+      m_claw.simulationUpdate(dtSec);
+      m_drive.simulationUpdate(dtSec);
     } catch (Exception e) {
       CrashTracker.logThrowableCrash(e);
     }
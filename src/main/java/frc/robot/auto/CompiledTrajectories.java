@@ -0,0 +1,296 @@
+package frc.robot.auto;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import frc.robot.auto.TrajectoryManager.TrajectoryPair;
+import frc.robot.telemetry.DataLogger;
+
+import com.pathplanner.lib.PathConstraints;
+import com.pathplanner.lib.PathPlannerTrajectory;
+import com.pathplanner.lib.PathPlannerTrajectory.EventMarker;
+import com.pathplanner.lib.PathPlannerTrajectory.PathPlannerState;
+import com.pathplanner.lib.PathPlannerTrajectory.StopEvent;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Trajectories generated at build time by {@link TrajectoryCompiler}, so the robot doesn't have to
+ * parse the PathPlanner files and time parameterize them on boot.
+ *
+ * <p>The file is memory-mapped and made of big-endian fields:
+ *
+ * <pre>
+ * int magic, int version, int path count
+ * per path:  string name, byte[32] hash, int segment count
+ * per segment:  int state count, int marker count,
+ *               double[state count * STATE_STRIDE] states,
+ *               per marker: double time, x, y, waypoint position, int name count, string names
+ * </pre>
+ *
+ * Strings are an int length followed by UTF-8. Each state is time, x, y, heading, velocity,
+ * acceleration, curvature, angular velocity, holonomic rotation and holonomic angular velocity,
+ * with angles in radians. A path's hash covers its PathPlanner file, how it's loaded and the
+ * PathPlannerLib version that generates it, so a path that changed since the file was built, or
+ * would generate differently, is loaded from PathPlanner instead.
+ */
+public final class CompiledTrajectories {
+  /** Where the file goes, relative to the deploy directory. */
+  public static final String FILE_NAME = "compiled/trajectories.bin";
+
+  private static final int MAGIC = 0x54524a43; // "TRJC"
+  private static final int VERSION = 1;
+  /** The PathPlannerLib that generates the trajectories. Keep it the same as its vendordep. */
+  static final String PATHPLANNER_VERSION = "2023.4.4";
+  private static final int HASH_LENGTH = 32;
+  static final int STATE_STRIDE = 10;
+
+  private static final Object m_lock = new Object();
+  private static ByteBuffer m_buffer = null;
+  /** Offset of each path's hash in the file, by name. */
+  private static Map<String, Integer> m_paths = null;
+
+  private CompiledTrajectories() {}
+
+  /**
+   * Returns a path's trajectories from the compiled file.
+   *
+   * @param pair The path.
+   * @return The trajectories, or null if the file is missing, doesn't have the path or has a stale
+   *     copy of it.
+   */
+  static List<PathPlannerTrajectory> load(TrajectoryPair pair) {
+    final ByteBuffer buffer;
+    final Integer offset;
+    synchronized (m_lock) {
+      if (m_paths == null) {
+        open(new File(Filesystem.getDeployDirectory(), FILE_NAME));
+      }
+      offset = m_paths.get(pair.getName());
+      if (offset == null) {
+        return null;
+      }
+      // Each load gets its own position, so the loader thread and robot loop don't collide
+      buffer = m_buffer.duplicate();
+    }
+
+    final byte[] hash = new byte[HASH_LENGTH];
+    buffer.position(offset);
+    buffer.get(hash);
+    try {
+      if (!Arrays.equals(hash, hash(pair))) {
+        DataLogger.logMarker("Compiled trajectory " + pair.getName() + " is stale");
+        return null;
+      }
+    } catch (IOException e) {
+      return null;
+    }
+
+    final int segments = buffer.getInt();
+    final List<PathPlannerTrajectory> trajectories = new ArrayList<>(segments);
+    for (int i = 0; i < segments; i++) {
+      trajectories.add(readSegment(buffer));
+    }
+    return trajectories;
+  }
+
+  private static void open(File file) {
+    m_paths = new HashMap<>();
+    if (!file.isFile()) {
+      return;
+    }
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        DataLogger.logMarker("Ignoring compiled trajectories from another version");
+        return;
+      }
+
+      // Index the paths so each can be read when it's asked for
+      final int paths = buffer.getInt();
+      for (int i = 0; i < paths; i++) {
+        final String name = readString(buffer);
+        m_paths.put(name, buffer.position());
+        buffer.position(buffer.position() + HASH_LENGTH);
+        final int segments = buffer.getInt();
+        for (int j = 0; j < segments; j++) {
+          skipSegment(buffer);
+        }
+      }
+      m_buffer = buffer;
+    } catch (IOException | RuntimeException e) {
+      DataLogger.logMarker("Couldn't read compiled trajectories: " + e);
+      m_paths.clear();
+    }
+  }
+
+  private static PathPlannerTrajectory readSegment(ByteBuffer buffer) {
+    final int stateCount = buffer.getInt();
+    final int markerCount = buffer.getInt();
+
+    final List<Trajectory.State> states = new ArrayList<>(stateCount);
+    for (int i = 0; i < stateCount; i++) {
+      final PathPlannerState state = new PathPlannerState();
+      state.timeSeconds = buffer.getDouble();
+      final double x = buffer.getDouble();
+      final double y = buffer.getDouble();
+      state.poseMeters = new Pose2d(x, y, new Rotation2d(buffer.getDouble()));
+      state.velocityMetersPerSecond = buffer.getDouble();
+      state.accelerationMetersPerSecondSq = buffer.getDouble();
+      state.curvatureRadPerMeter = buffer.getDouble();
+      state.angularVelocityRadPerSec = buffer.getDouble();
+      state.holonomicRotation = new Rotation2d(buffer.getDouble());
+      state.holonomicAngularVelocityRadPerSec = buffer.getDouble();
+      states.add(state);
+    }
+
+    final List<EventMarker> markers = new ArrayList<>(markerCount);
+    for (int i = 0; i < markerCount; i++) {
+      final double timeSeconds = buffer.getDouble();
+      final Translation2d position = new Translation2d(buffer.getDouble(), buffer.getDouble());
+      // The waypoint position is only used while generating, where the time comes from
+      buffer.getDouble();
+      final int nameCount = buffer.getInt();
+      final List<String> names = new ArrayList<>(nameCount);
+      for (int j = 0; j < nameCount; j++) {
+        names.add(readString(buffer));
+      }
+      final EventMarker marker = EventMarker.fromTime(names, timeSeconds);
+      marker.positionMeters = position;
+      markers.add(marker);
+    }
+
+    return new PathPlannerTrajectory(states, markers, new StopEvent(), new StopEvent(), true);
+  }
+
+  private static void skipSegment(ByteBuffer buffer) {
+    final int stateCount = buffer.getInt();
+    final int markerCount = buffer.getInt();
+    buffer.position(buffer.position() + stateCount * STATE_STRIDE * Double.BYTES);
+    for (int i = 0; i < markerCount; i++) {
+      buffer.position(buffer.position() + 4 * Double.BYTES);
+      final int nameCount = buffer.getInt();
+      for (int j = 0; j < nameCount; j++) {
+        readString(buffer);
+      }
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    final byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the compiled file.
+   *
+   * @param file The file to write.
+   * @param trajectories Each path's trajectories, as loaded from PathPlanner.
+   * @throws IOException If the file or a PathPlanner file can't be read or written.
+   */
+  static void write(File file, Map<TrajectoryPair, List<PathPlannerTrajectory>> trajectories)
+      throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(trajectories.size());
+      for (Map.Entry<TrajectoryPair, List<PathPlannerTrajectory>> entry : trajectories.entrySet()) {
+        writeString(out, entry.getKey().getName());
+        out.write(hash(entry.getKey()));
+        out.writeInt(entry.getValue().size());
+        for (PathPlannerTrajectory trajectory : entry.getValue()) {
+          writeSegment(out, trajectory);
+        }
+      }
+    }
+  }
+
+  private static void writeSegment(DataOutputStream out, PathPlannerTrajectory trajectory)
+      throws IOException {
+    final List<Trajectory.State> states = trajectory.getStates();
+    final List<EventMarker> markers = trajectory.getMarkers();
+    out.writeInt(states.size());
+    out.writeInt(markers.size());
+
+    for (Trajectory.State s : states) {
+      final PathPlannerState state = (PathPlannerState) s;
+      out.writeDouble(state.timeSeconds);
+      out.writeDouble(state.poseMeters.getX());
+      out.writeDouble(state.poseMeters.getY());
+      out.writeDouble(state.poseMeters.getRotation().getRadians());
+      out.writeDouble(state.velocityMetersPerSecond);
+      out.writeDouble(state.accelerationMetersPerSecondSq);
+      out.writeDouble(state.curvatureRadPerMeter);
+      out.writeDouble(state.angularVelocityRadPerSec);
+      out.writeDouble(state.holonomicRotation.getRadians());
+      out.writeDouble(state.holonomicAngularVelocityRadPerSec);
+    }
+
+    for (EventMarker marker : markers) {
+      out.writeDouble(marker.timeSeconds);
+      out.writeDouble(marker.positionMeters.getX());
+      out.writeDouble(marker.positionMeters.getY());
+      out.writeDouble(marker.waypointRelativePos);
+      out.writeInt(marker.names.size());
+      for (String name : marker.names) {
+        writeString(out, name);
+      }
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Hashes everything a path's trajectories are generated from: its PathPlanner file, whether it's
+   * reversed, its constraints and the PathPlannerLib version.
+   */
+  private static byte[] hash(TrajectoryPair pair) throws IOException {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+
+    final ByteBuffer settings = ByteBuffer.allocate(8 + 16 * pair.getConstraints().size());
+    settings.putInt(VERSION);
+    settings.putInt(pair.isReversed() ? 1 : 0);
+    for (PathConstraints constraints : pair.getConstraints()) {
+      settings.putDouble(constraints.maxVelocity);
+      settings.putDouble(constraints.maxAcceleration);
+    }
+    digest.update(settings.array());
+    digest.update(PATHPLANNER_VERSION.getBytes(StandardCharsets.UTF_8));
+    digest.update(pair.getFileName().getBytes(StandardCharsets.UTF_8));
+    digest.update(
+        Files.readAllBytes(
+            new File(Filesystem.getDeployDirectory(), "pathplanner/" + pair.getFileName())
+                .toPath()));
+    return digest.digest();
+  }
+}
@@ -0,0 +1,228 @@
+package frc.robot.auto;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import com.pathplanner.lib.PathPlannerTrajectory;
+import com.pathplanner.lib.PathPlannerTrajectory.EventMarker;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+
+/**
+ * A path's event markers, sorted by when they fire, so a command following the path can fire every
+ * marker that's due each loop without searching.
+ *
+ * <p>Markers fire either by time since the path started, or by how far the robot is along the
+ * path. Going by distance, a robot running behind the trajectory doesn't start an action before it
+ * gets to the spot. Markers due at the same point fire in the order they're in the path, and a
+ * marker's names fire in the order they're listed.
+ */
+public final class EventTimeline {
+  /** How far ahead of the last match to look for the robot, well past how far it moves a loop. */
+  private static final double SEARCH_DISTANCE_METERS = 1.0;
+
+  /** When each event fires, in seconds or meters along the path, sorted. */
+  private final double[] m_triggers;
+  /** The slot of each event's command. */
+  private final int[] m_slots;
+
+  /** The path as points, with the distance along the path to each. Null when firing by time. */
+  private final double[] m_x;
+  private final double[] m_y;
+  private final double[] m_distances;
+
+  private int m_next = 0;
+  /** The segment the robot was last matched to, which only moves forward. */
+  private int m_segment = 0;
+  private double m_distanceAlong = 0.0;
+
+  private EventTimeline(
+      double[] triggers, int[] slots, double[] x, double[] y, double[] distances) {
+    m_triggers = triggers;
+    m_slots = slots;
+    m_x = x;
+    m_y = y;
+    m_distances = distances;
+  }
+
+  /**
+   * Creates a timeline that fires markers by time since the path started.
+   *
+   * @param markers The path's markers.
+   * @param slots Gives the slot of the command for an event name, or -1 if nothing runs for it.
+   * @return The timeline.
+   */
+  public static EventTimeline byTime(List<EventMarker> markers, ToIntFunction<String> slots) {
+    final int count = countEvents(markers, slots);
+    final double[] triggers = new double[count];
+    final int[] eventSlots = new int[count];
+
+    int event = 0;
+    for (EventMarker marker : markers) {
+      for (String name : marker.names) {
+        final int slot = slots.applyAsInt(name);
+        if (slot >= 0) {
+          triggers[event] = marker.timeSeconds;
+          eventSlots[event] = slot;
+          event++;
+        }
+      }
+    }
+
+    sort(triggers, eventSlots);
+    return new EventTimeline(triggers, eventSlots, null, null, null);
+  }
+
+  /**
+   * Creates a timeline that fires a path's markers by how far the robot is along the path.
+   *
+   * @param trajectory The path, with its markers.
+   * @param slots Gives the slot of the command for an event name, or -1 if nothing runs for it.
+   * @return The timeline.
+   */
+  public static EventTimeline byDistance(
+      PathPlannerTrajectory trajectory, ToIntFunction<String> slots) {
+    final List<Trajectory.State> states = trajectory.getStates();
+    final double[] times = new double[states.size()];
+    final double[] x = new double[states.size()];
+    final double[] y = new double[states.size()];
+    final double[] distances = new double[states.size()];
+    for (int i = 0; i < states.size(); i++) {
+      final Trajectory.State state = states.get(i);
+      times[i] = state.timeSeconds;
+      x[i] = state.poseMeters.getX();
+      y[i] = state.poseMeters.getY();
+      if (i > 0) {
+        distances[i] = distances[i - 1] + Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]);
+      }
+    }
+
+    final List<EventMarker> markers = trajectory.getMarkers();
+    final int count = countEvents(markers, slots);
+    final double[] triggers = new double[count];
+    final int[] eventSlots = new int[count];
+
+    int event = 0;
+    for (EventMarker marker : markers) {
+      // A marker's time is where PathPlanner put it along the path, so it's exact even where the
+      // path crosses itself
+      final double distance = distanceAt(times, distances, marker.timeSeconds);
+      for (String name : marker.names) {
+        final int slot = slots.applyAsInt(name);
+        if (slot >= 0) {
+          triggers[event] = distance;
+          eventSlots[event] = slot;
+          event++;
+        }
+      }
+    }
+
+    sort(triggers, eventSlots);
+    return new EventTimeline(triggers, eventSlots, x, y, distances);
+  }
+
+  private static int countEvents(List<EventMarker> markers, ToIntFunction<String> slots) {
+    int count = 0;
+    for (EventMarker marker : markers) {
+      for (String name : marker.names) {
+        if (slots.applyAsInt(name) >= 0) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static double distanceAt(double[] times, double[] distances, double timeSeconds) {
+    if (timeSeconds <= times[0]) {
+      return 0.0;
+    }
+    for (int i = 1; i < times.length; i++) {
+      if (times[i] >= timeSeconds) {
+        final double span = times[i] - times[i - 1];
+        final double t = span > 0.0 ? (timeSeconds - times[i - 1]) / span : 1.0;
+        return distances[i - 1] + (distances[i] - distances[i - 1]) * t;
+      }
+    }
+    return distances[distances.length - 1];
+  }
+
+  /** Insertion sort, which is stable, so events due together stay in the order they were added. */
+  private static void sort(double[] triggers, int[] slots) {
+    for (int i = 1; i < triggers.length; i++) {
+      final double trigger = triggers[i];
+      final int slot = slots[i];
+      int j = i - 1;
+      while (j >= 0 && triggers[j] > trigger) {
+        triggers[j + 1] = triggers[j];
+        slots[j + 1] = slots[j];
+        j--;
+      }
+      triggers[j + 1] = trigger;
+      slots[j + 1] = slot;
+    }
+  }
+
+  /** Starts the timeline over, for when the path starts. */
+  public void reset() {
+    m_next = 0;
+    m_segment = 0;
+    m_distanceAlong = 0.0;
+  }
+
+  public boolean isByDistance() {
+    return m_distances != null;
+  }
+
+  /**
+   * Returns the slot of the next event that's due and moves past it. Call until it returns -1 to
+   * fire every event that's due.
+   *
+   * @param progress The time since the path started, or the distance along it when firing by
+   *     distance.
+   * @return The slot of the event's command, or -1 if no more events are due.
+   */
+  public int nextDue(double progress) {
+    if (m_next < m_triggers.length && m_triggers[m_next] <= progress) {
+      return m_slots[m_next++];
+    }
+    return -1;
+  }
+
+  /**
+   * Returns how far the robot is along the path, from the nearest point on the path a little ahead
+   * of where it was last. It never goes backwards.
+   *
+   * @param position The robot's position on the field.
+   * @return The distance along the path, in meters.
+   */
+  public double getDistanceAlong(Translation2d position) {
+    final double px = position.getX();
+    final double py = position.getY();
+    final double searchEnd = m_distances[m_segment] + SEARCH_DISTANCE_METERS;
+
+    double bestDistanceSq = Double.POSITIVE_INFINITY;
+    double bestAlong = m_distanceAlong;
+    int bestSegment = m_segment;
+    for (int i = m_segment; i < m_x.length - 1 && m_distances[i] <= searchEnd; i++) {
+      final double dx = m_x[i + 1] - m_x[i];
+      final double dy = m_y[i + 1] - m_y[i];
+      final double lengthSq = dx * dx + dy * dy;
+      double t = lengthSq > 0.0 ? ((px - m_x[i]) * dx + (py - m_y[i]) * dy) / lengthSq : 0.0;
+      t = Math.max(0.0, Math.min(1.0, t));
+
+      final double offsetX = m_x[i] + dx * t - px;
+      final double offsetY = m_y[i] + dy * t - py;
+      final double distanceSq = offsetX * offsetX + offsetY * offsetY;
+      if (distanceSq < bestDistanceSq) {
+        bestDistanceSq = distanceSq;
+        bestAlong = m_distances[i] + (m_distances[i + 1] - m_distances[i]) * t;
+        bestSegment = i;
+      }
+    }
+
+    m_segment = bestSegment;
+    m_distanceAlong = Math.max(m_distanceAlong, bestAlong);
+    return m_distanceAlong;
+  }
+}
@@ -0,0 +1,60 @@
+package frc.robot.auto;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import frc.robot.auto.TrajectoryManager.TrajectoryPair;
+
+import com.pathplanner.lib.PathPlannerTrajectory;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Generates every path in the {@link TrajectoryManager} and writes them to the {@link
+ * CompiledTrajectories} file. Run by {@code ./gradlew compileTrajectories}, which runs before
+ * deploying and simulating.
+ */
+public final class TrajectoryCompiler {
+  private TrajectoryCompiler() {}
+
+  public static void main(String[] args) {
+    File output = new File(Filesystem.getDeployDirectory(), CompiledTrajectories.FILE_NAME);
+    for (String arg : args) {
+      if (arg.startsWith("--output=")) {
+        output = new File(arg.substring(arg.indexOf('=') + 1));
+      } else {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+
+    try {
+      final Map<TrajectoryPair, List<PathPlannerTrajectory>> trajectories = new LinkedHashMap<>();
+      int states = 0;
+      for (TrajectoryPair pair : TrajectoryManager.getTrajectories()) {
+        final List<PathPlannerTrajectory> segments = pair.generate();
+        for (PathPlannerTrajectory segment : segments) {
+          // Nothing uses them, so they aren't in the file
+          if (!segment.getStartStopEvent().names.isEmpty()
+              || !segment.getEndStopEvent().names.isEmpty()) {
+            throw new IllegalStateException(
+                pair.getName() + " has stop events, which can't be compiled");
+          }
+          states += segment.getStates().size();
+        }
+        trajectories.put(pair, segments);
+      }
+
+      if (!output.getParentFile().isDirectory() && !output.getParentFile().mkdirs()) {
+        throw new IllegalStateException("Couldn't create " + output.getParentFile());
+      }
+      CompiledTrajectories.write(output, trajectories);
+      System.out.printf(
+          "Compiled %d paths, %d states, %d bytes to %s%n",
+          trajectories.size(), states, output.length(), output);
+    } catch (Exception e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+}
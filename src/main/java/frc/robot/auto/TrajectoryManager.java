@@ -1,15 +1,42 @@
 package frc.robot.auto;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import frc.robot.Robot;
+import frc.robot.telemetry.DataLogger;
 
 import com.pathplanner.lib.PathConstraints;
 import com.pathplanner.lib.PathPlanner;
 import com.pathplanner.lib.PathPlannerTrajectory;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import lombok.Getter;
+import lombok.experimental.Accessors;
 
+/**
+ * The paths used by the auto modes. Paths aren't loaded until they're needed: {@link
+ * #startLoading} loads them on a background thread while disabled, selected mode first, and
+ * getting a trajectory that isn't loaded yet loads it on the spot.
+ *
+ * <p>Paths are drawn for the blue alliance. Once the alliance has settled on red, the background
+ * thread also mirrors every path for red, so starting a path is only a lookup.
+ */
 public class TrajectoryManager {
+  /** How many loops the alliance has to stay the same before paths are mirrored for it. */
+  private static final int ALLIANCE_STABLE_LOOPS = 50;
+
+  /** Every path, in the order they're declared. Must come before them. */
+  private static final List<TrajectoryPair> m_trajectories = new ArrayList<>();
+
+  private static volatile TrajectoryPair m_priority = null;
+  private static Thread m_loaderThread = null;
+
+  /** The alliance paths are prepared for, once it's been stable. */
+  private static volatile Alliance m_alliance = Alliance.Invalid;
+  private static Alliance m_lastAlliance = Alliance.Invalid;
+  private static int m_allianceLoops = 0;
 
   public static final TrajectoryPair Flat1Charge =
       new TrajectoryPair("Flat1Charge", true, new PathConstraints(4, 3));
@@ -44,9 +71,109 @@ public class TrajectoryManager {
   public static final TrajectoryPair Flat3 =
       new TrajectoryPair("Flat3", true, false, new PathConstraints(4, 3));
 
+  /**
+   * Starts loading every path on a background thread, if it isn't already running.
+   *
+   * @param first The path to load first, or null.
+   */
+  public static synchronized void startLoading(TrajectoryPair first) {
+    prioritize(first);
+    // The thread stops once everything is ready for the alliance, until the alliance changes
+    if (m_loaderThread != null) {
+      return;
+    }
+
+    m_loaderThread = new Thread(TrajectoryManager::loadLoop, "Trajectory Loader");
+    m_loaderThread.setDaemon(true);
+    m_loaderThread.setPriority(Thread.MIN_PRIORITY);
+    m_loaderThread.start();
+  }
+
+  /**
+   * Loads the given path next, once the one being loaded is done.
+   *
+   * @param pair The path, or null.
+   */
+  public static void prioritize(TrajectoryPair pair) {
+    m_priority = pair;
+  }
+
+  /**
+   * Prepares the paths for the alliance once it's stayed the same long enough. Called every loop
+   * while disabled, since the alliance can come and go before a match.
+   *
+   * @param alliance The robot's alliance.
+   */
+  public static void updateAlliance(Alliance alliance) {
+    if (alliance == null || alliance != m_lastAlliance) {
+      m_lastAlliance = alliance;
+      m_allianceLoops = 0;
+      return;
+    }
+
+    m_allianceLoops++;
+    if (m_allianceLoops == ALLIANCE_STABLE_LOOPS && alliance != m_alliance) {
+      m_alliance = alliance;
+      startLoading(m_priority);
+    }
+  }
+
+  /**
+   * Returns every path, in the order they're declared.
+   *
+   * @return The paths.
+   */
+  public static List<TrajectoryPair> getTrajectories() {
+    return Collections.unmodifiableList(m_trajectories);
+  }
+
+  private static void loadLoop() {
+    while (true) {
+      final Alliance alliance = m_alliance;
+      final TrajectoryPair next;
+      synchronized (TrajectoryManager.class) {
+        next = nextToPrepare(alliance);
+        if (next == null && alliance == m_alliance) {
+          m_loaderThread = null;
+          return;
+        }
+      }
+      if (next != null) {
+        next.prepare(alliance);
+      }
+    }
+  }
+
+  private static TrajectoryPair nextToPrepare(Alliance alliance) {
+    final TrajectoryPair priority = m_priority;
+    if (priority != null && !priority.isPrepared(alliance)) {
+      return priority;
+    }
+    for (TrajectoryPair pair : m_trajectories) {
+      if (!pair.isPrepared(alliance)) {
+        return pair;
+      }
+    }
+    return null;
+  }
+
+  @Accessors(prefix = "m_")
   public static class TrajectoryPair {
+    @Getter private final String m_name;
+    private final boolean m_group;
+    private final boolean m_reversed;
+    private final PathConstraints m_constraint;
+    private final PathConstraints[] m_constraints;
 
-    private final List<PathPlannerTrajectory> m_trajectory;
+    private volatile List<PathPlannerTrajectory> m_trajectory = null;
+    /** The trajectories mirrored for the red alliance, or null until they're needed. */
+    private volatile List<PathPlannerTrajectory> m_redTrajectory = null;
+    /** How long loading took, or NaN if it hasn't been loaded. */
+    @Getter private volatile double m_loadTimeMs = Double.NaN;
+    /** Whether it was loaded by the background thread, rather than waited on. */
+    @Getter private volatile boolean m_loadedInBackground = false;
+    /** Whether it was loaded from the {@link CompiledTrajectories} rather than generated. */
+    @Getter private volatile boolean m_compiled = false;
 
     public TrajectoryPair(String basename, boolean reversed, PathConstraints constraints) {
       this(basename, false, reversed, constraints);
@@ -58,27 +185,143 @@ public class TrajectoryManager {
         boolean reversed,
         PathConstraints constraint,
         PathConstraints... constraints) {
+      m_name = basename;
+      m_group = group;
+      m_reversed = reversed;
+      m_constraint = constraint;
+      m_constraints = constraints;
+      m_trajectories.add(this);
+    }
+
+    public boolean isLoaded() {
+      return m_trajectory != null;
+    }
+
+    /**
+     * Returns whether the path is loaded and ready to drive for the given alliance.
+     *
+     * @param alliance The alliance.
+     * @return True if the path can be started without any work.
+     */
+    public boolean isPrepared(Alliance alliance) {
+      return isLoaded() && (alliance != Alliance.Red || m_redTrajectory != null);
+    }
+
+    /** Loads the path and mirrors it for the alliance, on the background thread. */
+    private void prepare(Alliance alliance) {
+      load(true);
+      if (alliance == Alliance.Red) {
+        mirror();
+      }
+    }
+
+    /** Mirrors the path for the red alliance, or waits for the background thread to. */
+    private synchronized List<PathPlannerTrajectory> mirror() {
+      if (m_redTrajectory != null) {
+        return m_redTrajectory;
+      }
+
+      final List<PathPlannerTrajectory> trajectory =
+          m_trajectory != null ? m_trajectory : load(false);
+      final List<PathPlannerTrajectory> redTrajectory = new ArrayList<>(trajectory.size());
+      for (PathPlannerTrajectory segment : trajectory) {
+        redTrajectory.add(
+            PathPlannerTrajectory.transformTrajectoryForAlliance(segment, Alliance.Red));
+      }
+      m_redTrajectory = Collections.unmodifiableList(redTrajectory);
+      return m_redTrajectory;
+    }
+
+    boolean isReversed() {
+      return m_reversed;
+    }
+
+    /** Returns the constraints for each segment, the last of which carries on to the rest. */
+    List<PathConstraints> getConstraints() {
+      final List<PathConstraints> constraints = new ArrayList<>();
+      constraints.add(m_constraint);
+      constraints.addAll(Arrays.asList(m_constraints));
+      return constraints;
+    }
+
+    /** Returns the name of the PathPlanner file, in the deploy directory's pathplanner folder. */
+    String getFileName() {
+      return (m_group ? m_name + "_Group" : m_name) + ".path";
+    }
+
+    /** Generates the trajectories from the PathPlanner file. */
+    List<PathPlannerTrajectory> generate() {
+      if (m_group) {
+        return PathPlanner.loadPathGroup(
+            m_name + "_Group", m_reversed, m_constraint, m_constraints);
+      }
+      return Arrays.asList(PathPlanner.loadPath(m_name, m_constraint, m_reversed));
+    }
+
+    /** Loads the path, or waits for the background thread to finish loading it. */
+    private synchronized List<PathPlannerTrajectory> load(boolean background) {
+      if (m_trajectory != null) {
+        return m_trajectory;
+      }
 
-      if (group) {
-        m_trajectory =
-            PathPlanner.loadPathGroup(basename + "_Group", reversed, constraint, constraints);
-      } else {
-        m_trajectory = Arrays.asList(PathPlanner.loadPath(basename, constraint, reversed));
+      final long startNanos = System.nanoTime();
+      List<PathPlannerTrajectory> trajectory = CompiledTrajectories.load(this);
+      m_compiled = trajectory != null;
+      if (trajectory == null) {
+        trajectory = generate();
       }
+      m_loadTimeMs = (System.nanoTime() - startNanos) / 1e6;
+      m_loadedInBackground = background;
+      m_trajectory = trajectory;
+
+      DataLogger.logMarker(
+          String.format(
+              "Loaded trajectory %s in %.1f ms (%s)%s",
+              m_name,
+              m_loadTimeMs,
+              m_compiled ? "compiled" : "generated",
+              background ? "" : ", blocking the robot loop"));
+      return trajectory;
     }
 
+    /**
+     * Returns a segment of the path, loading the path first if it hasn't been.
+     *
+     * @param sequenceNum The segment's index.
+     * @return The segment.
+     */
     public PathPlannerTrajectory get(int sequenceNum) {
-      return m_trajectory.get(sequenceNum);
+      final List<PathPlannerTrajectory> trajectory = m_trajectory;
+      return (trajectory != null ? trajectory : load(false)).get(sequenceNum);
     }
 
     public PathPlannerTrajectory get() {
       return get(0);
     }
 
+    /**
+     * Returns a segment of the path as driven by the given alliance, loading and mirroring the path
+     * first if it hasn't been.
+     *
+     * @param sequenceNum The segment's index.
+     * @param alliance The alliance, or null if it isn't known.
+     * @return The segment.
+     */
+    public PathPlannerTrajectory get(int sequenceNum, Alliance alliance) {
+      if (alliance != Alliance.Red) {
+        return get(sequenceNum);
+      }
+      final List<PathPlannerTrajectory> trajectory = m_redTrajectory;
+      return (trajectory != null ? trajectory : mirror()).get(sequenceNum);
+    }
+
+    public int getNumSegments() {
+      final List<PathPlannerTrajectory> trajectory = m_trajectory;
+      return (trajectory != null ? trajectory : load(false)).size();
+    }
+
     public Determinator getPathSegment(int sequenceNum) {
-      return () ->
-          PathPlannerTrajectory.transformTrajectoryForAlliance(
-              this.get(sequenceNum), Robot.getCalculatedAlliance());
+      return () -> get(sequenceNum, Robot.getCalculatedAlliance());
     }
   }
 
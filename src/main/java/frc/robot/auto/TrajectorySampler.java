@@ -0,0 +1,147 @@
+package frc.robot.auto;
+
+import java.util.List;
+
+import com.pathplanner.lib.PathPlannerTrajectory.PathPlannerState;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+
+/**
+ * Samples a PathPlanner trajectory at increasing times, giving the same state as {@link
+ * Trajectory#sample} without searching the whole trajectory each time.
+ *
+ * <p>A cursor remembers where the last sample was, so moving forward a loop at a time only looks
+ * at the next state or two. Going back in time starts the search over. The sample is written into
+ * one state that's reused, so it's only good until the next call.
+ */
+public final class TrajectorySampler {
+  /** States closer together than this aren't interpolated between, same as PathPlanner. */
+  private static final double MIN_INTERPOLATION_TIME_SECONDS = 1e-3;
+
+  private final List<Trajectory.State> m_states;
+  private final double m_totalTimeSeconds;
+
+  private final PathPlannerState m_sample = new PathPlannerState();
+  /** The first state at or after the last time sampled, never the first state. */
+  private int m_index = 1;
+  private double m_lastTimeSeconds = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Creates a sampler for a trajectory loaded from PathPlanner.
+   *
+   * @param trajectory The trajectory, made of {@link PathPlannerState}s.
+   */
+  public TrajectorySampler(Trajectory trajectory) {
+    m_states = trajectory.getStates();
+    m_totalTimeSeconds = trajectory.getTotalTimeSeconds();
+  }
+
+  public double getTotalTimeSeconds() {
+    return m_totalTimeSeconds;
+  }
+
+  /**
+   * Returns the state at the given time, the same as the trajectory's sample().
+   *
+   * @param timeSeconds The time since the start of the trajectory.
+   * @return The state, which is overwritten by the next sample.
+   */
+  public PathPlannerState sample(double timeSeconds) {
+    if (timeSeconds <= m_states.get(0).timeSeconds) {
+      return copy((PathPlannerState) m_states.get(0));
+    }
+    if (timeSeconds >= m_totalTimeSeconds) {
+      return copy((PathPlannerState) m_states.get(m_states.size() - 1));
+    }
+
+    if (timeSeconds < m_lastTimeSeconds) {
+      m_index = 1;
+    }
+    m_lastTimeSeconds = timeSeconds;
+    // The end state is at the total time, so this always stops before running off the end
+    while (m_states.get(m_index).timeSeconds < timeSeconds) {
+      m_index++;
+    }
+
+    final PathPlannerState next = (PathPlannerState) m_states.get(m_index);
+    final PathPlannerState prev = (PathPlannerState) m_states.get(m_index - 1);
+    if (Math.abs(next.timeSeconds - prev.timeSeconds) < MIN_INTERPOLATION_TIME_SECONDS) {
+      return copy(next);
+    }
+    return interpolate(
+        prev, next, (timeSeconds - prev.timeSeconds) / (next.timeSeconds - prev.timeSeconds));
+  }
+
+  private PathPlannerState copy(PathPlannerState state) {
+    m_sample.timeSeconds = state.timeSeconds;
+    m_sample.poseMeters = state.poseMeters;
+    m_sample.velocityMetersPerSecond = state.velocityMetersPerSecond;
+    m_sample.accelerationMetersPerSecondSq = state.accelerationMetersPerSecondSq;
+    m_sample.curvatureRadPerMeter = state.curvatureRadPerMeter;
+    m_sample.angularVelocityRadPerSec = state.angularVelocityRadPerSec;
+    m_sample.holonomicRotation = state.holonomicRotation;
+    m_sample.holonomicAngularVelocityRadPerSec = state.holonomicAngularVelocityRadPerSec;
+    return m_sample;
+  }
+
+  /** Same as PathPlannerState's interpolation, operation for operation, so it's bit for bit. */
+  private PathPlannerState interpolate(PathPlannerState start, PathPlannerState end, double t) {
+    m_sample.timeSeconds = lerp(start.timeSeconds, end.timeSeconds, t);
+    m_sample.velocityMetersPerSecond =
+        lerp(start.velocityMetersPerSecond, end.velocityMetersPerSecond, t);
+    m_sample.accelerationMetersPerSecondSq =
+        lerp(start.accelerationMetersPerSecondSq, end.accelerationMetersPerSecondSq, t);
+
+    final Translation2d startTranslation = start.poseMeters.getTranslation();
+    final Translation2d endTranslation = end.poseMeters.getTranslation();
+    m_sample.poseMeters =
+        new Pose2d(
+            lerp(startTranslation.getX(), endTranslation.getX(), t),
+            lerp(startTranslation.getY(), endTranslation.getY(), t),
+            lerp(start.poseMeters.getRotation(), end.poseMeters.getRotation(), t));
+
+    m_sample.angularVelocityRadPerSec =
+        lerp(start.angularVelocityRadPerSec, end.angularVelocityRadPerSec, t);
+    m_sample.curvatureRadPerMeter = lerp(start.curvatureRadPerMeter, end.curvatureRadPerMeter, t);
+    m_sample.holonomicRotation = lerp(start.holonomicRotation, end.holonomicRotation, t);
+    m_sample.holonomicAngularVelocityRadPerSec =
+        lerp(start.holonomicAngularVelocityRadPerSec, end.holonomicAngularVelocityRadPerSec, t);
+    return m_sample;
+  }
+
+  private static double lerp(double start, double end, double t) {
+    return start + (end - start) * t;
+  }
+
+  /**
+   * Same as start.plus(end.minus(start).times(t)), which is how PathPlanner interpolates angles,
+   * without the rotations in between.
+   */
+  private static Rotation2d lerp(Rotation2d start, Rotation2d end, double t) {
+    // end.minus(start) rotates by a rotation made from -start's angle
+    final double negativeStart = -start.getRadians();
+    final double negativeCos = Math.cos(negativeStart);
+    final double negativeSin = Math.sin(negativeStart);
+    double diffCos = end.getCos() * negativeCos - end.getSin() * negativeSin;
+    double diffSin = end.getCos() * negativeSin + end.getSin() * negativeCos;
+
+    // Normalized the way the Rotation2d(x, y) constructor does
+    final double magnitude = Math.hypot(diffCos, diffSin);
+    if (magnitude > 1e-6) {
+      diffSin /= magnitude;
+      diffCos /= magnitude;
+    } else {
+      diffSin = 0.0;
+      diffCos = 1.0;
+    }
+
+    final double scaled = Math.atan2(diffSin, diffCos) * t;
+    final double scaledCos = Math.cos(scaled);
+    final double scaledSin = Math.sin(scaled);
+    return new Rotation2d(
+        start.getCos() * scaledCos - start.getSin() * scaledSin,
+        start.getCos() * scaledSin + start.getSin() * scaledCos);
+  }
+}
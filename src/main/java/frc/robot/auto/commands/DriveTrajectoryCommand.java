@@ -1,5 +1,6 @@
 package frc.robot.auto.commands;
 
+import frc.robot.auto.TrajectorySampler;
 import frc.robot.shared.AutoCommand;
 import frc.robot.shared.Conversions;
 import frc.robot.subsystems.Drive;
@@ -9,29 +10,30 @@ import edu.wpi.first.math.trajectory.Trajectory;
 
 public class DriveTrajectoryCommand extends AutoCommand {
   private double m_startTimeSeconds = 0.0;
+  private double m_dtSeconds = 0.0;
 
   private final Drive m_drive;
-  private final Trajectory m_trajectory;
+  private final TrajectorySampler m_sampler;
 
   public DriveTrajectoryCommand(Drive drive, Trajectory trajectory) {
     m_drive = drive;
-    m_trajectory = trajectory;
+    m_sampler = new TrajectorySampler(trajectory);
   }
 
   public void init() {
     m_startTimeSeconds = Conversions.Time.getSecTime();
+    m_dtSeconds = 0.0;
   }
 
   public void run() {
-    double dtSeconds = Conversions.Time.getSecTime() - m_startTimeSeconds;
+    m_dtSeconds = Conversions.Time.getSecTime() - m_startTimeSeconds;
 
-    var goal = (PathPlannerState) m_trajectory.sample(dtSeconds);
+    final PathPlannerState goal = m_sampler.sample(m_dtSeconds);
     m_drive.driveInput(goal, goal.holonomicRotation);
   }
 
   public boolean isCompleted() {
-    double dtSeconds = Conversions.Time.getSecTime() - m_startTimeSeconds;
-    return m_trajectory.getTotalTimeSeconds() <= dtSeconds;
+    return m_sampler.getTotalTimeSeconds() <= m_dtSeconds;
   }
 
   public void postComplete(boolean interrupted) {}
@@ -1,31 +1,59 @@
 package frc.robot.auto.commands;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
+import frc.robot.auto.EventTimeline;
 import frc.robot.auto.TrajectoryManager.Determinator;
 import frc.robot.shared.AutoCommand;
+import frc.robot.shared.AutoCommandTracer;
 import frc.robot.subsystems.Drive;
 
 import com.pathplanner.lib.PathPlannerTrajectory;
 import edu.wpi.first.wpilibj.Timer;
 
+/**
+ * Follows a path while running commands for the event markers along it. Every marker that's due
+ * fires in the same loop, and event commands run alongside the path instead of interrupting it.
+ * The path is the deadline: when it finishes, markers it didn't reach fire, and event commands
+ * still running after that loop are interrupted.
+ *
+ * <p>Each event command gets a slot when this is created, so nothing is looked up while the path
+ * runs. A marker for a command that's still running restarts it.
+ */
 public class FollowPathWithEvents extends AutoCommand {
-  private final AutoCommand pathFollowingCommand;
-  private final List<PathPlannerTrajectory.EventMarker> pathMarkers;
-  private final Map<String, AutoCommand> eventMap;
+  private final Drive m_drive;
+  private final Determinator m_determinator;
+  private final AutoCommand m_pathFollowingCommand;
 
-  private final Map<AutoCommand, Boolean> currentCommands = new HashMap<>();
-  private final List<PathPlannerTrajectory.EventMarker> unpassedMarkers = new ArrayList<>();
-  private final Timer timer = new Timer();
-  private boolean isCompleted = true;
+  /** Event names, sorted, and the slot each one's command runs in. */
+  private final String[] m_eventNames;
+  private final int[] m_eventSlots;
+  private final AutoCommand[] m_slotCommands;
+  private final boolean[] m_slotRunning;
 
+  private EventTimeline m_timeline;
+  /** The trajectory the timeline was built for, so it's only built again for another one. */
+  private PathPlannerTrajectory m_timelineTrajectory = null;
+
+  private final Timer m_timer = new Timer();
+  private boolean m_pathRunning = false;
+  private boolean m_isCompleted = true;
+
+  /**
+   * Create a FollowPathWithEvents command that follows a path and fires its markers by how far the
+   * robot is along it, so actions happen at the right spot even when the robot falls behind.
+   *
+   * @param drive The drive, which follows the path and gives the robot's position.
+   * @param determinator Gives the path when this starts, after the alliance is known.
+   * @param eventMap Map of event marker names to the commands that should run when reaching that
+   *     marker. This SHOULD NOT contain any commands requiring the drive.
+   */
   public FollowPathWithEvents(
       Drive drive, Determinator determinator, Map<String, AutoCommand> eventMap) {
-    // TODO: This is wrong, I am doing it to make things work. FIX IT BEFORE USE!
-    PathPlannerTrajectory path = determinator.determine();
-    this.pathFollowingCommand = new PathPlannerTrajectoryCommand(drive, determinator);
-    this.pathMarkers = path.getMarkers();
-    this.eventMap = eventMap;
+    this(drive, determinator, new PathPlannerTrajectoryCommand(drive, determinator), eventMap);
   }
 
   /**
@@ -35,7 +63,7 @@ public class FollowPathWithEvents extends AutoCommand {
    * @param pathFollowingCommand The command that will run the path following. This acts like the
    *     deadline command in ParallelDeadlineGroup
    * @param pathMarkers The list of markers for the path that the path following command is
-   *     following
+   *     following, which fire by time since it started
    * @param eventMap Map of event marker names to the commands that should run when reaching that
    *     marker. This SHOULD NOT contain any commands requiring the same subsystems as the path
    *     following command.
@@ -44,82 +72,145 @@ public class FollowPathWithEvents extends AutoCommand {
       AutoCommand pathFollowingCommand,
       List<PathPlannerTrajectory.EventMarker> pathMarkers,
       Map<String, AutoCommand> eventMap) {
-    this.pathFollowingCommand = pathFollowingCommand;
-    this.pathMarkers = pathMarkers;
-    this.eventMap = eventMap;
+    this(null, null, pathFollowingCommand, eventMap);
+    m_timeline = EventTimeline.byTime(pathMarkers, this::getSlot);
   }
 
-  public void init() {
-    isCompleted = false;
-
-    currentCommands.clear();
+  private FollowPathWithEvents(
+      Drive drive,
+      Determinator determinator,
+      AutoCommand pathFollowingCommand,
+      Map<String, AutoCommand> eventMap) {
+    m_drive = drive;
+    m_determinator = determinator;
+    m_pathFollowingCommand = pathFollowingCommand;
+
+    m_eventNames = eventMap.keySet().toArray(new String[0]);
+    Arrays.sort(m_eventNames);
+    m_eventSlots = new int[m_eventNames.length];
+    final List<AutoCommand> slotCommands = new ArrayList<>();
+    for (int i = 0; i < m_eventNames.length; i++) {
+      final AutoCommand command = eventMap.get(m_eventNames[i]);
+      // Names for the same command share a slot, so it never runs twice at once
+      int slot = slotCommands.indexOf(command);
+      if (slot < 0) {
+        slot = slotCommands.size();
+        slotCommands.add(command);
+      }
+      m_eventSlots[i] = slot;
+    }
+    m_slotCommands = slotCommands.toArray(new AutoCommand[0]);
+    m_slotRunning = new boolean[m_slotCommands.length];
+  }
 
-    unpassedMarkers.clear();
-    unpassedMarkers.addAll(pathMarkers);
+  /** Returns the slot of an event's command, or -1 if the event map doesn't have it. */
+  private int getSlot(String name) {
+    final int index = Arrays.binarySearch(m_eventNames, name);
+    return index >= 0 ? m_eventSlots[index] : -1;
+  }
 
-    timer.reset();
-    timer.start();
+  public void init() {
+    m_isCompleted = false;
+    Arrays.fill(m_slotRunning, false);
+
+    m_pathFollowingCommand.init();
+    AutoCommandTracer.started(m_pathFollowingCommand);
+    m_pathRunning = true;
+
+    if (m_determinator != null) {
+      // The path is only known now, once the alliance is
+      final PathPlannerTrajectory trajectory = m_determinator.determine();
+      if (trajectory != m_timelineTrajectory) {
+        m_timeline = EventTimeline.byDistance(trajectory, this::getSlot);
+        m_timelineTrajectory = trajectory;
+      }
+    }
+    m_timeline.reset();
 
-    pathFollowingCommand.init();
-    currentCommands.put(pathFollowingCommand, true);
+    m_timer.reset();
+    m_timer.start();
   }
 
   public void run() {
-    for (Map.Entry<AutoCommand, Boolean> runningCommand : currentCommands.entrySet()) {
-      if (!runningCommand.getValue()) {
-        continue;
-      }
+    if (m_isCompleted) {
+      return;
+    }
 
-      runningCommand.getKey().run();
-
-      if (runningCommand.getKey().isCompleted()) {
-        runningCommand.getKey().postComplete(false);
-        runningCommand.setValue(false);
-        if (runningCommand.getKey().equals(pathFollowingCommand)) {
-          isCompleted = true;
-        }
-      } else if (runningCommand.getKey().hasElapsed()) {
-        runningCommand.getKey().postComplete(true);
-        runningCommand.setValue(false);
-        if (runningCommand.getKey().equals(pathFollowingCommand)) {
-          isCompleted = true;
-        }
+    final double progress =
+        m_timeline.isByDistance()
+            ? m_timeline.getDistanceAlong(m_drive.getPose().getTranslation())
+            : m_timer.get();
+    for (int slot = m_timeline.nextDue(progress); slot >= 0; slot = m_timeline.nextDue(progress)) {
+      startSlot(slot);
+    }
+
+    if (m_pathRunning) {
+      m_pathFollowingCommand.run();
+      if (m_pathFollowingCommand.isCompleted()) {
+        finishPath(false);
+      } else if (m_pathFollowingCommand.hasElapsed()) {
+        finishPath(true);
       }
     }
 
-    double currentTime = timer.get();
-    if (unpassedMarkers.size() > 0 && currentTime >= unpassedMarkers.get(0).timeSeconds) {
-      PathPlannerTrajectory.EventMarker marker = unpassedMarkers.remove(0);
+    for (int slot = 0; slot < m_slotCommands.length; slot++) {
+      if (!m_slotRunning[slot]) {
+        continue;
+      }
 
-      for (String name : marker.names) {
-        if (eventMap.containsKey(name)) {
-          AutoCommand eventCommand = eventMap.get(name);
+      final AutoCommand command = m_slotCommands[slot];
+      command.run();
+      if (command.isCompleted()) {
+        finishSlot(slot, false);
+      } else if (command.hasElapsed()) {
+        finishSlot(slot, true);
+      }
+    }
+  }
 
-          for (Map.Entry<AutoCommand, Boolean> runningCommand : currentCommands.entrySet()) {
-            if (!runningCommand.getValue()) {
-              continue;
-            }
+  private void startSlot(int slot) {
+    if (m_slotRunning[slot]) {
+      finishSlot(slot, true);
+    }
+    m_slotCommands[slot].init();
+    AutoCommandTracer.started(m_slotCommands[slot]);
+    m_slotRunning[slot] = true;
+  }
 
-            runningCommand.getKey().postComplete(true);
-            runningCommand.setValue(false);
-          }
+  private void finishSlot(int slot, boolean interrupted) {
+    m_slotCommands[slot].postComplete(interrupted);
+    AutoCommandTracer.finished(m_slotCommands[slot], interrupted);
+    m_slotRunning[slot] = false;
+  }
 
-          eventCommand.init();
-          currentCommands.put(eventCommand, true);
-        }
+  private void finishPath(boolean interrupted) {
+    if (!interrupted) {
+      // The path finishes on time, usually a little short of its end, so markers at the end would
+      // never be reached by distance. They get this loop to run before the path's deadline.
+      for (int slot = m_timeline.nextDue(Double.POSITIVE_INFINITY);
+          slot >= 0;
+          slot = m_timeline.nextDue(Double.POSITIVE_INFINITY)) {
+        startSlot(slot);
       }
     }
+    m_pathFollowingCommand.postComplete(interrupted);
+    AutoCommandTracer.finished(m_pathFollowingCommand, interrupted);
+    m_pathRunning = false;
+    m_isCompleted = true;
   }
 
   public void postComplete(boolean interrupted) {
-    for (Map.Entry<AutoCommand, Boolean> runningCommand : currentCommands.entrySet()) {
-      if (runningCommand.getValue()) {
-        runningCommand.getKey().postComplete(true);
+    if (m_pathRunning) {
+      finishPath(true);
+    }
+    for (int slot = 0; slot < m_slotCommands.length; slot++) {
+      if (m_slotRunning[slot]) {
+        finishSlot(slot, true);
       }
     }
   }
 
   public boolean isCompleted() {
-    return isCompleted;
+    return m_isCompleted;
   }
 }
@@ -3,6 +3,7 @@ package frc.robot.auto.commands.util;
 import java.util.HashSet;
 
 import frc.robot.shared.AutoCommand;
+import frc.robot.shared.AutoCommandTracer;
 
 import com.google.common.collect.ImmutableList;
 
@@ -39,6 +40,7 @@ public class ConcurrentCommand extends AutoCommand {
 
     for (var command : m_cmdList) {
       command.init();
+      AutoCommandTracer.started(command);
     }
   }
 
@@ -56,9 +58,11 @@ public class ConcurrentCommand extends AutoCommand {
 
       if (command.isCompleted()) {
         command.postComplete(false);
+        AutoCommandTracer.finished(command, false);
         m_finishedCmds.add(command);
       } else if (command.hasElapsed()) {
         command.postComplete(true);
+        AutoCommandTracer.finished(command, true);
         m_finishedCmds.add(command);
       }
     }
@@ -73,6 +77,7 @@ public class ConcurrentCommand extends AutoCommand {
       for (var command : m_cmdList) {
         if (!m_finishedCmds.contains(command)) {
           command.postComplete(true);
+          AutoCommandTracer.finished(command, true);
         }
       }
     }
@@ -4,6 +4,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 
 import frc.robot.shared.AutoCommand;
+import frc.robot.shared.AutoCommandTracer;
 
 import com.google.common.collect.ImmutableList;
 
@@ -57,15 +58,18 @@ public class DeadlineCommand extends AutoCommand {
       AutoCommand command = iterator.next();
       if (m_cmdsNeedInit) {
         command.init();
+        AutoCommandTracer.started(command);
       }
 
       command.run();
 
       if (command.isCompleted()) {
         command.postComplete(false);
+        AutoCommandTracer.finished(command, false);
         iterator.remove();
       } else if (command.hasElapsed()) {
         command.postComplete(true);
+        AutoCommandTracer.finished(command, true);
         iterator.remove();
       }
     }
@@ -76,5 +80,16 @@ public class DeadlineCommand extends AutoCommand {
     return m_deadline.isCompleted() || m_unfinishedCmds.size() == 0;
   }
 
-  public void postComplete(boolean interrupted) {}
+  /** Interrupts the commands still running when the deadline finishes or this times out. */
+  public void postComplete(boolean interrupted) {
+    if (m_cmdsNeedInit) {
+      return;
+    }
+
+    for (var command : m_unfinishedCmds) {
+      command.postComplete(true);
+      AutoCommandTracer.finished(command, true);
+    }
+    m_unfinishedCmds.clear();
+  }
 }
@@ -1,6 +1,7 @@
 package frc.robot.auto.commands.util;
 
 import frc.robot.shared.AutoCommand;
+import frc.robot.shared.AutoCommandTracer;
 
 import com.google.common.collect.ImmutableList;
 
@@ -45,6 +46,7 @@ public class SequentialCommand extends AutoCommand {
 
     if (m_cmdNeedsInit) {
       currentCommand.init();
+      AutoCommandTracer.started(currentCommand);
       m_cmdNeedsInit = false;
     }
 
@@ -54,10 +56,12 @@ public class SequentialCommand extends AutoCommand {
       m_currentIndex++;
       m_cmdNeedsInit = true;
       currentCommand.postComplete(false);
+      AutoCommandTracer.finished(currentCommand, false);
     } else if (currentCommand.hasElapsed()) {
       m_currentIndex++;
       m_cmdNeedsInit = true;
       currentCommand.postComplete(true);
+      AutoCommandTracer.finished(currentCommand, true);
     }
   }
 
@@ -1,21 +1,69 @@
 package frc.robot.devices;
 
+import frc.robot.replay.LoggedValues;
+import frc.robot.replay.ReplayLog;
 import frc.robot.shared.RobotInfo;
 import frc.robot.shared.RobotInfo.DriveInfo;
 import frc.robot.shared.StandardizedRotation3d;
 
+import com.ctre.phoenixpro.StatusSignalValue;
 import com.ctre.phoenixpro.configs.Pigeon2Configuration;
 import com.ctre.phoenixpro.hardware.Pigeon2;
+import com.ctre.phoenixpro.sim.Pigeon2SimState;
 import edu.wpi.first.math.geometry.Rotation2d;
 import lombok.Getter;
-import lombok.Setter;
 import lombok.experimental.Accessors;
 
-/** GreyPigeon - Pigeon2 wrapper class */
+/**
+ * GreyPigeon - Pigeon2 wrapper class
+ *
+ * <p>Call {@link #sample()} once per cycle, after the signals are refreshed. Every getter is served
+ * from that sample, so reading the gyro several times in a loop never goes back to the device. The
+ * raw readings are recorded by the {@link ReplayLog}, so the sample can be replayed.
+ */
 @Accessors(prefix = "m_")
 public class GreyPigeon {
+  /** The raw readings, as of the start of the cycle. */
+  public static final class Inputs extends LoggedValues {
+    public double rawYawDegrees;
+    public double rawPitchDegrees;
+    public double rawRollDegrees;
+    public double angularVelocityDegreesPerSec;
+    public double sampleTimestampSec;
+  }
+
   private final Pigeon2 m_pigeon;
-  @Setter @Getter private StandardizedRotation3d m_offset;
+  // Refreshed once per cycle by the SignalRegistry
+  private final StatusSignalValue<Double> m_yaw;
+  private final StatusSignalValue<Double> m_pitch;
+  private final StatusSignalValue<Double> m_roll;
+  private final StatusSignalValue<Double> m_angularVelocityZ;
+  private final Inputs m_inputs = new Inputs();
+
+  @Getter private StandardizedRotation3d m_offset;
+  private double m_yawOffsetRadians;
+  private double m_pitchOffsetRadians;
+  private double m_rollOffsetRadians;
+
+  // Snapshot, updated by sample()
+  /** Time the sampled yaw was measured, in seconds. */
+  @Getter private double m_sampleTimestampSec;
+
+  private double m_rawYawDegrees;
+  private double m_rawPitchDegrees;
+  private double m_rawRollDegrees;
+  /** Yaw with the offset applied, in [-180, 180] degrees. */
+  @Getter private double m_yawDegrees;
+  /** Pitch with the offset applied, in [-180, 180] degrees. */
+  @Getter private double m_pitchDegrees;
+  /** Roll with the offset applied, in [-180, 180] degrees. */
+  @Getter private double m_rollDegrees;
+  /** Yaw with the offset applied, in [0, 360) degrees. */
+  @Getter private double m_normalizedYawDegrees;
+  /** Tilt from level, combining pitch and roll, in degrees. */
+  @Getter private double m_inclinationDegrees;
+  /** Clockwise positive yaw rate, in degrees per second. */
+  @Getter private double m_angularVelocityDegreesPerSec;
 
   private static final Rotation2d DEFAULT_LEVEL_TOLERANCE = Rotation2d.fromDegrees(2.0);
 
@@ -24,9 +72,97 @@ public class GreyPigeon {
     m_pigeon = new Pigeon2(DriveInfo.PIGEON_ID, RobotInfo.CANIVORE_NAME);
     m_pigeon.getConfigurator().apply(new Pigeon2Configuration());
 
+    m_yaw = m_pigeon.getYaw();
+    m_pitch = m_pigeon.getPitch();
+    m_roll = m_pigeon.getRoll();
+    m_angularVelocityZ = m_pigeon.getAngularVelocityZ();
+    SignalRegistry.register(RobotInfo.CANIVORE_NAME, m_yaw, m_pitch, m_roll, m_angularVelocityZ);
+    SignalRegistry.registerHeartbeat("Pigeon2", m_yaw);
+    configSignals();
+    ReplayLog.registerInputs("Pigeon2", m_inputs, this::sampleInputs);
+
+    sample();
     reset();
   }
 
+  private void configSignals() {
+    SignalPlanner.plan(RobotInfo.CANIVORE_NAME, SignalRate.Odometry, m_yaw);
+    SignalPlanner.plan(
+        RobotInfo.CANIVORE_NAME, SignalRate.Control, m_pitch, m_roll, m_angularVelocityZ);
+    SignalPlanner.plan(
+        RobotInfo.CANIVORE_NAME,
+        SignalRate.Off,
+        m_pigeon.getQuatW(),
+        m_pigeon.getQuatX(),
+        m_pigeon.getQuatY(),
+        m_pigeon.getQuatZ(),
+        m_pigeon.getGravityVectorX(),
+        m_pigeon.getGravityVectorY(),
+        m_pigeon.getGravityVectorZ(),
+        m_pigeon.getTemperature(),
+        m_pigeon.getAccumGyroX(),
+        m_pigeon.getAccumGyroY(),
+        m_pigeon.getAccumGyroZ(),
+        m_pigeon.getAngularVelocityX(),
+        m_pigeon.getAngularVelocityY(),
+        m_pigeon.getAccelerationX(),
+        m_pigeon.getAccelerationY(),
+        m_pigeon.getAccelerationZ(),
+        m_pigeon.getSupplyVoltage(),
+        m_pigeon.getMagneticFieldX(),
+        m_pigeon.getMagneticFieldY(),
+        m_pigeon.getMagneticFieldZ(),
+        m_pigeon.getRawMagneticFieldX(),
+        m_pigeon.getRawMagneticFieldY(),
+        m_pigeon.getRawMagneticFieldZ(),
+        m_pigeon.getUpTime(),
+        m_pigeon.getNoMotionCount(),
+        m_pigeon.getNoMotionEnabled(),
+        m_pigeon.getTemperatureCompensationDisabled());
+    SignalPlanner.plan(
+        RobotInfo.CANIVORE_NAME,
+        SignalRate.Diagnostics,
+        m_pigeon.getFaultField(),
+        m_pigeon.getStickyFaultField());
+  }
+
+  private void sampleInputs() {
+    m_inputs.rawYawDegrees = m_yaw.getValue();
+    m_inputs.rawPitchDegrees = m_pitch.getValue();
+    m_inputs.rawRollDegrees = m_roll.getValue();
+    // Matches Pigeon2.getRate(), which is clockwise positive
+    m_inputs.angularVelocityDegreesPerSec = -m_angularVelocityZ.getValue();
+    m_inputs.sampleTimestampSec = m_yaw.getTimestamp().getTime();
+  }
+
+  /**
+   * Takes a snapshot of the inputs read at the start of the cycle. Call this once per cycle, after
+   * {@link ReplayLog#beginCycle()}.
+   */
+  public void sample() {
+    m_rawYawDegrees = m_inputs.rawYawDegrees;
+    m_rawPitchDegrees = m_inputs.rawPitchDegrees;
+    m_rawRollDegrees = m_inputs.rawRollDegrees;
+    m_angularVelocityDegreesPerSec = m_inputs.angularVelocityDegreesPerSec;
+    m_sampleTimestampSec = m_inputs.sampleTimestampSec;
+
+    updateDerived();
+  }
+
+  /**
+   * Sets the offset that is subtracted from the raw rotation.
+   *
+   * @param offset The new offset.
+   */
+  public void setOffset(StandardizedRotation3d offset) {
+    m_offset = offset;
+    m_yawOffsetRadians = offset.getYaw().getRadians();
+    m_pitchOffsetRadians = offset.getPitch().getRadians();
+    m_rollOffsetRadians = offset.getRoll().getRadians();
+
+    updateDerived();
+  }
+
   /**
    * Returns a StandardizedRotation3d object containing the yaw, pitch, and roll from the Pigeon2.
    *
@@ -45,7 +181,10 @@ public class GreyPigeon {
    *     Pigeon2.
    */
   public StandardizedRotation3d getRawRotation() {
-    return new StandardizedRotation3d(getRawRoll(), getRawPitch(), getRawYaw());
+    return new StandardizedRotation3d(
+        Math.toRadians(m_rawRollDegrees),
+        Math.toRadians(m_rawPitchDegrees),
+        Math.toRadians(m_rawYawDegrees));
   }
 
   /**
@@ -54,7 +193,7 @@ public class GreyPigeon {
    * @return The yaw from the Pigeon2 with the offset applied.
    */
   public Rotation2d getYaw() {
-    return getRawYaw().minus(m_offset.getYaw());
+    return Rotation2d.fromDegrees(m_yawDegrees);
   }
 
   /**
@@ -63,7 +202,7 @@ public class GreyPigeon {
    * @return The pitch from the Pigeon2 with the offset applied.
    */
   public Rotation2d getPitch() {
-    return getRawPitch().minus(m_offset.getPitch());
+    return Rotation2d.fromDegrees(m_pitchDegrees);
   }
 
   /**
@@ -72,7 +211,7 @@ public class GreyPigeon {
    * @return The roll from the Pigeon2 with the offset applied.
    */
   public Rotation2d getRoll() {
-    return getRawRoll().minus(m_offset.getRoll());
+    return Rotation2d.fromDegrees(m_rollDegrees);
   }
 
   /**
@@ -81,7 +220,7 @@ public class GreyPigeon {
    * @return The raw yaw from the Pigeon2.
    */
   public Rotation2d getRawYaw() {
-    return Rotation2d.fromDegrees(m_pigeon.getYaw().getValue());
+    return Rotation2d.fromDegrees(m_rawYawDegrees);
   }
 
   /**
@@ -90,7 +229,7 @@ public class GreyPigeon {
    * @return The raw pitch from the Pigeon2.
    */
   public Rotation2d getRawPitch() {
-    return Rotation2d.fromDegrees(m_pigeon.getPitch().getValue());
+    return Rotation2d.fromDegrees(m_rawPitchDegrees);
   }
 
   /**
@@ -99,7 +238,25 @@ public class GreyPigeon {
    * @return The raw roll from the Pigeon2.
    */
   public Rotation2d getRawRoll() {
-    return Rotation2d.fromDegrees(m_pigeon.getRoll().getValue());
+    return Rotation2d.fromDegrees(m_rawRollDegrees);
+  }
+
+  /**
+   * Creates a copy of the raw yaw signal that can be refreshed from another thread.
+   *
+   * @return The cloned raw yaw signal, in degrees.
+   */
+  public StatusSignalValue<Double> cloneYawSignal() {
+    return m_yaw.clone();
+  }
+
+  /**
+   * Returns the simulation state of the Pigeon2, used to feed it simulated motion.
+   *
+   * @return The simulation state of the Pigeon2.
+   */
+  public Pigeon2SimState getSimState() {
+    return m_pigeon.getSimState();
   }
 
   /**
@@ -108,12 +265,7 @@ public class GreyPigeon {
    * @return The normalized yaw from the Pigeon2 with the offset applied.
    */
   public Rotation2d getNormalizedYaw() {
-    double rawYaw = getYaw().getDegrees();
-    double normalizedYaw = Math.IEEEremainder(rawYaw, 360.0);
-    if (normalizedYaw < 0) {
-      normalizedYaw += 360.0;
-    }
-    return Rotation2d.fromDegrees(normalizedYaw);
+    return Rotation2d.fromDegrees(m_normalizedYawDegrees);
   }
 
   /**
@@ -122,8 +274,7 @@ public class GreyPigeon {
    * @return The inclination of the Pigeon2.
    */
   public Rotation2d getInclination() {
-    return Rotation2d.fromRadians(
-        Math.atan(Math.sqrt(Math.pow(getRoll().getTan(), 2) + Math.pow(getPitch().getTan(), 2))));
+    return Rotation2d.fromDegrees(m_inclinationDegrees);
   }
 
   /**
@@ -132,14 +283,16 @@ public class GreyPigeon {
    * @return The angular velocity of the Pigeon2.
    */
   public Rotation2d getAngularVelocity() {
-    return Rotation2d.fromDegrees(m_pigeon.getRate());
+    return Rotation2d.fromDegrees(m_angularVelocityDegreesPerSec);
   }
 
   public void setYawOffset(Rotation2d newYaw) {
     var currentOffset = getOffset();
-    m_offset =
+    setOffset(
         new StandardizedRotation3d(
-            currentOffset.getX(), currentOffset.getY(), currentOffset.getZ() + newYaw.getRadians());
+            currentOffset.getX(),
+            currentOffset.getY(),
+            currentOffset.getZ() + newYaw.getRadians()));
   }
 
   /**
@@ -158,11 +311,34 @@ public class GreyPigeon {
    * @return Whether the Pigeon2 is level within the specified tolerance.
    */
   public boolean isLevel(Rotation2d tolerance) {
-    return Math.abs(getInclination().getDegrees()) < tolerance.getDegrees();
+    return Math.abs(m_inclinationDegrees) < tolerance.getDegrees();
   }
 
   /** Resets the offset to the current yaw, pitch, and roll. */
   public void reset() {
-    m_offset = getRawRotation();
+    setOffset(getRawRotation());
+  }
+
+  /** Recomputes the offset-applied values from the sampled raw values. */
+  private void updateDerived() {
+    m_yawDegrees = minusWrapped(m_rawYawDegrees, m_yawOffsetRadians);
+    m_pitchDegrees = minusWrapped(m_rawPitchDegrees, m_pitchOffsetRadians);
+    m_rollDegrees = minusWrapped(m_rawRollDegrees, m_rollOffsetRadians);
+
+    m_normalizedYawDegrees = Math.IEEEremainder(m_yawDegrees, 360.0);
+    if (m_normalizedYawDegrees < 0) {
+      m_normalizedYawDegrees += 360.0;
+    }
+
+    final double rollTan = Math.tan(Math.toRadians(m_rollDegrees));
+    final double pitchTan = Math.tan(Math.toRadians(m_pitchDegrees));
+    m_inclinationDegrees =
+        Math.toDegrees(Math.atan(Math.sqrt(rollTan * rollTan + pitchTan * pitchTan)));
+  }
+
+  /** Same as Rotation2d.minus, which wraps the result to [-180, 180] degrees. */
+  private static double minusWrapped(double degrees, double offsetRadians) {
+    final double radians = Math.toRadians(degrees) - offsetRadians;
+    return Math.toDegrees(Math.atan2(Math.sin(radians), Math.cos(radians)));
   }
 }
@@ -1,8 +1,11 @@
 package frc.robot.devices;
 
+import frc.robot.replay.LoggedValues;
+import frc.robot.replay.ReplayLog;
 import frc.robot.shared.CrashTracker;
 
 import com.ctre.phoenixpro.StatusCode;
+import com.ctre.phoenixpro.StatusSignalValue;
 import com.ctre.phoenixpro.configs.TalonFXConfiguration;
 import com.ctre.phoenixpro.configs.TalonFXConfigurator;
 import com.ctre.phoenixpro.controls.ControlRequest;
@@ -23,7 +26,6 @@ import com.ctre.phoenixpro.signals.NeutralModeValue;
 import com.ctre.phoenixpro.signals.ReverseLimitSourceValue;
 import com.ctre.phoenixpro.signals.ReverseLimitTypeValue;
 import edu.wpi.first.math.geometry.Rotation2d;
-import lombok.Data;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 
@@ -35,6 +37,42 @@ public class GreyTalonFX extends TalonFX {
   private static final double FOC_INTERCEPT_RPM = 5088.5;
   private boolean m_lastOptimizedFOC = true;
 
+  /**
+   * How often each signal read through this class is published. These signals are refreshed every
+   * cycle, so the slowest rate they accept is {@link SignalRate#Debug}.
+   */
+  public static class SignalRates {
+    public SignalRate rotorPosition = SignalRate.Debug;
+    public SignalRate rotorVelocity = SignalRate.Debug;
+    public SignalRate velocity = SignalRate.Debug;
+    public SignalRate statorCurrent = SignalRate.Debug;
+    public SignalRate supplyCurrent = SignalRate.Debug;
+    /**
+     * The duty cycle, motor voltage and torque current, which followers copy. Only a motor that is
+     * followed needs these, at {@link SignalRate#Control}.
+     */
+    public SignalRate followedOutputs = SignalRate.Off;
+  }
+
+  /** The signals read through this class, as of the start of the cycle. */
+  public static final class Inputs extends LoggedValues {
+    public double rotorPosition;
+    public double rotorVelocity;
+    public double velocity;
+    public double statorCurrent;
+    public double supplyCurrent;
+  }
+
+  /** The last output sent. */
+  public static final class Outputs extends LoggedValues {
+    public ControlMode controlMode;
+    public double demand;
+    public boolean enableFOC;
+    public double feedForward;
+    public int slot;
+    public boolean overrideBrakeDurNeutral;
+  }
+
   public enum ControlMode {
     DutyCycleOut,
     MotionMagicDutyCycle,
@@ -45,16 +83,6 @@ public class GreyTalonFX extends TalonFX {
     VelocityVoltage
   }
 
-  @Data
-  public class OutputParams {
-    private final ControlMode m_controlMode;
-    private final double m_demand;
-    private final boolean m_enableFOC;
-    private final double m_feedForward;
-    private final int m_slot;
-    private final boolean m_overrideBrakeDurNeutral;
-  }
-
   /**
    * Create a GreyTalonFX.
    *
@@ -72,11 +100,47 @@ public class GreyTalonFX extends TalonFX {
    */
   public GreyTalonFX(int deviceNumber, String canbus) {
     super(deviceNumber, canbus);
+    m_canbus = canbus;
+
+    m_rotorPosition = super.getRotorPosition();
+    m_rotorVelocity = super.getRotorVelocity();
+    m_velocity = super.getVelocity();
+    m_statorCurrent = super.getStatorCurrent();
+    m_supplyCurrent = super.getSupplyCurrent();
+    SignalRegistry.register(
+        canbus, m_rotorPosition, m_rotorVelocity, m_velocity, m_statorCurrent, m_supplyCurrent);
+    SignalRegistry.registerHeartbeat("TalonFX " + deviceNumber, m_rotorVelocity);
+    ReplayLog.registerInputs("TalonFX " + deviceNumber, m_inputs, this::sampleInputs);
+    ReplayLog.registerOutputs("TalonFX " + deviceNumber, m_outputs);
+
     factoryDefault();
   }
 
+  private final String m_canbus;
+
+  // Refreshed once per cycle by the SignalRegistry
+  private final StatusSignalValue<Double> m_rotorPosition;
+  private final StatusSignalValue<Double> m_rotorVelocity;
+  private final StatusSignalValue<Double> m_velocity;
+  private final StatusSignalValue<Double> m_statorCurrent;
+  private final StatusSignalValue<Double> m_supplyCurrent;
+
+  private final Inputs m_inputs = new Inputs();
+  private final Outputs m_outputs = new Outputs();
+
   @Getter private TalonFXConfiguration m_currentConfig;
-  private OutputParams m_lastOutputParams;
+
+  // One request per control mode, updated in place so setting an output never allocates
+  private final DutyCycleOut m_dutyCycleOut = new DutyCycleOut(0.0);
+  private final MotionMagicDutyCycle m_motionMagicDutyCycle = new MotionMagicDutyCycle(0.0);
+  private final MotionMagicVoltage m_motionMagicVoltage = new MotionMagicVoltage(0.0);
+  private final PositionDutyCycle m_positionDutyCycle = new PositionDutyCycle(0.0);
+  private final PositionVoltage m_positionVoltage = new PositionVoltage(0.0);
+  private final VelocityDutyCycle m_velocityDutyCycle = new VelocityDutyCycle(0.0);
+  private final VelocityVoltage m_velocityVoltage = new VelocityVoltage(0.0);
+
+  // Whether m_outputs holds an output that was sent, to skip sending the same request again
+  private boolean m_hasLastOutput = false;
   private StatusCode m_lastControlCode;
 
   /** Factory default the TalonFX. */
@@ -201,13 +265,160 @@ public class GreyTalonFX extends TalonFX {
     return super.getConfigurator();
   }
 
+  /**
+   * Set how often every status signal is published: the ones read through this class and the
+   * outputs a follower copies at the given rates, faults at {@link SignalRate#Diagnostics}, and the
+   * rest off. Every signal is planned, so the planner accounts for all the traffic this motor
+   * sends.
+   *
+   * @param rates The rate for each signal.
+   */
+  public void setSignalRates(SignalRates rates) {
+    SignalPlanner.plan(m_canbus, rates.rotorPosition, m_rotorPosition);
+    SignalPlanner.plan(m_canbus, rates.rotorVelocity, m_rotorVelocity);
+    SignalPlanner.plan(m_canbus, rates.velocity, m_velocity);
+    SignalPlanner.plan(m_canbus, rates.statorCurrent, m_statorCurrent);
+    SignalPlanner.plan(m_canbus, rates.supplyCurrent, m_supplyCurrent);
+    SignalPlanner.plan(
+        m_canbus, rates.followedOutputs, getDutyCycle(), getMotorVoltage(), getTorqueCurrent());
+    SignalPlanner.plan(m_canbus, SignalRate.Diagnostics, getFaultField(), getStickyFaultField());
+
+    SignalPlanner.plan(
+        m_canbus,
+        SignalRate.Off,
+        getPosition(),
+        getAcceleration(),
+        getDeviceTemp(),
+        getProcessorTemp(),
+        getSupplyVoltage(),
+        getForwardLimit(),
+        getReverseLimit(),
+        getAppliedRotorPolarity(),
+        getControlMode(),
+        getMotionMagicIsRunning(),
+        getDeviceEnable(),
+        getClosedLoopSlot(),
+        getClosedLoopReference(),
+        getClosedLoopReferenceSlope(),
+        getClosedLoopError(),
+        getClosedLoopOutput(),
+        getClosedLoopProportionalOutput(),
+        getClosedLoopIntegratedOutput(),
+        getClosedLoopDerivativeOutput(),
+        getClosedLoopFeedForward());
+  }
+
+  /**
+   * Get the rotor position signal as of the last {@link SignalRegistry#refreshAll()}.
+   *
+   * @return The cached rotor position signal, in rotations.
+   */
+  @Override
+  public StatusSignalValue<Double> getRotorPosition() {
+    return m_rotorPosition;
+  }
+
+  /**
+   * Get the rotor velocity signal as of the last {@link SignalRegistry#refreshAll()}.
+   *
+   * @return The cached rotor velocity signal, in rotations per second.
+   */
+  @Override
+  public StatusSignalValue<Double> getRotorVelocity() {
+    return m_rotorVelocity;
+  }
+
+  /**
+   * Get the mechanism velocity signal as of the last {@link SignalRegistry#refreshAll()}.
+   *
+   * @return The cached velocity signal, in rotations per second.
+   */
+  @Override
+  public StatusSignalValue<Double> getVelocity() {
+    return m_velocity;
+  }
+
+  /**
+   * Get the stator current signal as of the last {@link SignalRegistry#refreshAll()}.
+   *
+   * @return The cached stator current signal, in amps.
+   */
+  @Override
+  public StatusSignalValue<Double> getStatorCurrent() {
+    return m_statorCurrent;
+  }
+
+  /**
+   * Get the supply current signal as of the last {@link SignalRegistry#refreshAll()}.
+   *
+   * @return The cached supply current signal, in amps.
+   */
+  @Override
+  public StatusSignalValue<Double> getSupplyCurrent() {
+    return m_supplyCurrent;
+  }
+
+  private void sampleInputs() {
+    m_inputs.rotorPosition = m_rotorPosition.getValue();
+    m_inputs.rotorVelocity = m_rotorVelocity.getValue();
+    m_inputs.velocity = m_velocity.getValue();
+    m_inputs.statorCurrent = m_statorCurrent.getValue();
+    m_inputs.supplyCurrent = m_supplyCurrent.getValue();
+  }
+
+  /**
+   * Get the rotor position as of the start of the cycle. Use this rather than the signal, so the
+   * value can be replayed.
+   *
+   * @return The rotor position, in rotations.
+   */
+  public double getRotorPositionRotations() {
+    return m_inputs.rotorPosition;
+  }
+
+  /**
+   * Get the rotor velocity as of the start of the cycle.
+   *
+   * @return The rotor velocity, in rotations per second.
+   */
+  public double getRotorVelocityRotationsPerSec() {
+    return m_inputs.rotorVelocity;
+  }
+
+  /**
+   * Get the mechanism velocity as of the start of the cycle.
+   *
+   * @return The velocity, in rotations per second.
+   */
+  public double getVelocityRotationsPerSec() {
+    return m_inputs.velocity;
+  }
+
+  /**
+   * Get the stator current as of the start of the cycle.
+   *
+   * @return The stator current, in amps.
+   */
+  public double getStatorCurrentAmps() {
+    return m_inputs.statorCurrent;
+  }
+
+  /**
+   * Get the supply current as of the start of the cycle.
+   *
+   * @return The supply current, in amps.
+   */
+  public double getSupplyCurrentAmps() {
+    return m_inputs.supplyCurrent;
+  }
+
   /**
    * Get the current position Rotation2d of the TalonFX.
    *
    * @return The current position Rotation2d of the TalonFX.
    */
   public Rotation2d getRotorPositionRotation2d() {
-    return Rotation2d.fromRotations(getRotorPosition().getValue());
+    return Rotation2d.fromRotations(m_inputs.rotorPosition);
   }
 
   /**
@@ -216,7 +427,7 @@ public class GreyTalonFX extends TalonFX {
    * @return The current velocity Rotation2d of the TalonFX.
    */
   public Rotation2d getRotorVelocityRotation2d() {
-    return Rotation2d.fromRotations(getRotorVelocity().getValue());
+    return Rotation2d.fromRotations(m_inputs.rotorVelocity);
   }
 
   /**
@@ -239,7 +450,7 @@ public class GreyTalonFX extends TalonFX {
    * @return Whether trap or FOC should be used.
    */
   public boolean optimizedFOC() {
-    double speedRPM = getRotorVelocity().getValue() * 60.0;
+    double speedRPM = m_inputs.rotorVelocity * 60.0;
     double tolerance = FOC_INTERCEPT_RPM * 0.02;
 
     if (m_lastOptimizedFOC) {
@@ -366,50 +577,87 @@ public class GreyTalonFX extends TalonFX {
       int slot,
       boolean overrideBrakeDurNeutral) {
 
-    ControlRequest motorOutput = new DutyCycleOut(0.0);
-
-    var currentOutputParams =
-        new OutputParams(
-            controlMode, demand, enableFOC, feedForward, slot, overrideBrakeDurNeutral);
-
-    if (m_lastOutputParams == null || !m_lastOutputParams.equals(currentOutputParams)) {
-      switch (controlMode) {
-        case DutyCycleOut:
-          motorOutput = new DutyCycleOut(demand, enableFOC, overrideBrakeDurNeutral);
-          break;
-        case MotionMagicDutyCycle:
-          motorOutput =
-              new MotionMagicDutyCycle(
-                  demand, enableFOC, feedForward, slot, overrideBrakeDurNeutral);
-          break;
-        case MotionMagicVoltage:
-          motorOutput =
-              new MotionMagicVoltage(demand, enableFOC, feedForward, slot, overrideBrakeDurNeutral);
-          break;
-        case PositionDutyCycle:
-          motorOutput =
-              new PositionDutyCycle(demand, enableFOC, feedForward, slot, overrideBrakeDurNeutral);
-          break;
-        case PositionVoltage:
-          motorOutput =
-              new PositionVoltage(demand, enableFOC, feedForward, slot, overrideBrakeDurNeutral);
-          break;
-        case VelocityDutyCycle:
-          motorOutput =
-              new VelocityDutyCycle(demand, enableFOC, feedForward, slot, overrideBrakeDurNeutral);
-          break;
-        case VelocityVoltage:
-          motorOutput =
-              new VelocityVoltage(demand, enableFOC, feedForward, slot, overrideBrakeDurNeutral);
-          break;
-        default:
-          // Uses the above DutyCycleOut set to 0.0
-          break;
-      }
+    if (m_hasLastOutput
+        && controlMode == m_outputs.controlMode
+        && Double.compare(demand, m_outputs.demand) == 0
+        && enableFOC == m_outputs.enableFOC
+        && Double.compare(feedForward, m_outputs.feedForward) == 0
+        && slot == m_outputs.slot
+        && overrideBrakeDurNeutral == m_outputs.overrideBrakeDurNeutral) {
+      return m_lastControlCode;
+    }
 
-      m_lastOutputParams = currentOutputParams;
-      m_lastControlCode = super.setControl(motorOutput);
+    final ControlRequest motorOutput;
+    switch (controlMode) {
+      case DutyCycleOut:
+        m_dutyCycleOut.Output = demand;
+        m_dutyCycleOut.EnableFOC = enableFOC;
+        m_dutyCycleOut.OverrideBrakeDurNeutral = overrideBrakeDurNeutral;
+        motorOutput = m_dutyCycleOut;
+        break;
+      case MotionMagicDutyCycle:
+        m_motionMagicDutyCycle.Position = demand;
+        m_motionMagicDutyCycle.EnableFOC = enableFOC;
+        m_motionMagicDutyCycle.FeedForward = feedForward;
+        m_motionMagicDutyCycle.Slot = slot;
+        m_motionMagicDutyCycle.OverrideBrakeDurNeutral = overrideBrakeDurNeutral;
+        motorOutput = m_motionMagicDutyCycle;
+        break;
+      case MotionMagicVoltage:
+        m_motionMagicVoltage.Position = demand;
+        m_motionMagicVoltage.EnableFOC = enableFOC;
+        m_motionMagicVoltage.FeedForward = feedForward;
+        m_motionMagicVoltage.Slot = slot;
+        m_motionMagicVoltage.OverrideBrakeDurNeutral = overrideBrakeDurNeutral;
+        motorOutput = m_motionMagicVoltage;
+        break;
+      case PositionDutyCycle:
+        m_positionDutyCycle.Position = demand;
+        m_positionDutyCycle.EnableFOC = enableFOC;
+        m_positionDutyCycle.FeedForward = feedForward;
+        m_positionDutyCycle.Slot = slot;
+        m_positionDutyCycle.OverrideBrakeDurNeutral = overrideBrakeDurNeutral;
+        motorOutput = m_positionDutyCycle;
+        break;
+      case PositionVoltage:
+        m_positionVoltage.Position = demand;
+        m_positionVoltage.EnableFOC = enableFOC;
+        m_positionVoltage.FeedForward = feedForward;
+        m_positionVoltage.Slot = slot;
+        m_positionVoltage.OverrideBrakeDurNeutral = overrideBrakeDurNeutral;
+        motorOutput = m_positionVoltage;
+        break;
+      case VelocityDutyCycle:
+        m_velocityDutyCycle.Velocity = demand;
+        m_velocityDutyCycle.EnableFOC = enableFOC;
+        m_velocityDutyCycle.FeedForward = feedForward;
+        m_velocityDutyCycle.Slot = slot;
+        m_velocityDutyCycle.OverrideBrakeDurNeutral = overrideBrakeDurNeutral;
+        motorOutput = m_velocityDutyCycle;
+        break;
+      case VelocityVoltage:
+        m_velocityVoltage.Velocity = demand;
+        m_velocityVoltage.EnableFOC = enableFOC;
+        m_velocityVoltage.FeedForward = feedForward;
+        m_velocityVoltage.Slot = slot;
+        m_velocityVoltage.OverrideBrakeDurNeutral = overrideBrakeDurNeutral;
+        motorOutput = m_velocityVoltage;
+        break;
+      default:
+        // Neutral output
+        m_dutyCycleOut.Output = 0.0;
+        motorOutput = m_dutyCycleOut;
+        break;
     }
+
+    m_hasLastOutput = true;
+    m_outputs.controlMode = controlMode;
+    m_outputs.demand = demand;
+    m_outputs.enableFOC = enableFOC;
+    m_outputs.feedForward = feedForward;
+    m_outputs.slot = slot;
+    m_outputs.overrideBrakeDurNeutral = overrideBrakeDurNeutral;
+    m_lastControlCode = super.setControl(motorOutput);
     return m_lastControlCode;
   }
 
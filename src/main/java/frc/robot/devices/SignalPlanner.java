@@ -0,0 +1,99 @@
+package frc.robot.devices;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import frc.robot.telemetry.Telemetry;
+
+import com.ctre.phoenixpro.BaseStatusSignalValue;
+
+/**
+ * Sets status signal update rates and keeps track of the resulting CAN traffic.
+ *
+ * <p>Devices declare a {@link SignalRate} for every status signal they send, turning off the ones
+ * nothing reads. The planner applies the rates and predicts the frames per second each bus will
+ * carry, and the bus utilization that comes to, in the same units the CAN bus monitor measures.
+ * Every planned signal counts as its own frame. Phoenix packs some signals into shared frames, so
+ * the prediction is an upper bound.
+ */
+public final class SignalPlanner {
+  /** An 8 byte frame with an extended ID, with interframe space and typical bit stuffing. */
+  private static final double BITS_PER_FRAME = 140.0;
+  /** The nominal bit rate of both buses. The CANivore sends CAN FD data faster than this. */
+  private static final double BUS_BITS_PER_SECOND = 1.0e6;
+
+  private static final Map<String, Map<BaseStatusSignalValue, Double>> m_ratesByBus =
+      new HashMap<>();
+
+  private SignalPlanner() {}
+
+  /**
+   * Sets the update rate of signals.
+   *
+   * @param canbus The CAN bus the signals' device is on.
+   * @param rate The rate to publish the signals at.
+   * @param signals The signals.
+   */
+  public static void plan(String canbus, SignalRate rate, BaseStatusSignalValue... signals) {
+    var busRates = m_ratesByBus.computeIfAbsent(canbus, bus -> new IdentityHashMap<>());
+    for (var signal : signals) {
+      signal.setUpdateFrequency(rate.getFrequencyHz());
+      busRates.put(signal, rate.getFrequencyHz());
+    }
+  }
+
+  /**
+   * Returns the rate a signal was planned at.
+   *
+   * @param signal The signal.
+   * @return The signal's update frequency, in hertz, or 0 if it was never planned.
+   */
+  public static double getFrequencyHz(BaseStatusSignalValue signal) {
+    for (var busRates : m_ratesByBus.values()) {
+      final Double rate = busRates.get(signal);
+      if (rate != null) {
+        return rate;
+      }
+    }
+    return 0.0;
+  }
+
+  /**
+   * Returns the predicted frames per second of the planned signals on a bus.
+   *
+   * @param canbus The CAN bus.
+   * @return The predicted frames per second.
+   */
+  public static double getPredictedFramesPerSecond(String canbus) {
+    double total = 0.0;
+    for (double rate : m_ratesByBus.getOrDefault(canbus, Map.of()).values()) {
+      total += rate;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the predicted utilization of a bus from its planned signals.
+   *
+   * @param canbus The CAN bus.
+   * @return The predicted utilization, in percent.
+   */
+  public static double getPredictedUtilizationPercent(String canbus) {
+    return getPredictedFramesPerSecond(canbus) * BITS_PER_FRAME / BUS_BITS_PER_SECOND * 100.0;
+  }
+
+  /**
+   * Publishes the predicted frames per second and utilization of every bus. Call this once after
+   * robotInit.
+   */
+  public static void report() {
+    for (var canbus : m_ratesByBus.keySet()) {
+      final String name = canbus.isEmpty() ? "rio" : canbus;
+      Telemetry.doubleEntry("CAN " + name + " Predicted FPS")
+          .set(getPredictedFramesPerSecond(canbus));
+      Telemetry.doubleEntry("CAN " + name + " Predicted Utilization")
+          .set(getPredictedUtilizationPercent(canbus));
+    }
+  }
+}
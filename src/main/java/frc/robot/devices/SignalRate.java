@@ -0,0 +1,25 @@
+package frc.robot.devices;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/** How often a status signal is published, based on what reads it. */
+@Accessors(prefix = "m_")
+public enum SignalRate {
+  /** Sampled by the swerve odometry thread. */
+  Odometry(250.0),
+  /** Read by a control loop every robot cycle. */
+  Control(100.0),
+  /** Only read for debug dashboards. */
+  Debug(4.0),
+  /** Not read by the code, but kept so faults show up in Phoenix Tuner and the logs. */
+  Diagnostics(4.0),
+  /** Not read at all. */
+  Off(0.0);
+
+  @Getter private final double m_frequencyHz;
+
+  SignalRate(double frequencyHz) {
+    m_frequencyHz = frequencyHz;
+  }
+}
@@ -0,0 +1,87 @@
+package frc.robot.devices;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ctre.phoenixpro.BaseStatusSignalValue;
+
+/**
+ * Refreshes every registered status signal once per robot cycle.
+ *
+ * <p>Devices register the signals they read at construction and then only ever call {@code
+ * getValue()} on them, which returns the cached value without touching the CAN bus. {@link
+ * #refreshAll()} updates all of them with one {@link BaseStatusSignalValue#refreshAll} call per
+ * bus, so every caller sees the same values for the rest of the cycle.
+ *
+ * <p>Each device also names one of its signals as a heartbeat. Bus health monitoring uses the
+ * heartbeat timestamps to tell when a device stops reporting.
+ */
+public final class SignalRegistry {
+  private static final Map<String, List<BaseStatusSignalValue>> m_signalsByBus = new HashMap<>();
+  private static BaseStatusSignalValue[][] m_signalGroups = new BaseStatusSignalValue[0][];
+
+  private static final List<String> m_heartbeatDevices = new ArrayList<>();
+  private static final List<BaseStatusSignalValue> m_heartbeatSignals = new ArrayList<>();
+
+  private SignalRegistry() {}
+
+  /**
+   * Registers signals to be refreshed every cycle.
+   *
+   * @param canbus The CAN bus the signals' device is on.
+   * @param signals The signals to refresh.
+   */
+  public static void register(String canbus, BaseStatusSignalValue... signals) {
+    var busSignals = m_signalsByBus.computeIfAbsent(canbus, bus -> new ArrayList<>());
+    for (var signal : signals) {
+      busSignals.add(signal);
+    }
+
+    var groups = new BaseStatusSignalValue[m_signalsByBus.size()][];
+    int i = 0;
+    for (var group : m_signalsByBus.values()) {
+      groups[i++] = group.toArray(new BaseStatusSignalValue[0]);
+    }
+    m_signalGroups = groups;
+  }
+
+  /**
+   * Registers the signal that shows whether a device is still reporting. The signal should also be
+   * registered with {@link #register(String, BaseStatusSignalValue...)} so it stays fresh.
+   *
+   * @param device The name of the device.
+   * @param signal The device's fastest refreshed signal.
+   */
+  public static void registerHeartbeat(String device, BaseStatusSignalValue signal) {
+    m_heartbeatDevices.add(device);
+    m_heartbeatSignals.add(signal);
+  }
+
+  /**
+   * Returns the names of the devices with a heartbeat, in registration order.
+   *
+   * @return The device names.
+   */
+  public static List<String> getHeartbeatDevices() {
+    return Collections.unmodifiableList(m_heartbeatDevices);
+  }
+
+  /**
+   * Returns the heartbeat signals, in the same order as {@link #getHeartbeatDevices()}.
+   *
+   * @return The heartbeat signals.
+   */
+  public static List<BaseStatusSignalValue> getHeartbeatSignals() {
+    return Collections.unmodifiableList(m_heartbeatSignals);
+  }
+
+  /** Refreshes all registered signals. Call this once at the start of every robot cycle. */
+  public static void refreshAll() {
+    for (var group : m_signalGroups) {
+      BaseStatusSignalValue.refreshAll(group);
+    }
+  }
+}
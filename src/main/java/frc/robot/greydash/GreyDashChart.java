@@ -1,23 +1,53 @@
 package frc.robot.greydash;
 
-import java.io.IOException;
-import java.util.Date;
+import static frc.robot.greydash.GreyDashConstants.*;
+
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.IntegerSubscriber;
 import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.networktables.StringArrayPublisher;
+import edu.wpi.first.wpilibj.Timer;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 
-/** A chart that can be displayed on the GreyDash dashboard. */
+/**
+ * A chart that can be displayed on the GreyDash dashboard.
+ *
+ * <p>Each series keeps its latest points in a fixed-size ring buffer of timestamps and values, so
+ * adding a point never allocates. New points are published in batches, at most {@link
+ * #getPublishRateHz()} times a second. When the dashboard connects, it can change the chart's
+ * backfill topic to have everything still in the buffers published to the history topic.
+ *
+ * <p>The data and history topics are double arrays of consecutive blocks, one per series with
+ * points: [series index, point count, timestamp, value, timestamp, value, ...]. Timestamps are
+ * robot (FPGA) time in seconds. The series topic lists the series labels in index order.
+ */
 @Accessors(prefix = "m_")
 public class GreyDashChart {
+  public static final double DEFAULT_PUBLISH_RATE_HZ = 10.0;
+  /** Ten seconds of points added every loop. */
+  public static final int DEFAULT_CAPACITY = 500;
+
   @Getter private final String m_name;
-  @Getter private final HashMap<String, Series> m_seriesMap;
-  private int m_numIdx = 0;
+  @Getter private final double m_publishRateHz;
+  private final double m_publishPeriodSec;
+  private final int m_capacity;
+
+  private final List<Series> m_series = new ArrayList<>();
+  private final List<String> m_labels = new ArrayList<>();
+  private final Map<String, Series> m_seriesByLabel = new HashMap<>();
+  private double m_lastPublishSec = Double.NEGATIVE_INFINITY;
+  private long m_lastBackfillRequest = 0;
 
-  private final StringPublisher m_publisher;
+  private final StringArrayPublisher m_seriesPublisher;
+  private final DoubleArrayPublisher m_dataPublisher;
+  private final DoubleArrayPublisher m_historyPublisher;
+  private final IntegerSubscriber m_backfillSubscriber;
 
   /**
    * Creates a new chart with the given name. You probably want to use the static method in
@@ -27,72 +57,176 @@ public class GreyDashChart {
    * @param name The name of the chart.
    */
   public GreyDashChart(final NetworkTable chartsTable, final String name) {
-    m_publisher = chartsTable.getStringTopic(name).publish();
-    m_seriesMap = new HashMap<>();
+    this(chartsTable, name, DEFAULT_PUBLISH_RATE_HZ, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a new chart with the given name. You probably want to use the static method in
+   * GreyDashClient instead.
+   *
+   * @param chartsTable The NetworkTable that contains the charts.
+   * @param name The name of the chart.
+   * @param publishRateHz How many times a second new points are published.
+   * @param capacity How many points each series keeps for backfilling.
+   */
+  public GreyDashChart(
+      final NetworkTable chartsTable,
+      final String name,
+      final double publishRateHz,
+      final int capacity) {
     m_name = name;
+    m_publishRateHz = publishRateHz;
+    m_publishPeriodSec = 1.0 / publishRateHz;
+    m_capacity = capacity;
+
+    final NetworkTable table = chartsTable.getSubTable(name);
+    m_seriesPublisher = table.getStringArrayTopic(CHART_SERIES_TOPIC).publish();
+    m_dataPublisher = table.getDoubleArrayTopic(CHART_DATA_TOPIC).publish();
+    m_historyPublisher = table.getDoubleArrayTopic(CHART_HISTORY_TOPIC).publish();
+    m_backfillSubscriber = table.getIntegerTopic(CHART_BACKFILL_TOPIC).subscribe(0);
   }
 
   /**
-   * Adds a data point to a given series on the chart.
+   * Adds a data point to a given series on the chart, and publishes the new points if it is time
+   * to.
    *
    * @param label The label of the data series.
    * @param value The value of the data point.
    */
   public void addDataToSeries(final String label, final double value) {
-    if (!m_seriesMap.containsKey(label)) {
-      m_seriesMap.put(label, new Series(m_numIdx));
-      m_numIdx++;
+    Series series = m_seriesByLabel.get(label);
+    if (series == null) {
+      series = new Series(m_series.size(), m_capacity);
+      m_series.add(series);
+      m_seriesByLabel.put(label, series);
+      m_labels.add(label);
+      m_seriesPublisher.set(m_labels.toArray(new String[0]));
     }
-    Series series = m_seriesMap.get(label);
-    series.updateValue(value, new Date());
 
-    updateNT();
+    series.add(Timer.getFPGATimestamp(), value);
+    update();
+  }
+
+  /** Publishes the new points if it has been long enough since they were last published. */
+  public void update() {
+    if (Timer.getFPGATimestamp() - m_lastPublishSec >= m_publishPeriodSec) {
+      publish();
+    }
   }
 
-  /** A data series on a chart. */
-  private class Series {
-    @Getter private final int m_index;
-    @Getter private Double m_latestValue;
-    @Getter private Date m_timestamp;
+  /**
+   * Publishes the points added since the last publish, and the whole history if the dashboard
+   * asked for it.
+   */
+  public void publish() {
+    m_lastPublishSec = Timer.getFPGATimestamp();
+
+    final long backfillRequest = m_backfillSubscriber.get();
+    if (backfillRequest != m_lastBackfillRequest) {
+      m_lastBackfillRequest = backfillRequest;
+      m_historyPublisher.set(encode(true));
+    }
+
+    for (Series series : m_series) {
+      if (series.getNumUnpublished() > 0) {
+        m_dataPublisher.set(encode(false));
+        return;
+      }
+    }
+  }
+
+  /**
+   * Encodes points from every series into a single array, and marks them all published.
+   *
+   * @param history Whether to encode every stored point, rather than only the unpublished ones.
+   * @return The encoded points.
+   */
+  private double[] encode(boolean history) {
+    int length = 0;
+    for (Series series : m_series) {
+      final int count = history ? series.getNumStored() : series.getNumUnpublished();
+      if (count > 0) {
+        length += 2 + 2 * count;
+      }
+    }
+
+    final double[] encoded = new double[length];
+    int position = 0;
+    for (Series series : m_series) {
+      final int count = history ? series.getNumStored() : series.getNumUnpublished();
+      if (count > 0) {
+        position = series.encode(encoded, position, count);
+      }
+      // The history has every unpublished point too, so the next delta mustn't repeat them
+      series.markPublished();
+    }
+    return encoded;
+  }
+
+  /** A data series on a chart, holding its latest points in a ring buffer. */
+  private static class Series {
+    private final int m_index;
+    private final double[] m_timestamps;
+    private final double[] m_values;
+    /** Total number of points ever added. */
+    private long m_numAdded = 0;
+    /** Total number of points published as deltas. */
+    private long m_numPublished = 0;
 
     /**
      * Creates a new data series.
      *
      * @param index The index of the series.
+     * @param capacity The number of points to keep.
      */
-    public Series(int index) {
+    public Series(int index, int capacity) {
       m_index = index;
+      m_timestamps = new double[capacity];
+      m_values = new double[capacity];
     }
 
     /**
-     * Updates the current value of the series.
+     * Adds a point, replacing the oldest one if the buffer is full.
      *
+     * @param timestamp The timestamp of the value, in seconds.
      * @param value The new value.
-     * @param timestamp The timestamp of the value.
      */
-    public void updateValue(double value, Date timestamp) {
-      m_latestValue = value;
-      m_timestamp = timestamp;
+    public void add(double timestamp, double value) {
+      final int slot = (int) (m_numAdded % m_timestamps.length);
+      m_timestamps[slot] = timestamp;
+      m_values[slot] = value;
+      m_numAdded++;
     }
-  }
 
-  /**
-   * Converts the chart to a JSON string.
-   *
-   * @return The JSON string.
-   * @throws IOException If the JSON string cannot be created.
-   */
-  public String toJson() throws IOException {
-    ObjectMapper mapper = new ObjectMapper();
-    return mapper.writeValueAsString(this);
-  }
+    public int getNumStored() {
+      return (int) Math.min(m_numAdded, m_timestamps.length);
+    }
+
+    public int getNumUnpublished() {
+      return (int) Math.min(m_numAdded - m_numPublished, m_timestamps.length);
+    }
 
-  /** Updates the NetworkTable with the current chart data. */
-  public void updateNT() {
-    try {
-      m_publisher.set(toJson());
-    } catch (IOException e) {
-      System.err.println(e);
+    public void markPublished() {
+      m_numPublished = m_numAdded;
+    }
+
+    /**
+     * Writes the latest points as a block of [index, count, timestamp, value, ...].
+     *
+     * @param out The array to write to.
+     * @param position Where to start writing.
+     * @param count The number of points to write, oldest first.
+     * @return The position after the block.
+     */
+    public int encode(double[] out, int position, int count) {
+      out[position++] = m_index;
+      out[position++] = count;
+      for (long i = m_numAdded - count; i < m_numAdded; i++) {
+        final int slot = (int) (i % m_timestamps.length);
+        out[position++] = m_timestamps[slot];
+        out[position++] = m_values[slot];
+      }
+      return position;
     }
   }
 }
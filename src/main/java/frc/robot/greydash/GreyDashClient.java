@@ -2,13 +2,18 @@ package frc.robot.greydash;
 
 import static frc.robot.greydash.GreyDashConstants.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 
 import frc.robot.AutoManager.AutoMode;
 import frc.robot.subsystems.Superstructure.GamePiece;
 
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
 import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.StringArrayPublisher;
@@ -27,6 +32,9 @@ public final class GreyDashClient {
   private static final NetworkTable m_matchTable = m_greyDashTable.getSubTable(MATCH_TABLE);
   private static final NetworkTable m_devicesTable = m_greyDashTable.getSubTable(DEVICES_TABLE);
   private static final NetworkTable m_chartsTable = m_greyDashTable.getSubTable(CHARTS_TABLE);
+  private static final NetworkTable m_profilerTable = m_greyDashTable.getSubTable(PROFILER_TABLE);
+  private static final NetworkTable m_governorTable = m_greyDashTable.getSubTable(GOVERNOR_TABLE);
+  private static final NetworkTable m_canBusTable = m_greyDashTable.getSubTable(CAN_BUS_TABLE);
 
   // Device Tables
   private static final NetworkTable m_gyroTable = m_devicesTable.getSubTable(GYRO_TABLE);
@@ -56,6 +64,7 @@ public final class GreyDashClient {
       m_matchTable.getDoubleTopic(MATCH_TIME_TOPIC).publish();
   private static final StringPublisher m_matchMode =
       m_matchTable.getStringTopic(MATCH_MODE_TOPIC).publish();
+  private static String m_lastMatchMode = null;
 
   // Gyro Topics
   private static final DoublePublisher m_gyroAngle =
@@ -65,13 +74,91 @@ public final class GreyDashClient {
     m_gyroAngle.set(angle);
   }
 
+  // Loop governor Topics
+  private static final StringPublisher m_governorMode =
+      m_governorTable.getStringTopic(GOVERNOR_MODE_TOPIC).publish();
+  private static String m_lastGovernorMode = null;
+  private static final DoublePublisher m_governorHeadroom =
+      m_governorTable.getDoubleTopic(GOVERNOR_HEADROOM_TOPIC).publish();
+  private static final IntegerPublisher m_governorShedCount =
+      m_governorTable.getIntegerTopic(GOVERNOR_SHED_COUNT_TOPIC).publish();
+
+  /**
+   * Publishes the loop budget governor status. The mode is only published when it changes.
+   *
+   * @param mode The current governor mode.
+   * @param headroomMs The time left in the last cycle, in milliseconds.
+   * @param shedCount The total number of skipped debug dashboard updates.
+   */
+  public static void setLoopGovernorStatus(String mode, double headroomMs, long shedCount) {
+    if (!mode.equals(m_lastGovernorMode)) {
+      m_governorMode.set(mode);
+      m_lastGovernorMode = mode;
+    }
+    m_governorHeadroom.set(headroomMs);
+    m_governorShedCount.set(shedCount);
+  }
+
+  // CAN bus Topics
+  private static final StringArrayPublisher m_canDeviceNames =
+      m_canBusTable.getStringArrayTopic(CAN_DEVICE_NAMES_TOPIC).publish();
+  private static String[] m_lastCANDeviceNames = null;
+  private static final DoubleArrayPublisher m_canDeviceStaleness =
+      m_canBusTable.getDoubleArrayTopic(CAN_DEVICE_STALENESS_TOPIC).publish();
+  private static final BooleanPublisher m_canAlert =
+      m_canBusTable.getBooleanTopic(CAN_ALERT_TOPIC).publish();
+
+  /**
+   * Creates a publisher for a CAN bus's status. Values are published as [utilization percent,
+   * bus-off count, TX full count, RX error count, TX error count].
+   *
+   * @param bus The name of the CAN bus.
+   * @return The publisher for the bus status.
+   */
+  public static DoubleArrayPublisher createCANBusPublisher(final String bus) {
+    return m_canBusTable.getSubTable(bus).getDoubleArrayTopic(CAN_BUS_STATUS_TOPIC).publish();
+  }
+
+  /**
+   * Publishes how long each CAN device has gone without reporting. The names are only published
+   * when a different array is passed.
+   *
+   * @param deviceNames The names of the devices.
+   * @param stalenessMs The time since each device last reported, in milliseconds.
+   * @param alert Whether any bus or device crossed an alert threshold.
+   */
+  public static void setCANDeviceStatus(
+      final String[] deviceNames, final double[] stalenessMs, final boolean alert) {
+    if (deviceNames != m_lastCANDeviceNames) {
+      m_canDeviceNames.set(deviceNames);
+      m_lastCANDeviceNames = deviceNames;
+    }
+    m_canDeviceStaleness.set(stalenessMs);
+    m_canAlert.set(alert);
+  }
+
   // Charts publisher
   private static final StringArrayPublisher m_charts =
       m_chartsTable.getStringArrayTopic(CHARTS_TOPIC).publish();
   private static final HashSet<String> m_chartSet = new HashSet<>();
+  private static final List<GreyDashChart> m_chartList = new ArrayList<>();
 
   /** Creates a new chart with the given name. */
   public static GreyDashChart createChart(final String name) {
+    return createChart(
+        name, GreyDashChart.DEFAULT_PUBLISH_RATE_HZ, GreyDashChart.DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a new chart with the given name.
+   *
+   * @param name The name of the chart.
+   * @param publishRateHz How many times a second new points are published.
+   * @param capacity How many points each series keeps for backfilling.
+   * @return The chart.
+   */
+  public static GreyDashChart createChart(
+      final String name, final double publishRateHz, final int capacity) {
     if (name == CHARTS_TOPIC) {
       throw new Error("Reserved chart name: " + CHARTS_TOPIC);
     }
@@ -79,7 +166,27 @@ public final class GreyDashClient {
     m_chartSet.add(name);
     m_charts.set(m_chartSet.toArray(new String[0]));
 
-    return new GreyDashChart(m_chartsTable, name);
+    final GreyDashChart chart = new GreyDashChart(m_chartsTable, name, publishRateHz, capacity);
+    m_chartList.add(chart);
+    return chart;
+  }
+
+  /**
+   * Creates a publisher for a loop profiler histogram. Values are published as [p50, p95, p99, max,
+   * count], with latencies in microseconds.
+   *
+   * @param phase The match phase the histogram covers.
+   * @param subsystem The name of the profiled subsystem.
+   * @param section The name of the profiled section.
+   * @return The publisher for the histogram.
+   */
+  public static DoubleArrayPublisher createProfilerPublisher(
+      final String phase, final String subsystem, final String section) {
+    return m_profilerTable
+        .getSubTable(phase)
+        .getSubTable(subsystem)
+        .getDoubleArrayTopic(section)
+        .publish();
   }
 
   /**
@@ -168,6 +275,14 @@ public final class GreyDashClient {
   /** Periodic update method. This should be called periodically to update the dashboard. */
   public static void update() {
     m_matchTime.set(DriverStation.getMatchTime());
-    m_matchMode.set(getModeString());
+    final String matchMode = getModeString();
+    if (!matchMode.equals(m_lastMatchMode)) {
+      m_matchMode.set(matchMode);
+      m_lastMatchMode = matchMode;
+    }
+
+    for (GreyDashChart chart : m_chartList) {
+      chart.update();
+    }
   }
 }
@@ -9,6 +9,9 @@ public final class GreyDashConstants {
   public static final String MATCH_TABLE = "match";
   public static final String DEVICES_TABLE = "devices";
   public static final String CHARTS_TABLE = "charts";
+  public static final String PROFILER_TABLE = "profiler";
+  public static final String GOVERNOR_TABLE = "governor";
+  public static final String CAN_BUS_TABLE = "canbus";
 
   // Device Tables
   public static final String GYRO_TABLE = "gyro";
@@ -35,6 +38,21 @@ public final class GreyDashConstants {
 
   // Charts
   public static final String CHARTS_TOPIC = "list";
+  public static final String CHART_SERIES_TOPIC = "series";
+  public static final String CHART_DATA_TOPIC = "data";
+  public static final String CHART_HISTORY_TOPIC = "history";
+  public static final String CHART_BACKFILL_TOPIC = "backfill";
+
+  // Loop governor
+  public static final String GOVERNOR_MODE_TOPIC = "mode";
+  public static final String GOVERNOR_HEADROOM_TOPIC = "headroomMs";
+  public static final String GOVERNOR_SHED_COUNT_TOPIC = "shedCount";
+
+  // CAN bus
+  public static final String CAN_BUS_STATUS_TOPIC = "status";
+  public static final String CAN_DEVICE_NAMES_TOPIC = "deviceNames";
+  public static final String CAN_DEVICE_STALENESS_TOPIC = "deviceStalenessMs";
+  public static final String CAN_ALERT_TOPIC = "alert";
 
   public static String getModeString() {
     if (DriverStation.isDisabled()) {
@@ -0,0 +1,59 @@
+package frc.robot.replay;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+
+/**
+ * The axes, buttons and POV of one controller. Recorded every cycle, and fed back into the
+ * simulated driver station while replaying, so the XboxControllers read exactly what the drivers
+ * did, including button presses and releases.
+ */
+public final class ControllerInputs extends LoggedValues {
+  /** The most axes the driver station reports for a controller. */
+  private static final int MAX_AXES = 12;
+
+  public final double[] axes = new double[MAX_AXES];
+  public int axisCount;
+  /** One bit per button, button 1 in the lowest bit. */
+  public int buttons;
+  public int buttonCount;
+  public int pov = -1;
+  public int povCount;
+
+  private final int m_port;
+
+  /**
+   * Creates a new ControllerInputs.
+   *
+   * @param port The driver station port of the controller.
+   */
+  public ControllerInputs(int port) {
+    m_port = port;
+  }
+
+  /** Reads the latest controller data. */
+  void sample() {
+    axisCount = Math.min(DriverStation.getStickAxisCount(m_port), MAX_AXES);
+    for (int i = 0; i < MAX_AXES; i++) {
+      axes[i] = i < axisCount ? DriverStation.getStickAxis(m_port, i) : 0.0;
+    }
+    buttons = DriverStation.getStickButtons(m_port);
+    buttonCount = DriverStation.getStickButtonCount(m_port);
+    povCount = DriverStation.getStickPOVCount(m_port);
+    pov = povCount > 0 ? DriverStation.getStickPOV(m_port, 0) : -1;
+  }
+
+  /** Sets the simulated controller to the replayed values. */
+  void apply() {
+    DriverStationSim.setJoystickAxisCount(m_port, axisCount);
+    for (int i = 0; i < axisCount; i++) {
+      DriverStationSim.setJoystickAxis(m_port, i, axes[i]);
+    }
+    DriverStationSim.setJoystickButtonCount(m_port, buttonCount);
+    DriverStationSim.setJoystickButtons(m_port, buttons);
+    DriverStationSim.setJoystickPOVCount(m_port, povCount);
+    if (povCount > 0) {
+      DriverStationSim.setJoystickPOV(m_port, 0, pov);
+    }
+  }
+}
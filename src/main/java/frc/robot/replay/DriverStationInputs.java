@@ -0,0 +1,69 @@
+package frc.robot.replay;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+
+/**
+ * The robot's mode and alliance from the driver station. Recorded every cycle, and fed back into
+ * the simulated driver station while replaying, so the robot goes through the same modes.
+ */
+public final class DriverStationInputs extends LoggedValues {
+  public boolean enabled;
+  public boolean autonomous;
+  public boolean test;
+  public boolean emergencyStopped;
+  public boolean dsAttached;
+  public boolean fmsAttached;
+  public Alliance alliance = Alliance.Invalid;
+  public int location;
+  public double matchTimeSec;
+
+  /** Reads the latest driver station data. */
+  void sample() {
+    enabled = DriverStation.isEnabled();
+    autonomous = DriverStation.isAutonomous();
+    test = DriverStation.isTest();
+    emergencyStopped = DriverStation.isEStopped();
+    dsAttached = DriverStation.isDSAttached();
+    fmsAttached = DriverStation.isFMSAttached();
+    alliance = DriverStation.getAlliance();
+    location = DriverStation.getLocation();
+    matchTimeSec = DriverStation.getMatchTime();
+  }
+
+  /** Sets the simulated driver station to the replayed values. */
+  void apply() {
+    DriverStationSim.setEnabled(enabled);
+    DriverStationSim.setAutonomous(autonomous);
+    DriverStationSim.setTest(test);
+    DriverStationSim.setEStop(emergencyStopped);
+    DriverStationSim.setDsAttached(dsAttached);
+    DriverStationSim.setFmsAttached(fmsAttached);
+    DriverStationSim.setAllianceStationId(getAllianceStationId());
+    DriverStationSim.setMatchTime(matchTimeSec);
+  }
+
+  private AllianceStationID getAllianceStationId() {
+    if (alliance == Alliance.Blue) {
+      switch (location) {
+        case 2:
+          return AllianceStationID.Blue2;
+        case 3:
+          return AllianceStationID.Blue3;
+        default:
+          return AllianceStationID.Blue1;
+      }
+    }
+
+    switch (location) {
+      case 2:
+        return AllianceStationID.Red2;
+      case 3:
+        return AllianceStationID.Red3;
+      default:
+        return AllianceStationID.Red1;
+    }
+  }
+}
@@ -0,0 +1,266 @@
+package frc.robot.replay;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A set of values recorded every cycle, such as the inputs a subsystem reads from its hardware or
+ * the outputs it sends.
+ *
+ * <p>Subclasses declare public, non-final fields of type double, long, int, boolean or an enum, or
+ * public final double arrays. Arrays must be created by the field initializer, since their length
+ * is part of the log format. Each field, or array element, is one column of the log. Columns are
+ * ordered by name, so the layout doesn't depend on the order the fields are declared in.
+ *
+ * <p>The fields are found with reflection once, when the values are first registered with the
+ * {@link ReplayLog}. Reading and writing them after that doesn't allocate.
+ */
+public abstract class LoggedValues {
+  /** How a column is stored in a frame. */
+  public enum ColumnType {
+    Double(8),
+    Long(8),
+    Int(4),
+    Boolean(1);
+
+    private final int m_sizeBytes;
+
+    ColumnType(int sizeBytes) {
+      m_sizeBytes = sizeBytes;
+    }
+
+    public int getSizeBytes() {
+      return m_sizeBytes;
+    }
+  }
+
+  /** The name and type of one column. */
+  public static final class Column {
+    private final String m_name;
+    private final ColumnType m_type;
+
+    public Column(String name, ColumnType type) {
+      m_name = name;
+      m_type = type;
+    }
+
+    public String getName() {
+      return m_name;
+    }
+
+    public ColumnType getType() {
+      return m_type;
+    }
+  }
+
+  /** Reads and writes the field behind one column. */
+  private static final class Accessor {
+    private final Field m_field;
+    private final ColumnType m_type;
+    /** The array behind the column, or null if the field isn't an array. */
+    private final double[] m_array;
+    private final int m_index;
+    /** The constants of the field's enum, or null if the field isn't an enum. */
+    private final Object[] m_enumConstants;
+
+    private Accessor(Field field, ColumnType type, double[] array, int index) {
+      m_field = field;
+      m_type = type;
+      m_array = array;
+      m_index = index;
+      m_enumConstants = field.getType().isEnum() ? field.getType().getEnumConstants() : null;
+    }
+  }
+
+  private List<Column> m_columns = null;
+  private Accessor[] m_accessors = null;
+  private int m_sizeBytes = 0;
+
+  /**
+   * Returns the columns these values are stored as, in the order they are stored.
+   *
+   * @return The columns.
+   */
+  public final List<Column> getColumns() {
+    ensureSchema();
+    return m_columns;
+  }
+
+  /**
+   * Returns how many bytes these values take in a frame.
+   *
+   * @return The size in bytes.
+   */
+  public final int getSizeBytes() {
+    ensureSchema();
+    return m_sizeBytes;
+  }
+
+  /**
+   * Called after the values are read from a log while replaying. Override this to update anything
+   * that is derived from the values.
+   */
+  protected void onReplay() {}
+
+  /**
+   * Writes every column to the buffer, advancing its position.
+   *
+   * @param buffer The buffer to write to.
+   */
+  final void write(ByteBuffer buffer) {
+    ensureSchema();
+    try {
+      for (Accessor accessor : m_accessors) {
+        switch (accessor.m_type) {
+          case Double:
+            buffer.putDouble(
+                accessor.m_array != null
+                    ? accessor.m_array[accessor.m_index]
+                    : accessor.m_field.getDouble(this));
+            break;
+          case Long:
+            buffer.putLong(accessor.m_field.getLong(this));
+            break;
+          case Int:
+            if (accessor.m_enumConstants != null) {
+              final Enum<?> value = (Enum<?>) accessor.m_field.get(this);
+              buffer.putInt(value == null ? -1 : value.ordinal());
+            } else {
+              buffer.putInt(accessor.m_field.getInt(this));
+            }
+            break;
+          case Boolean:
+            buffer.put(accessor.m_field.getBoolean(this) ? (byte) 1 : (byte) 0);
+            break;
+          default:
+            break;
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Reads the columns from a frame, without changing the buffer's position. Columns that weren't
+   * recorded keep their current values.
+   *
+   * @param buffer The buffer holding the frame.
+   * @param frameOffset Where the frame starts in the buffer.
+   * @param offsets The offset of each column from the start of the frame, or -1 if it wasn't
+   *     recorded.
+   */
+  final void read(ByteBuffer buffer, int frameOffset, int[] offsets) {
+    ensureSchema();
+    try {
+      for (int i = 0; i < m_accessors.length; i++) {
+        final Accessor accessor = m_accessors[i];
+        if (offsets[i] < 0) {
+          continue;
+        }
+
+        final int offset = frameOffset + offsets[i];
+        switch (accessor.m_type) {
+          case Double:
+            if (accessor.m_array != null) {
+              accessor.m_array[accessor.m_index] = buffer.getDouble(offset);
+            } else {
+              accessor.m_field.setDouble(this, buffer.getDouble(offset));
+            }
+            break;
+          case Long:
+            accessor.m_field.setLong(this, buffer.getLong(offset));
+            break;
+          case Int:
+            if (accessor.m_enumConstants != null) {
+              final int ordinal = buffer.getInt(offset);
+              if (ordinal >= 0 && ordinal < accessor.m_enumConstants.length) {
+                accessor.m_field.set(this, accessor.m_enumConstants[ordinal]);
+              }
+            } else {
+              accessor.m_field.setInt(this, buffer.getInt(offset));
+            }
+            break;
+          case Boolean:
+            accessor.m_field.setBoolean(this, buffer.get(offset) != 0);
+            break;
+          default:
+            break;
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+    onReplay();
+  }
+
+  /** Finds the public fields and works out the columns, the first time they are needed. */
+  private void ensureSchema() {
+    if (m_accessors != null) {
+      return;
+    }
+
+    final Field[] fields = getClass().getFields();
+    Arrays.sort(fields, Comparator.comparing(Field::getName));
+
+    final List<Column> columns = new ArrayList<>();
+    final List<Accessor> accessors = new ArrayList<>();
+    int sizeBytes = 0;
+    for (Field field : fields) {
+      if (Modifier.isStatic(field.getModifiers())) {
+        continue;
+      }
+
+      final Class<?> type = field.getType();
+      if (type == double[].class) {
+        final double[] array;
+        try {
+          array = (double[]) field.get(this);
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException(e);
+        }
+        if (array == null || !Modifier.isFinal(field.getModifiers())) {
+          throw new IllegalArgumentException(
+              "Array " + field.getName() + " must be final and created by its initializer");
+        }
+        for (int i = 0; i < array.length; i++) {
+          columns.add(new Column(field.getName() + "[" + i + "]", ColumnType.Double));
+          accessors.add(new Accessor(field, ColumnType.Double, array, i));
+        }
+        sizeBytes += array.length * ColumnType.Double.getSizeBytes();
+        continue;
+      }
+
+      if (Modifier.isFinal(field.getModifiers())) {
+        throw new IllegalArgumentException(field.getName() + " can't be final, it is replayed");
+      }
+
+      final ColumnType columnType;
+      if (type == double.class) {
+        columnType = ColumnType.Double;
+      } else if (type == long.class) {
+        columnType = ColumnType.Long;
+      } else if (type == int.class || type.isEnum()) {
+        columnType = ColumnType.Int;
+      } else if (type == boolean.class) {
+        columnType = ColumnType.Boolean;
+      } else {
+        throw new IllegalArgumentException(
+            "Unsupported type " + type.getSimpleName() + " for " + field.getName());
+      }
+      columns.add(new Column(field.getName(), columnType));
+      accessors.add(new Accessor(field, columnType, null, -1));
+      sizeBytes += columnType.getSizeBytes();
+    }
+
+    m_columns = Collections.unmodifiableList(columns);
+    m_sizeBytes = sizeBytes;
+    m_accessors = accessors.toArray(new Accessor[0]);
+  }
+}
@@ -0,0 +1,187 @@
+package frc.robot.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import frc.robot.replay.LoggedValues.Column;
+import frc.robot.replay.ReplayLogReader.Channel;
+
+/**
+ * Compares the outputs of a replayed log with the log it was replayed from. Cycles are matched by
+ * their cycle number and columns by name, so outputs that were added or removed since the log was
+ * recorded are skipped rather than misaligned. Doubles within {@link #TOLERANCE} are equal, so a
+ * replay on a different machine isn't flagged for rounding.
+ */
+public final class ReplayDiff {
+  private static final double TOLERANCE = 1e-9;
+
+  /** How one output column differed. */
+  public static final class ColumnDiff {
+    private final String m_name;
+    private int m_mismatches = 0;
+    private double m_firstMismatchSec = Double.NaN;
+    private double m_maxError = 0.0;
+
+    private ColumnDiff(String name) {
+      m_name = name;
+    }
+
+    public String getName() {
+      return m_name;
+    }
+
+    public int getMismatches() {
+      return m_mismatches;
+    }
+
+    /** The time since the start of the log of the first cycle that differed, or NaN if none did. */
+    public double getFirstMismatchSec() {
+      return m_firstMismatchSec;
+    }
+
+    public double getMaxError() {
+      return m_maxError;
+    }
+  }
+
+  private final List<ColumnDiff> m_columns = new ArrayList<>();
+  private int m_comparedCycles = 0;
+  private int m_missingCycles = 0;
+
+  /**
+   * Compares every output the two logs have in common.
+   *
+   * @param original The recorded log.
+   * @param replayed The log written while replaying it.
+   */
+  public ReplayDiff(ReplayLogReader original, ReplayLogReader replayed) {
+    final Map<Long, Integer> replayedFrames = new HashMap<>();
+    for (int frame = 0; frame < replayed.getNumFrames(); frame++) {
+      replayedFrames.put(replayed.getCycle(frame), frame);
+    }
+
+    // Pairs of channel and column index in each log
+    final List<Channel> originalChannels = new ArrayList<>();
+    final List<Channel> replayedChannels = new ArrayList<>();
+    final List<int[]> columnIndices = new ArrayList<>();
+    for (Channel channel : original.getChannels()) {
+      final Channel replayedChannel = replayed.getChannel(channel.getName());
+      if (!channel.isOutput() || replayedChannel == null) {
+        continue;
+      }
+      for (int i = 0; i < channel.getColumns().size(); i++) {
+        final Column column = channel.getColumns().get(i);
+        final int replayedIndex = replayedChannel.indexOf(column.getName());
+        if (replayedIndex < 0) {
+          continue;
+        }
+        originalChannels.add(channel);
+        replayedChannels.add(replayedChannel);
+        columnIndices.add(new int[] {i, replayedIndex});
+        m_columns.add(new ColumnDiff(channel.getName() + "/" + column.getName()));
+      }
+    }
+
+    final long startUsec = original.getNumFrames() > 0 ? original.getTimestampUsec(0) : 0;
+    for (int frame = 0; frame < original.getNumFrames(); frame++) {
+      final Integer replayedFrame = replayedFrames.get(original.getCycle(frame));
+      if (replayedFrame == null) {
+        m_missingCycles++;
+        continue;
+      }
+      m_comparedCycles++;
+
+      final double timeSec = (original.getTimestampUsec(frame) - startUsec) / 1e6;
+      for (int i = 0; i < m_columns.size(); i++) {
+        final int[] indices = columnIndices.get(i);
+        final double expected = original.getValue(frame, originalChannels.get(i), indices[0]);
+        final double actual = replayed.getValue(replayedFrame, replayedChannels.get(i), indices[1]);
+        final double error = Math.abs(expected - actual);
+        if (error <= TOLERANCE
+            || Double.doubleToLongBits(expected) == Double.doubleToLongBits(actual)) {
+          continue;
+        }
+
+        final ColumnDiff diff = m_columns.get(i);
+        if (diff.m_mismatches == 0) {
+          diff.m_firstMismatchSec = timeSec;
+        }
+        diff.m_mismatches++;
+        // NaN on one side only counts as an infinite error
+        diff.m_maxError =
+            Math.max(diff.m_maxError, Double.isNaN(error) ? Double.POSITIVE_INFINITY : error);
+      }
+    }
+  }
+
+  public List<ColumnDiff> getColumns() {
+    return m_columns;
+  }
+
+  public int getComparedCycles() {
+    return m_comparedCycles;
+  }
+
+  /** The cycles in the original log that weren't replayed. */
+  public int getMissingCycles() {
+    return m_missingCycles;
+  }
+
+  /**
+   * Returns whether every compared output matched.
+   *
+   * @return Whether the replay matched.
+   */
+  public boolean matches() {
+    for (ColumnDiff column : m_columns) {
+      if (column.m_mismatches > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Prints the outputs that differed. */
+  public void printReport() {
+    System.out.printf(
+        "%nCompared %d outputs over %d cycles, %d cycles weren't replayed%n",
+        m_columns.size(), m_comparedCycles, m_missingCycles);
+    if (matches()) {
+      System.out.println("Every output matched");
+      return;
+    }
+
+    System.out.printf("%n%-48s %10s %12s %12s%n", "Output", "Cycles", "First (s)", "Max error");
+    for (ColumnDiff column : m_columns) {
+      if (column.m_mismatches == 0) {
+        continue;
+      }
+      System.out.printf(
+          "%-48s %10d %12.3f %12.6g%n",
+          column.m_name, column.m_mismatches, column.m_firstMismatchSec, column.m_maxError);
+    }
+  }
+
+  /**
+   * Compares two logs given on the command line: the recorded one, then the replayed one.
+   *
+   * @param args The two log files.
+   * @throws IOException If either log can't be read.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: ReplayDiff <original.rlog> <replayed.rlog>");
+      System.exit(2);
+    }
+
+    final ReplayDiff diff =
+        new ReplayDiff(
+            new ReplayLogReader(new File(args[0])), new ReplayLogReader(new File(args[1])));
+    diff.printReport();
+    System.exit(diff.matches() ? 0 : 1);
+  }
+}
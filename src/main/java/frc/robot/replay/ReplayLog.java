@@ -0,0 +1,439 @@
+package frc.robot.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import frc.robot.replay.LoggedValues.Column;
+import frc.robot.replay.ReplayLogReader.Channel;
+import frc.robot.telemetry.DataLogger;
+
+import edu.wpi.first.hal.simulation.SimulatorJNI;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+
+/**
+ * Records everything the robot reads each cycle, so a match can be replayed offline.
+ *
+ * <p>Subsystems and devices don't read their hardware in the middle of the loop. Each one registers
+ * a {@link LoggedValues} holding its inputs, along with a sampler that reads the hardware into
+ * them, and the rest of its code only reads those. {@link #beginCycle()} runs every sampler at the
+ * start of the cycle, along with the driver station and controllers, so the whole cycle sees one
+ * set of inputs. Outputs are registered the same way, and updated as they are sent. {@link
+ * #endCycle()} copies the inputs and outputs into a pre-allocated frame in a ring, which a low
+ * priority thread appends to the log, like the {@link DataLogger} does.
+ *
+ * <p>While replaying, the samplers don't run. Each cycle's inputs are read from a recorded log
+ * instead, the simulated clock and driver station are set to what they were, and the robot's code
+ * runs as it did in the match. The replayed cycles are written to another log with their new
+ * outputs, which {@link ReplayDiff} compares with the original.
+ */
+public final class ReplayLog {
+  /** Two and a half seconds of cycles. */
+  private static final int RING_CAPACITY = 128;
+
+  private static final long WRITE_PERIOD_MSEC = 100;
+  private static final String EXTENSION = ".rlog";
+  /** The controller ports the robot uses. */
+  private static final int NUM_CONTROLLERS = 2;
+
+  /** A registered set of values. */
+  private static final class Source {
+    private final String m_channelName;
+    private final LoggedValues m_values;
+    /** Reads the hardware into the values, or null for outputs. */
+    private final Runnable m_sampler;
+    /** Where each column is in a replayed frame, or -1 if it wasn't recorded. */
+    private int[] m_replayOffsets = null;
+
+    private Source(String name, LoggedValues values, Runnable sampler) {
+      m_channelName = (sampler == null ? "Outputs/" : "Inputs/") + name;
+      m_values = values;
+      m_sampler = sampler;
+    }
+  }
+
+  private static final List<Source> m_sourceList = new ArrayList<>();
+  /** Set once the first cycle starts, after which no more values can be registered. */
+  private static Source[] m_sources = null;
+
+  private static List<Channel> m_channels = null;
+  private static int m_frameSizeBytes = 0;
+
+  private static long m_cycle = 0;
+  private static long m_cycleTimestampUsec = 0;
+
+  // Recording. Written by the main thread, read by the writer thread.
+  private static ByteBuffer[] m_ring = null;
+  private static volatile long m_head = 0;
+  private static volatile long m_tail = 0;
+  private static volatile boolean m_matchStarted = false;
+  private static Thread m_writerThread = null;
+
+  // Replaying
+  private static boolean m_replaying = false;
+  private static ReplayLogReader m_replayReader = null;
+  private static File m_replayOutputFile = null;
+  private static ReplayLogWriter m_replayWriter = null;
+  private static ByteBuffer m_replayFrame = null;
+  private static int m_replayFrameIndex = 0;
+
+  private static final DriverStationInputs m_driverStation = new DriverStationInputs();
+  private static final ControllerInputs[] m_controllers = new ControllerInputs[NUM_CONTROLLERS];
+
+  static {
+    registerInputs("DriverStation", m_driverStation, m_driverStation::sample);
+    for (int i = 0; i < NUM_CONTROLLERS; i++) {
+      final ControllerInputs controller = new ControllerInputs(i);
+      m_controllers[i] = controller;
+      registerInputs("Controller " + i, controller, controller::sample);
+    }
+  }
+
+  private ReplayLog() {}
+
+  /**
+   * Registers the inputs of a subsystem or device. The sampler is called once now, so the inputs
+   * can be used from the constructor, and then at the start of every cycle. It isn't called while
+   * replaying.
+   *
+   * @param name The name of the inputs, unique among inputs.
+   * @param inputs The inputs.
+   * @param sampler Reads the hardware into the inputs.
+   */
+  public static void registerInputs(String name, LoggedValues inputs, Runnable sampler) {
+    register(new Source(name, inputs, sampler));
+    if (!m_replaying) {
+      sampler.run();
+    }
+  }
+
+  /**
+   * Registers the outputs of a subsystem or device. Update them whenever an output is sent.
+   *
+   * @param name The name of the outputs, unique among outputs.
+   * @param outputs The outputs.
+   */
+  public static void registerOutputs(String name, LoggedValues outputs) {
+    register(new Source(name, outputs, null));
+  }
+
+  private static void register(Source source) {
+    if (m_sources != null) {
+      throw new IllegalStateException(
+          "Can't register " + source.m_channelName + " after the first cycle");
+    }
+    for (Source other : m_sourceList) {
+      if (other.m_channelName.equals(source.m_channelName)) {
+        throw new IllegalArgumentException(source.m_channelName + " is already registered");
+      }
+    }
+
+    // Finds any unsupported fields now, rather than on the first cycle
+    source.m_values.getSizeBytes();
+    m_sourceList.add(source);
+  }
+
+  /**
+   * Returns whether a log is being replayed, in which case nothing should read the hardware.
+   *
+   * @return Whether a log is being replayed.
+   */
+  public static boolean isReplaying() {
+    return m_replaying;
+  }
+
+  /**
+   * Starts recording every cycle to a new log, next to the data logs. Call this once from
+   * robotInit, after everything that registers values is created. Does nothing while replaying.
+   */
+  public static synchronized void startRecording() {
+    if (m_replaying || m_writerThread != null) {
+      return;
+    }
+
+    freeze();
+    m_ring = new ByteBuffer[RING_CAPACITY];
+    for (int i = 0; i < RING_CAPACITY; i++) {
+      m_ring[i] = ByteBuffer.allocate(m_frameSizeBytes);
+    }
+
+    m_writerThread = new Thread(ReplayLog::writeLoop, "Replay Log");
+    m_writerThread.setDaemon(true);
+    m_writerThread.setPriority(Thread.MIN_PRIORITY);
+    m_writerThread.start();
+  }
+
+  /**
+   * Starts a new log file named after the current match. Call this when a match starts, once the
+   * FMS is attached.
+   */
+  public static void startMatch() {
+    m_matchStarted = true;
+  }
+
+  /**
+   * Replays a recorded log instead of reading the hardware. Call this before the robot is created,
+   * in a simulation with its timing paused, then run the robot loop while {@link #hasNextCycle()}.
+   *
+   * @param log The recorded log.
+   * @param output Where to write the replayed cycles.
+   * @throws IOException If the log can't be read.
+   */
+  public static void startReplay(File log, File output) throws IOException {
+    m_replayReader = new ReplayLogReader(log);
+    m_replayOutputFile = output;
+    m_replaying = true;
+  }
+
+  /**
+   * Returns whether there are cycles left to replay.
+   *
+   * @return Whether there are cycles left to replay.
+   */
+  public static boolean hasNextCycle() {
+    return m_replayReader != null && m_replayFrameIndex < m_replayReader.getNumFrames();
+  }
+
+  /**
+   * Finishes writing the replayed cycles.
+   *
+   * @throws IOException If the replayed log can't be written.
+   */
+  public static void finishReplay() throws IOException {
+    if (m_replayWriter != null) {
+      m_replayWriter.close();
+      m_replayWriter = null;
+    }
+  }
+
+  /**
+   * Samples every input, or reads them from the log while replaying. Call this at the start of
+   * every cycle, after the CAN signals are refreshed and before anything reads the inputs.
+   */
+  public static void beginCycle() {
+    freeze();
+    if (m_replaying) {
+      loadReplayedCycle();
+      return;
+    }
+
+    m_cycleTimestampUsec = RobotController.getFPGATime();
+    // The loop refreshes this again before the mode functions run, which reads the same packet
+    DriverStation.refreshData();
+    for (Source source : m_sources) {
+      if (source.m_sampler != null) {
+        source.m_sampler.run();
+      }
+    }
+  }
+
+  /** Records the cycle's inputs and outputs. Call this at the end of every cycle. */
+  public static void endCycle() {
+    if (m_replaying) {
+      writeFrame(m_replayFrame);
+      try {
+        m_replayWriter.write(m_replayFrame);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    } else {
+      if (m_ring != null) {
+        capture();
+      }
+      m_cycle++;
+    }
+  }
+
+  /** Works out the layout of a frame. No more values can be registered after this. */
+  private static void freeze() {
+    if (m_sources != null) {
+      return;
+    }
+
+    final List<Channel> channels = new ArrayList<>();
+    int offset = ReplayLogReader.FRAME_HEADER_BYTES;
+    for (Source source : m_sourceList) {
+      final Channel channel =
+          new Channel(
+              source.m_channelName,
+              source.m_sampler == null,
+              source.m_values.getColumns(),
+              offset);
+      channels.add(channel);
+      offset += channel.getSizeBytes();
+    }
+
+    m_channels = channels;
+    m_frameSizeBytes = offset;
+    m_sources = m_sourceList.toArray(new Source[0]);
+  }
+
+  private static void writeFrame(ByteBuffer frame) {
+    frame.clear();
+    frame.putLong(m_cycle);
+    frame.putLong(m_cycleTimestampUsec);
+    for (Source source : m_sources) {
+      source.m_values.write(frame);
+    }
+  }
+
+  private static void capture() {
+    final long head = m_head;
+    if (head - m_tail >= RING_CAPACITY) {
+      // The cycle numbers in the log show the gap
+      return;
+    }
+
+    writeFrame(m_ring[(int) (head % RING_CAPACITY)]);
+    m_head = head + 1;
+  }
+
+  private static void writeLoop() {
+    final File directory = DataLogger.getLogDirectory();
+    directory.mkdirs();
+
+    // The clock may not be set yet, so the process ID keeps names unique
+    final String startTime =
+        LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+    ReplayLogWriter writer =
+        openLog(directory, "robot_" + startTime + "_" + ProcessHandle.current().pid());
+
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        Thread.sleep(WRITE_PERIOD_MSEC);
+      } catch (InterruptedException e) {
+        break;
+      }
+
+      if (m_matchStarted) {
+        m_matchStarted = false;
+        drain(writer);
+        closeLog(writer);
+        writer = openLog(directory, DataLogger.getMatchName());
+      }
+
+      drain(writer);
+    }
+    closeLog(writer);
+  }
+
+  private static ReplayLogWriter openLog(File directory, String name) {
+    DataLogger.deleteOldLogs(directory, EXTENSION);
+    try {
+      return new ReplayLogWriter(
+          new File(directory, name + EXTENSION), m_channels, m_frameSizeBytes);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+  private static void closeLog(ReplayLogWriter writer) {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /** Writes the captured frames, or throws them away if the log couldn't be opened. */
+  private static void drain(ReplayLogWriter writer) {
+    final long head = m_head;
+    try {
+      for (long tail = m_tail; tail < head; tail++) {
+        if (writer != null) {
+          writer.write(m_ring[(int) (tail % RING_CAPACITY)]);
+        }
+        m_tail = tail + 1;
+      }
+      if (writer != null) {
+        writer.flush();
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      m_tail = head;
+    }
+  }
+
+  private static void loadReplayedCycle() {
+    if (m_replayWriter == null) {
+      startReplayOutput();
+    }
+    if (!hasNextCycle()) {
+      throw new IllegalStateException("No cycles left to replay");
+    }
+
+    final int frame = m_replayFrameIndex++;
+    final int frameOffset = m_replayReader.getFrameOffset(frame);
+    m_cycle = m_replayReader.getCycle(frame);
+    m_cycleTimestampUsec = m_replayReader.getTimestampUsec(frame);
+
+    // Step the simulated clock to exactly when the cycle started
+    final long nowUsec = RobotController.getFPGATime();
+    if (m_cycleTimestampUsec > nowUsec) {
+      SimulatorJNI.stepTiming(m_cycleTimestampUsec - nowUsec);
+    }
+
+    for (Source source : m_sources) {
+      if (source.m_sampler != null) {
+        source.m_values.read(m_replayReader.getBuffer(), frameOffset, source.m_replayOffsets);
+      }
+    }
+
+    m_driverStation.apply();
+    for (ControllerInputs controller : m_controllers) {
+      controller.apply();
+    }
+    DriverStationSim.notifyNewData();
+  }
+
+  /**
+   * Matches the registered inputs with the recorded ones by name and opens the output log. Inputs
+   * that weren't recorded, say because they were added since, keep their initial values.
+   */
+  private static void startReplayOutput() {
+    for (Source source : m_sources) {
+      if (source.m_sampler == null) {
+        continue;
+      }
+
+      final List<Column> columns = source.m_values.getColumns();
+      source.m_replayOffsets = new int[columns.size()];
+      Arrays.fill(source.m_replayOffsets, -1);
+
+      final Channel recorded = m_replayReader.getChannel(source.m_channelName);
+      if (recorded == null) {
+        System.err.println("Replay: " + source.m_channelName + " wasn't recorded");
+        continue;
+      }
+      for (int i = 0; i < columns.size(); i++) {
+        final Column column = columns.get(i);
+        final int index = recorded.indexOf(column.getName());
+        if (index >= 0 && recorded.getColumns().get(index).getType() == column.getType()) {
+          source.m_replayOffsets[i] = recorded.getColumnOffset(index);
+        } else {
+          System.err.println(
+              "Replay: " + source.m_channelName + "/" + column.getName() + " wasn't recorded");
+        }
+      }
+    }
+
+    m_replayFrame = ByteBuffer.allocate(m_frameSizeBytes);
+    try {
+      m_replayWriter = new ReplayLogWriter(m_replayOutputFile, m_channels, m_frameSizeBytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
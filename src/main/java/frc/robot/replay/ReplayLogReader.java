@@ -0,0 +1,250 @@
+package frc.robot.replay;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import frc.robot.replay.LoggedValues.Column;
+import frc.robot.replay.LoggedValues.ColumnType;
+
+/**
+ * Reads a replay log written by the {@link ReplayLog}.
+ *
+ * <p>A log starts with a header describing every channel and its columns, followed by fixed-size
+ * frames, one per robot cycle. Each frame is the cycle number and FPGA timestamp, then every
+ * channel's values in header order. Since every frame is the same size, the file is memory-mapped
+ * and any frame can be read directly. A frame cut short by the robot losing power is ignored.
+ */
+public final class ReplayLogReader {
+  static final int MAGIC = 0x47524c47;
+  static final int VERSION = 1;
+  /** The cycle number and timestamp at the start of every frame. */
+  static final int FRAME_HEADER_BYTES = 16;
+
+  /** A set of values recorded every cycle, and where they are in a frame. */
+  public static final class Channel {
+    private final String m_name;
+    private final boolean m_output;
+    private final List<Column> m_columns;
+    private final int[] m_columnOffsets;
+    private final int m_sizeBytes;
+
+    /**
+     * Creates a new Channel.
+     *
+     * @param name The name of the channel.
+     * @param output Whether the channel holds outputs rather than inputs.
+     * @param columns The columns, in the order they are stored.
+     * @param offset Where the channel starts in a frame.
+     */
+    public Channel(String name, boolean output, List<Column> columns, int offset) {
+      m_name = name;
+      m_output = output;
+      m_columns = Collections.unmodifiableList(new ArrayList<>(columns));
+      m_columnOffsets = new int[columns.size()];
+
+      int position = offset;
+      for (int i = 0; i < columns.size(); i++) {
+        m_columnOffsets[i] = position;
+        position += columns.get(i).getType().getSizeBytes();
+      }
+      m_sizeBytes = position - offset;
+    }
+
+    public String getName() {
+      return m_name;
+    }
+
+    public boolean isOutput() {
+      return m_output;
+    }
+
+    public List<Column> getColumns() {
+      return m_columns;
+    }
+
+    /**
+     * Returns where a column is in a frame.
+     *
+     * @param column The index of the column.
+     * @return The offset of the column from the start of the frame.
+     */
+    public int getColumnOffset(int column) {
+      return m_columnOffsets[column];
+    }
+
+    public int getSizeBytes() {
+      return m_sizeBytes;
+    }
+
+    /**
+     * Finds a column by name.
+     *
+     * @param name The name of the column.
+     * @return The index of the column, or -1 if there is none.
+     */
+    public int indexOf(String name) {
+      for (int i = 0; i < m_columns.size(); i++) {
+        if (m_columns.get(i).getName().equals(name)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  private final File m_file;
+  private final ByteBuffer m_buffer;
+  private final List<Channel> m_channels = new ArrayList<>();
+  private final int m_frameSizeBytes;
+  private final int m_dataOffset;
+  private final int m_numFrames;
+
+  /**
+   * Opens a replay log.
+   *
+   * @param file The log file.
+   * @throws IOException If the file can't be read or isn't a replay log.
+   */
+  public ReplayLogReader(File file) throws IOException {
+    m_file = file;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException(file + " is too big to replay");
+      }
+      m_buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if (m_buffer.limit() < 12 || m_buffer.getInt(0) != MAGIC) {
+      throw new IOException(file + " is not a replay log");
+    }
+    if (m_buffer.getInt(4) != VERSION) {
+      throw new IOException(file + " is version " + m_buffer.getInt(4) + ", expected " + VERSION);
+    }
+
+    final byte[] header = new byte[m_buffer.getInt(8)];
+    m_buffer.get(12, header);
+    m_dataOffset = 12 + header.length;
+
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(header))) {
+      m_frameSizeBytes = in.readInt();
+      final int numChannels = in.readInt();
+      int offset = FRAME_HEADER_BYTES;
+      for (int i = 0; i < numChannels; i++) {
+        final String name = in.readUTF();
+        final boolean output = in.readBoolean();
+        final int numColumns = in.readInt();
+        final List<Column> columns = new ArrayList<>(numColumns);
+        for (int j = 0; j < numColumns; j++) {
+          final String columnName = in.readUTF();
+          columns.add(new Column(columnName, ColumnType.values()[in.readByte()]));
+        }
+
+        final Channel channel = new Channel(name, output, columns, offset);
+        m_channels.add(channel);
+        offset += channel.getSizeBytes();
+      }
+    }
+
+    m_numFrames = (m_buffer.limit() - m_dataOffset) / m_frameSizeBytes;
+  }
+
+  public File getFile() {
+    return m_file;
+  }
+
+  public List<Channel> getChannels() {
+    return Collections.unmodifiableList(m_channels);
+  }
+
+  /**
+   * Finds a channel by name.
+   *
+   * @param name The name of the channel.
+   * @return The channel, or null if there is none.
+   */
+  public Channel getChannel(String name) {
+    for (Channel channel : m_channels) {
+      if (channel.getName().equals(name)) {
+        return channel;
+      }
+    }
+    return null;
+  }
+
+  public int getNumFrames() {
+    return m_numFrames;
+  }
+
+  /**
+   * Returns where a frame starts in {@link #getBuffer()}.
+   *
+   * @param frame The index of the frame.
+   * @return The offset of the frame.
+   */
+  public int getFrameOffset(int frame) {
+    return m_dataOffset + frame * m_frameSizeBytes;
+  }
+
+  /**
+   * Returns the whole log. Read it with absolute gets at {@link #getFrameOffset(int)} plus a column
+   * offset.
+   *
+   * @return The read-only buffer.
+   */
+  public ByteBuffer getBuffer() {
+    return m_buffer;
+  }
+
+  /**
+   * Returns the robot cycle a frame was recorded in. Cycles are numbered from the start of the log,
+   * so a gap means frames were dropped.
+   *
+   * @param frame The index of the frame.
+   * @return The cycle number.
+   */
+  public long getCycle(int frame) {
+    return m_buffer.getLong(getFrameOffset(frame));
+  }
+
+  /**
+   * Returns the FPGA time at the start of the cycle a frame was recorded in.
+   *
+   * @param frame The index of the frame.
+   * @return The timestamp, in microseconds.
+   */
+  public long getTimestampUsec(int frame) {
+    return m_buffer.getLong(getFrameOffset(frame) + 8);
+  }
+
+  /**
+   * Reads any column as a double. Booleans are 0 or 1, enums are their ordinal.
+   *
+   * @param frame The index of the frame.
+   * @param channel The channel.
+   * @param column The index of the column in the channel.
+   * @return The value.
+   */
+  public double getValue(int frame, Channel channel, int column) {
+    final int offset = getFrameOffset(frame) + channel.getColumnOffset(column);
+    switch (channel.getColumns().get(column).getType()) {
+      case Double:
+        return m_buffer.getDouble(offset);
+      case Long:
+        return m_buffer.getLong(offset);
+      case Int:
+        return m_buffer.getInt(offset);
+      case Boolean:
+        return m_buffer.get(offset);
+      default:
+        return Double.NaN;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package frc.robot.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import frc.robot.replay.LoggedValues.Column;
+import frc.robot.replay.ReplayLogReader.Channel;
+
+/** Writes the header and frames of a replay log. See {@link ReplayLogReader} for the format. */
+final class ReplayLogWriter implements AutoCloseable {
+  private static final int BUFFER_BYTES = 64 * 1024;
+
+  private final File m_file;
+  private final DataOutputStream m_out;
+
+  /**
+   * Creates the file and writes the header.
+   *
+   * @param file The file to write.
+   * @param channels The channels in every frame, in order.
+   * @param frameSizeBytes The size of a frame.
+   * @throws IOException If the file can't be written.
+   */
+  ReplayLogWriter(File file, List<Channel> channels, int frameSizeBytes) throws IOException {
+    m_file = file;
+
+    final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+    try (DataOutputStream header = new DataOutputStream(headerBytes)) {
+      header.writeInt(frameSizeBytes);
+      header.writeInt(channels.size());
+      for (Channel channel : channels) {
+        header.writeUTF(channel.getName());
+        header.writeBoolean(channel.isOutput());
+        header.writeInt(channel.getColumns().size());
+        for (Column column : channel.getColumns()) {
+          header.writeUTF(column.getName());
+          header.writeByte(column.getType().ordinal());
+        }
+      }
+    }
+
+    m_out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_BYTES));
+    m_out.writeInt(ReplayLogReader.MAGIC);
+    m_out.writeInt(ReplayLogReader.VERSION);
+    m_out.writeInt(headerBytes.size());
+    headerBytes.writeTo(m_out);
+  }
+
+  File getFile() {
+    return m_file;
+  }
+
+  /**
+   * Writes a frame, from the start of the buffer up to its position.
+   *
+   * @param frame The frame, backed by an array.
+   * @throws IOException If the file can't be written.
+   */
+  void write(ByteBuffer frame) throws IOException {
+    m_out.write(frame.array(), frame.arrayOffset(), frame.position());
+  }
+
+  void flush() throws IOException {
+    m_out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    m_out.close();
+  }
+}
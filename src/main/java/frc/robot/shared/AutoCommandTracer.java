@@ -0,0 +1,79 @@
+package frc.robot.shared;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reports when auto commands start and finish. The composite commands report their children, so a
+ * listener sees every command in a mode. Nothing is recorded unless a listener is added.
+ */
+public final class AutoCommandTracer {
+  /** Receives auto command start and finish events. */
+  public interface Listener {
+    /**
+     * Called after a command is initialized.
+     *
+     * @param command The command that started.
+     */
+    void started(AutoCommand command);
+
+    /**
+     * Called after a command's postComplete.
+     *
+     * @param command The command that finished.
+     * @param interrupted Whether the command timed out instead of completing.
+     */
+    void finished(AutoCommand command, boolean interrupted);
+  }
+
+  /** Copied on each change, so reporting an event walks an array without allocating. */
+  private static Listener[] m_listeners = new Listener[0];
+
+  private AutoCommandTracer() {}
+
+  /**
+   * Adds a listener that receives every command event, after the listeners already added.
+   *
+   * @param listener The listener.
+   */
+  public static void addListener(Listener listener) {
+    final Listener[] listeners = Arrays.copyOf(m_listeners, m_listeners.length + 1);
+    listeners[listeners.length - 1] = listener;
+    m_listeners = listeners;
+  }
+
+  /**
+   * Removes a listener, so it stops receiving command events.
+   *
+   * @param listener The listener to remove.
+   */
+  public static void removeListener(Listener listener) {
+    final List<Listener> listeners = new ArrayList<>(Arrays.asList(m_listeners));
+    listeners.remove(listener);
+    m_listeners = listeners.toArray(new Listener[0]);
+  }
+
+  /**
+   * Reports that a command was initialized.
+   *
+   * @param command The command that started.
+   */
+  public static void started(AutoCommand command) {
+    for (Listener listener : m_listeners) {
+      listener.started(command);
+    }
+  }
+
+  /**
+   * Reports that a command finished.
+   *
+   * @param command The command that finished.
+   * @param interrupted Whether the command timed out instead of completing.
+   */
+  public static void finished(AutoCommand command, boolean interrupted) {
+    for (Listener listener : m_listeners) {
+      listener.finished(command, interrupted);
+    }
+  }
+}
@@ -0,0 +1,252 @@
+package frc.robot.shared;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes crash tracker markers to a file without blocking the main loop.
+ *
+ * <p>Markers are queued and written by a low priority thread. Exceptions are grouped by a
+ * fingerprint of their stack trace. The first of each is written and synced to the disk right
+ * away, on the calling thread, so it survives even if the robot browns out right after. Repeats
+ * only bump a counter, and the writer thread periodically writes how many times each was seen and
+ * when it was first and last seen. An exception thrown every loop costs one write instead of fifty
+ * a second. The file is rotated once it reaches {@link #MAX_FILE_BYTES}.
+ */
+final class CrashJournal {
+  private static final int QUEUE_CAPACITY = 128;
+  private static final long SUMMARY_PERIOD_MSEC = 5000;
+  private static final long MAX_FILE_BYTES = 1024 * 1024;
+  private static final int MAX_BACKUPS = 3;
+
+  private final File m_file;
+  private final String m_runId;
+
+  private final ArrayBlockingQueue<String> m_queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final AtomicLong m_droppedMarkers = new AtomicLong();
+  private final Map<Long, Occurrences> m_occurrences = new ConcurrentHashMap<>();
+  private final Object m_fileLock = new Object();
+
+  /** How many times an exception was seen, and when. */
+  private static final class Occurrences {
+    private final String m_description;
+    private final long m_firstTimeMsec;
+    private long m_lastTimeMsec;
+    private long m_count = 1;
+    private long m_summarizedCount = 1;
+
+    private Occurrences(String description, long timeMsec) {
+      m_description = description;
+      m_firstTimeMsec = timeMsec;
+      m_lastTimeMsec = timeMsec;
+    }
+
+    private synchronized void record(long timeMsec) {
+      m_count++;
+      m_lastTimeMsec = timeMsec;
+    }
+  }
+
+  /**
+   * Creates a new CrashJournal and starts its writer thread.
+   *
+   * @param file The file to append to.
+   * @param runId Identifies this run of the robot program in every line.
+   */
+  CrashJournal(File file, String runId) {
+    m_file = file;
+    m_runId = runId;
+
+    final Thread writerThread = new Thread(this::writeLoop, "Crash Journal");
+    writerThread.setDaemon(true);
+    writerThread.setPriority(Thread.MIN_PRIORITY);
+    writerThread.start();
+  }
+
+  /**
+   * Queues a marker to be written by the writer thread.
+   *
+   * @param mark The marker text.
+   */
+  void logMarker(String mark) {
+    if (!m_queue.offer(format(mark, System.currentTimeMillis()))) {
+      m_droppedMarkers.incrementAndGet();
+    }
+  }
+
+  /**
+   * Records an exception. The first time an exception is seen, it is written and synced to the
+   * disk before this returns. After that it is only counted.
+   *
+   * @param mark The marker text.
+   * @param e The exception.
+   * @return Whether this is the first time the exception was seen.
+   */
+  boolean logException(String mark, Throwable e) {
+    final long now = System.currentTimeMillis();
+    final long fingerprint = fingerprint(e);
+
+    Occurrences existing = m_occurrences.get(fingerprint);
+    if (existing == null) {
+      existing = m_occurrences.putIfAbsent(fingerprint, new Occurrences(mark + ": " + e, now));
+    }
+    if (existing != null) {
+      existing.record(now);
+      return false;
+    }
+
+    synchronized (m_fileLock) {
+      try (FileOutputStream out = openStream()) {
+        final PrintWriter writer = new PrintWriter(out);
+        // Keep the file in order with the markers logged before this
+        writeQueued(writer);
+
+        writer.print(format(mark, now));
+        writer.print(", fingerprint ");
+        writer.print(Long.toHexString(fingerprint));
+        writer.print(", ");
+        e.printStackTrace(writer);
+        writer.println();
+        writer.flush();
+        // Flushing only hands it to the OS, which may not write it before a brownout
+        out.getFD().sync();
+      } catch (IOException ie) {
+        ie.printStackTrace();
+      }
+    }
+    return true;
+  }
+
+  private String format(String mark, long timeMsec) {
+    return m_runId + ", " + mark + ", " + new Date(timeMsec);
+  }
+
+  /** Hashes the type and stack frames of an exception and its causes. */
+  private static long fingerprint(Throwable e) {
+    long hash = 17;
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      hash = hash * 31 + t.getClass().getName().hashCode();
+      for (StackTraceElement element : t.getStackTrace()) {
+        hash = hash * 31 + element.getClassName().hashCode();
+        hash = hash * 31 + element.getMethodName().hashCode();
+        hash = hash * 31 + element.getLineNumber();
+      }
+      if (t.getCause() == t) {
+        break;
+      }
+    }
+    return hash;
+  }
+
+  private void writeLoop() {
+    long lastSummaryMsec = System.currentTimeMillis();
+
+    while (!Thread.currentThread().isInterrupted()) {
+      final String first;
+      try {
+        first = m_queue.poll(SUMMARY_PERIOD_MSEC, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      final long now = System.currentTimeMillis();
+      final boolean summaryDue = now - lastSummaryMsec >= SUMMARY_PERIOD_MSEC;
+      if (first == null && !summaryDue) {
+        continue;
+      }
+
+      synchronized (m_fileLock) {
+        try (PrintWriter writer = new PrintWriter(openStream())) {
+          if (first != null) {
+            writer.println(first);
+          }
+          writeQueued(writer);
+
+          if (summaryDue) {
+            lastSummaryMsec = now;
+            writeSummary(writer);
+          }
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+
+  private void writeQueued(PrintWriter writer) {
+    final List<String> marks = new ArrayList<>();
+    m_queue.drainTo(marks);
+    for (String mark : marks) {
+      writer.println(mark);
+    }
+
+    final long dropped = m_droppedMarkers.getAndSet(0);
+    if (dropped > 0) {
+      writer.println(format("Dropped " + dropped + " markers", System.currentTimeMillis()));
+    }
+  }
+
+  /** Writes a line for every exception that repeated since the last summary. */
+  private void writeSummary(PrintWriter writer) {
+    for (var entry : m_occurrences.entrySet()) {
+      final Occurrences occurrences = entry.getValue();
+      synchronized (occurrences) {
+        if (occurrences.m_count == occurrences.m_summarizedCount) {
+          continue;
+        }
+        occurrences.m_summarizedCount = occurrences.m_count;
+
+        writer.print(m_runId);
+        writer.print(", Repeated exception, fingerprint ");
+        writer.print(Long.toHexString(entry.getKey()));
+        writer.print(", seen ");
+        writer.print(occurrences.m_count);
+        writer.print(" times, first ");
+        writer.print(new Date(occurrences.m_firstTimeMsec));
+        writer.print(", last ");
+        writer.print(new Date(occurrences.m_lastTimeMsec));
+        writer.print(", ");
+        writer.println(occurrences.m_description);
+      }
+    }
+  }
+
+  /** Opens the file for appending, rotating it first if it is full. Call with the lock held. */
+  private FileOutputStream openStream() throws IOException {
+    if (m_file.length() >= MAX_FILE_BYTES) {
+      rotate();
+    }
+    return new FileOutputStream(m_file, true);
+  }
+
+  /** Shifts file.1 to file.2 and so on, dropping the oldest, then moves the file to file.1. */
+  private void rotate() {
+    final File oldest = backup(MAX_BACKUPS);
+    if (oldest.exists() && !oldest.delete()) {
+      System.err.println("Could not delete " + oldest);
+    }
+    for (int i = MAX_BACKUPS - 1; i >= 1; i--) {
+      final File backup = backup(i);
+      if (backup.exists() && !backup.renameTo(backup(i + 1))) {
+        System.err.println("Could not rotate " + backup);
+      }
+    }
+    if (!m_file.renameTo(backup(1))) {
+      System.err.println("Could not rotate " + m_file);
+    }
+  }
+
+  private File backup(int index) {
+    return new File(m_file.getPath() + "." + index);
+  }
+}
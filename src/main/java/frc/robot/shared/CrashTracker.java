@@ -1,23 +1,31 @@
 package frc.robot.shared;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.Date;
+import java.io.File;
 import java.util.UUID;
 
+import frc.robot.telemetry.DataLogger;
+
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotBase;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 
-/** Tracks start-up and caught crash events, logging them to a file which doesn't roll over */
+/**
+ * Tracks start-up and caught crash events, logging them to a file through a {@link CrashJournal} so
+ * the main loop never waits on the disk. Markers and the first occurrence of each exception are
+ * also recorded in the on-robot data log.
+ */
 @Accessors(prefix = "m_")
 public class CrashTracker {
   @Getter private static boolean m_exceptionHappened = false;
   private static boolean m_matchDataFound = false;
 
   private static final UUID RUN_INSTANCE_UUID = UUID.randomUUID();
+  private static final CrashJournal m_journal =
+      RobotBase.isSimulation()
+          ? null
+          : new CrashJournal(
+              new File("/home/lvuser/exception_log.txt"), RUN_INSTANCE_UUID.toString());
 
   public static void logRobotInit() {
     logMarker("robot init");
@@ -66,25 +74,18 @@ public class CrashTracker {
   }
 
   private static void logMarker(String mark, Throwable e) {
-    if (!RobotBase.isSimulation()) {
-      try (PrintWriter writer =
-          new PrintWriter(new FileWriter("/home/lvuser/exception_log.txt", true))) {
-        writer.print(RUN_INSTANCE_UUID.toString());
-        writer.print(", ");
-        writer.print(mark);
-        writer.print(", ");
-        writer.print(new Date().toString());
-
-        if (e != null) {
-          writer.print(", ");
-          e.printStackTrace(writer);
-        }
-
-        writer.println();
-      } catch (IOException ie) {
-        ie.printStackTrace();
+    if (e == null) {
+      DataLogger.logMarker(mark);
+      if (m_journal != null) {
+        m_journal.logMarker(mark);
+      }
+    } else if (m_journal != null) {
+      // Repeats of an exception are only counted, so one thrown every loop can't flood the logs
+      if (m_journal.logException(mark, e)) {
+        DataLogger.logMarker(mark + ": " + e);
       }
-    } else if (e != null) {
+    } else {
+      DataLogger.logMarker(mark + ": " + e);
       throw new RuntimeException(e);
     }
   }
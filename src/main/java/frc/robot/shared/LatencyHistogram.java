@@ -0,0 +1,96 @@
+package frc.robot.shared;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * A fixed-size, allocation-free latency histogram.
+ *
+ * <p>Samples are recorded in microseconds into log-linear buckets: every power of two is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, which keeps the relative error of any reported
+ * percentile under ~12.5% while the whole histogram stays a single {@code long[]}.
+ */
+@Accessors(prefix = "m_")
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  /** Enough buckets to cover ~1 second in microseconds. Larger samples land in the last bucket. */
+  private static final int NUM_BUCKETS = SUB_BUCKETS * 18;
+
+  private final long[] m_buckets = new long[NUM_BUCKETS];
+  @Getter private long m_count = 0;
+  @Getter private long m_maxUsec = 0;
+
+  /**
+   * Records a single sample.
+   *
+   * @param usec The latency of the sample in microseconds.
+   */
+  public void record(long usec) {
+    if (usec < 0) {
+      usec = 0;
+    }
+    m_buckets[bucketIndex(usec)]++;
+    m_count++;
+    if (usec > m_maxUsec) {
+      m_maxUsec = usec;
+    }
+  }
+
+  /**
+   * Returns the value at the given percentile.
+   *
+   * @param percentile The percentile, from 0.0 to 1.0.
+   * @return The upper bound of the bucket containing the percentile, in microseconds.
+   */
+  public long getPercentileUsec(double percentile) {
+    if (m_count == 0) {
+      return 0;
+    }
+
+    long target = (long) Math.ceil(percentile * m_count);
+    if (target < 1) {
+      target = 1;
+    }
+
+    long seen = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      seen += m_buckets[i];
+      if (seen >= target) {
+        return Math.min(bucketUpperBound(i), m_maxUsec);
+      }
+    }
+    return m_maxUsec;
+  }
+
+  /** Clears all recorded samples. */
+  public void reset() {
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      m_buckets[i] = 0;
+    }
+    m_count = 0;
+    m_maxUsec = 0;
+  }
+
+  private static int bucketIndex(long usec) {
+    if (usec < SUB_BUCKETS) {
+      return (int) usec;
+    }
+
+    int msb = 63 - Long.numberOfLeadingZeros(usec);
+    int subBucket = (int) (usec >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    int index = SUB_BUCKETS * (msb - SUB_BUCKET_BITS + 1) + subBucket;
+    return Math.min(index, NUM_BUCKETS - 1);
+  }
+
+  private static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    int msb = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKETS;
+    long lowerBound = (SUB_BUCKETS + subBucket) << (msb - SUB_BUCKET_BITS);
+    return lowerBound + (1L << (msb - SUB_BUCKET_BITS)) - 1;
+  }
+}
@@ -739,6 +739,11 @@ public class LimelightHelpers {
 
   /** Parses Limelight's JSON results dump into a LimelightResults Object */
   public static LimelightResults getLatestResults(String limelightName) {
+    return parseLatestResults(getJSONDump(limelightName));
+  }
+
+  /** Parses a Limelight JSON results dump, such as a recorded one, into LimelightResults */
+  public static LimelightResults parseLatestResults(String json) {
 
     long start = System.nanoTime();
     LimelightHelpers.LimelightResults results = new LimelightHelpers.LimelightResults();
@@ -748,7 +753,7 @@ public class LimelightHelpers {
     }
 
     try {
-      results = mapper.readValue(getJSONDump(limelightName), LimelightResults.class);
+      results = mapper.readValue(json, LimelightResults.class);
     } catch (JsonProcessingException e) {
       System.err.println("lljson error: " + e.getMessage());
     }
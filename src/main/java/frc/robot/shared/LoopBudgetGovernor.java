@@ -0,0 +1,133 @@
+package frc.robot.shared;
+
+import frc.robot.greydash.GreyDashClient;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * Sheds debug dashboard updates when a loop is at risk of overrunning its period.
+ *
+ * <p>The governor keeps a running average of what each subsystem's debugDashboardUpdate costs and
+ * compares it to the time left in the current cycle. When everything fits, every subsystem is
+ * updated. When it doesn't, subsystems are updated round-robin, as many as fit (at least one) per
+ * cycle. When the cycle is already over budget, a single subsystem is updated every {@link
+ * #THROTTLED_CYCLES} cycles. {@link Subsystem#update()} is never touched.
+ */
+@Accessors(prefix = "m_")
+public class LoopBudgetGovernor {
+  private static final double LOOP_BUDGET_USEC = TimedRobot.kDefaultPeriod * 1e6;
+  /** Time kept free for everything that runs after robotPeriodic (LiveWindow, NT flush, etc). */
+  private static final double RESERVE_USEC = 3000.0;
+  /** Weight of the newest sample in each subsystem's cost average. */
+  private static final double COST_FILTER_GAIN = 0.1;
+
+  private static final int THROTTLED_CYCLES = 5;
+
+  /** How the governor is currently running the debug dashboard updates. */
+  public enum Mode {
+    /** Every subsystem is updated each cycle. */
+    Full,
+    /** Subsystems are updated round-robin, as many as fit in the cycle. */
+    RoundRobin,
+    /** One subsystem is updated every {@link #THROTTLED_CYCLES} cycles. */
+    Throttled
+  }
+
+  private final Subsystem[] m_subsystems;
+  private final double[] m_costUsec;
+
+  @Getter private Mode m_mode = Mode.Full;
+  /** Total number of subsystem debug updates skipped since robot start. */
+  @Getter private long m_shedCount = 0;
+  /** Time left in the last completed cycle, in microseconds. Negative when it overran. */
+  @Getter private double m_headroomUsec = LOOP_BUDGET_USEC;
+
+  private long m_cycleStartNsec = System.nanoTime();
+  private int m_nextIndex = 0;
+  private int m_throttleCounter = 0;
+
+  /**
+   * Creates a new LoopBudgetGovernor.
+   *
+   * @param subsystems The subsystems whose debug dashboard updates are governed, in the order they
+   *     should normally run.
+   */
+  public LoopBudgetGovernor(Subsystem... subsystems) {
+    m_subsystems = subsystems;
+    m_costUsec = new double[subsystems.length];
+  }
+
+  /** Marks the start of a robot cycle. Call this before the mode specific periodic functions. */
+  public void startCycle() {
+    m_cycleStartNsec = System.nanoTime();
+  }
+
+  /** Marks the end of a robot cycle and publishes the governor status. */
+  public void endCycle() {
+    m_headroomUsec = LOOP_BUDGET_USEC - getElapsedUsec();
+
+    GreyDashClient.setLoopGovernorStatus(m_mode.toString(), m_headroomUsec / 1000.0, m_shedCount);
+  }
+
+  /**
+   * Runs as many debug dashboard updates as fit in the rest of the cycle.
+   *
+   * @param profiler The profiler used to run and time the updates.
+   */
+  public void debugDashboardUpdate(LoopProfiler profiler) {
+    final double available = LOOP_BUDGET_USEC - RESERVE_USEC - getElapsedUsec();
+
+    double totalCost = 0.0;
+    for (double cost : m_costUsec) {
+      totalCost += cost;
+    }
+
+    if (available >= totalCost) {
+      m_mode = Mode.Full;
+      m_throttleCounter = 0;
+      for (int i = 0; i < m_subsystems.length; i++) {
+        runTimed(profiler, i);
+      }
+    } else if (available > 0.0) {
+      m_mode = Mode.RoundRobin;
+      m_throttleCounter = 0;
+      runRoundRobin(profiler, available);
+    } else {
+      m_mode = Mode.Throttled;
+      if (m_throttleCounter == 0) {
+        runRoundRobin(profiler, 0.0);
+      } else {
+        m_shedCount += m_subsystems.length;
+      }
+      m_throttleCounter = (m_throttleCounter + 1) % THROTTLED_CYCLES;
+    }
+  }
+
+  /** Runs at least one subsystem, then keeps going while the budget allows. */
+  private void runRoundRobin(LoopProfiler profiler, double available) {
+    int ran = 0;
+    double spent = 0.0;
+    while (ran < m_subsystems.length
+        && (ran == 0 || spent + m_costUsec[m_nextIndex] <= available)) {
+      spent += runTimed(profiler, m_nextIndex);
+      m_nextIndex = (m_nextIndex + 1) % m_subsystems.length;
+      ran++;
+    }
+    m_shedCount += m_subsystems.length - ran;
+  }
+
+  private double runTimed(LoopProfiler profiler, int index) {
+    final long start = System.nanoTime();
+    profiler.debugDashboardUpdate(m_subsystems[index]);
+    final double cost = (System.nanoTime() - start) / 1000.0;
+
+    m_costUsec[index] += (cost - m_costUsec[index]) * COST_FILTER_GAIN;
+    return cost;
+  }
+
+  private double getElapsedUsec() {
+    return (System.nanoTime() - m_cycleStartNsec) / 1000.0;
+  }
+}
@@ -0,0 +1,212 @@
+package frc.robot.shared;
+
+import frc.robot.greydash.GreyDashClient;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.wpilibj.DriverStation;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * Times every subsystem call made from Robot.robotPeriodic and keeps per-phase latency histograms.
+ *
+ * <p>Recording is two {@link System#nanoTime()} calls and a histogram increment per subsystem call,
+ * so this can stay enabled in competition. Publishing is spread over several loops: each loop only
+ * publishes the histograms of a single subsystem.
+ */
+@Accessors(prefix = "m_")
+public class LoopProfiler {
+  private static final String LOOP_NAME = "Loop";
+  private static final double[] PERCENTILES = {0.50, 0.95, 0.99};
+
+  /** The subsystem method being timed. */
+  public enum Section {
+    Update,
+    DashboardUpdate,
+    DebugDashboardUpdate
+  }
+
+  /** The match phase the samples are bucketed under. */
+  public enum MatchPhase {
+    Disabled,
+    Auto,
+    Teleop,
+    Test
+  }
+
+  // values() copies the array each call, and publishing runs every loop
+  private static final Section[] SECTIONS = Section.values();
+  private static final MatchPhase[] MATCH_PHASES = MatchPhase.values();
+
+  private final Subsystem[] m_subsystems;
+  /** Histograms indexed by [phase][subsystem][section]. */
+  private final LatencyHistogram[][][] m_histograms;
+  /** Whole robotPeriodic histograms indexed by [phase]. */
+  private final LatencyHistogram[] m_loopHistograms;
+
+  private final DoubleArrayPublisher[][][] m_publishers;
+  private final DoubleArrayPublisher[] m_loopPublishers;
+  /** p50, p95, p99, max, count. */
+  private final double[] m_publishBuffer = new double[PERCENTILES.length + 2];
+
+  @Getter private MatchPhase m_matchPhase = MatchPhase.Disabled;
+  private long m_loopStartNsec = 0;
+  @Getter private long m_lastLoopUsec = 0;
+  private int m_publishIndex = 0;
+
+  /**
+   * Creates a new LoopProfiler.
+   *
+   * @param subsystems Every subsystem that will be timed through this profiler.
+   */
+  public LoopProfiler(Subsystem... subsystems) {
+    final int numPhases = MATCH_PHASES.length;
+    final int numSections = SECTIONS.length;
+
+    m_subsystems = subsystems;
+    m_histograms = new LatencyHistogram[numPhases][subsystems.length][numSections];
+    m_loopHistograms = new LatencyHistogram[numPhases];
+    m_publishers = new DoubleArrayPublisher[numPhases][subsystems.length][numSections];
+    m_loopPublishers = new DoubleArrayPublisher[numPhases];
+
+    for (var phase : MATCH_PHASES) {
+      final int p = phase.ordinal();
+      m_loopHistograms[p] = new LatencyHistogram();
+      m_loopPublishers[p] =
+          GreyDashClient.createProfilerPublisher(phase.toString(), LOOP_NAME, LOOP_NAME);
+
+      for (int i = 0; i < subsystems.length; i++) {
+        final String name = subsystems[i].getClass().getSimpleName();
+        for (var section : SECTIONS) {
+          m_histograms[p][i][section.ordinal()] = new LatencyHistogram();
+          m_publishers[p][i][section.ordinal()] =
+              GreyDashClient.createProfilerPublisher(phase.toString(), name, section.toString());
+        }
+      }
+    }
+  }
+
+  /** Marks the start of a robotPeriodic loop. */
+  public void startLoop() {
+    m_loopStartNsec = System.nanoTime();
+
+    if (DriverStation.isDisabled()) {
+      m_matchPhase = MatchPhase.Disabled;
+    } else if (DriverStation.isAutonomous()) {
+      m_matchPhase = MatchPhase.Auto;
+    } else if (DriverStation.isTest()) {
+      m_matchPhase = MatchPhase.Test;
+    } else {
+      m_matchPhase = MatchPhase.Teleop;
+    }
+  }
+
+  /** Marks the end of a robotPeriodic loop and publishes one subsystem's histograms. */
+  public void endLoop() {
+    m_lastLoopUsec = (System.nanoTime() - m_loopStartNsec) / 1000;
+    m_loopHistograms[m_matchPhase.ordinal()].record(m_lastLoopUsec);
+
+    publishNext();
+  }
+
+  /**
+   * Calls {@link Subsystem#update()} and records how long it took.
+   *
+   * @param subsystem The subsystem to update.
+   */
+  public void update(Subsystem subsystem) {
+    run(subsystem, Section.Update);
+  }
+
+  /**
+   * Calls {@link Subsystem#dashboardUpdate()} and records how long it took.
+   *
+   * @param subsystem The subsystem to update.
+   */
+  public void dashboardUpdate(Subsystem subsystem) {
+    run(subsystem, Section.DashboardUpdate);
+  }
+
+  /**
+   * Calls {@link Subsystem#debugDashboardUpdate()} and records how long it took.
+   *
+   * @param subsystem The subsystem to update.
+   */
+  public void debugDashboardUpdate(Subsystem subsystem) {
+    run(subsystem, Section.DebugDashboardUpdate);
+  }
+
+  /** Clears every histogram. */
+  public void reset() {
+    for (var phaseHistograms : m_histograms) {
+      for (var subsystemHistograms : phaseHistograms) {
+        for (var histogram : subsystemHistograms) {
+          histogram.reset();
+        }
+      }
+    }
+    for (var histogram : m_loopHistograms) {
+      histogram.reset();
+    }
+  }
+
+  private void run(Subsystem subsystem, Section section) {
+    final int slot = slotOf(subsystem);
+    final long start = System.nanoTime();
+
+    switch (section) {
+      case Update:
+        subsystem.update();
+        break;
+      case DashboardUpdate:
+        subsystem.dashboardUpdate();
+        break;
+      case DebugDashboardUpdate:
+        subsystem.debugDashboardUpdate();
+        break;
+      default:
+        break;
+    }
+
+    m_histograms[m_matchPhase.ordinal()][slot][section.ordinal()].record(
+        (System.nanoTime() - start) / 1000);
+  }
+
+  private int slotOf(Subsystem subsystem) {
+    for (int i = 0; i < m_subsystems.length; i++) {
+      if (m_subsystems[i] == subsystem) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException(
+        "Subsystem not registered with LoopProfiler: " + subsystem.getClass().getSimpleName());
+  }
+
+  /** Publishes the current phase's histograms of one subsystem, or of the whole loop. */
+  private void publishNext() {
+    final int p = m_matchPhase.ordinal();
+
+    if (m_publishIndex >= m_subsystems.length) {
+      publish(m_loopHistograms[p], m_loopPublishers[p]);
+      m_publishIndex = 0;
+      return;
+    }
+
+    for (var section : SECTIONS) {
+      publish(
+          m_histograms[p][m_publishIndex][section.ordinal()],
+          m_publishers[p][m_publishIndex][section.ordinal()]);
+    }
+    m_publishIndex++;
+  }
+
+  private void publish(LatencyHistogram histogram, DoubleArrayPublisher publisher) {
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      m_publishBuffer[i] = histogram.getPercentileUsec(PERCENTILES[i]);
+    }
+    m_publishBuffer[PERCENTILES.length] = histogram.getMaxUsec();
+    m_publishBuffer[PERCENTILES.length + 1] = histogram.getCount();
+
+    publisher.set(m_publishBuffer);
+  }
+}
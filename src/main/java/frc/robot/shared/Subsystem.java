@@ -20,4 +20,15 @@ public interface Subsystem {
 
   /** Reset the subsystem. */
   public void reset();
+
+  /** Set up the simulated hardware. Called once when running in simulation. */
+  public default void simulationInit() {}
+
+  /**
+   * Update the simulated hardware from the motor outputs. Called periodically when running in
+   * simulation, whether or not the robot is enabled.
+   *
+   * @param dtSec The time since the last update, in seconds.
+   */
+  public default void simulationUpdate(double dtSec) {}
 }
@@ -38,4 +38,24 @@ public class GearedMechanism {
   public Rotation2d getRotorRotationFromOutputRotation(Rotation2d outputRotation) {
     return outputRotation.div(m_gearRatio);
   }
+
+  /**
+   * Convert rotor rotations through the gear ratio to output rotations, without allocating.
+   *
+   * @param rotorRotations The rotations on the rotor to convert.
+   * @return The rotations on the output.
+   */
+  public double getOutputRotationsFromRotorRotations(double rotorRotations) {
+    return rotorRotations * m_gearRatio;
+  }
+
+  /**
+   * Convert output rotations through the gear ratio to rotor rotations, without allocating.
+   *
+   * @param outputRotations The rotations on the output to convert.
+   * @return The rotations on the rotor.
+   */
+  public double getRotorRotationsFromOutputRotations(double outputRotations) {
+    return outputRotations / m_gearRatio;
+  }
 }
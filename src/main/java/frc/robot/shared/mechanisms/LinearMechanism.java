@@ -68,4 +68,24 @@ public class LinearMechanism extends GearedMechanism {
   public Rotation2d getRotorRotationFromOutputDistance(double outputDistance) {
     return getRotorRotationFromOutputRotation(getOutputRotationFromOutputDistance(outputDistance));
   }
+
+  /**
+   * Get the output distance from the rotor rotations, without allocating.
+   *
+   * @param rotorRotations The rotations on the rotor to convert.
+   * @return The current output distance through the gear ratio.
+   */
+  public double getOutputDistanceFromRotorRotations(double rotorRotations) {
+    return getOutputRotationsFromRotorRotations(rotorRotations) * getCircumference();
+  }
+
+  /**
+   * Get the rotor rotations from the output distance, without allocating.
+   *
+   * @param outputDistance The distance on the output to convert.
+   * @return The rotor rotations through the gear ratio.
+   */
+  public double getRotorRotationsFromOutputDistance(double outputDistance) {
+    return getRotorRotationsFromOutputRotations(outputDistance / getCircumference());
+  }
 }
@@ -0,0 +1,201 @@
+package frc.robot.subsystems;
+
+import java.util.List;
+
+import frc.robot.devices.SignalPlanner;
+import frc.robot.devices.SignalRate;
+import frc.robot.devices.SignalRegistry;
+import frc.robot.greydash.GreyDashClient;
+import frc.robot.shared.RobotInfo;
+import frc.robot.shared.Subsystem;
+import frc.robot.subsystems.candle.CANdleManager;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.Telemetry.Tier;
+import frc.robot.telemetry.TelemetryEntry.StringEntry;
+
+import com.ctre.phoenixpro.BaseStatusSignalValue;
+import com.ctre.phoenixpro.CANBus;
+import com.ctre.phoenixpro.CANBus.CANBusStatus;
+import com.ctre.phoenixpro.Utils;
+import edu.wpi.first.hal.can.CANStatus;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * Watches the health of the rio and CANivore buses.
+ *
+ * <p>Every {@link #SAMPLE_PERIOD_SEC} it reads each bus's utilization and error counters, and how
+ * old each device's heartbeat signal is, from the signal's own timestamp. A device is stale once
+ * its heartbeat is several of its update periods old. If a bus is overloaded, goes bus-off or
+ * error-passive, or a device stops reporting, for {@link #ALERT_SAMPLES} samples in a row, the
+ * CANdle flashes a bus alert. This makes it easy to tell a loop stall caused by the bus from one
+ * caused by the code.
+ */
+@Accessors(prefix = "m_")
+public class CANBusMonitor implements Subsystem {
+  private static final double SAMPLE_PERIOD_SEC = 0.5;
+  private static final double UTILIZATION_ALERT_PERCENT = 80.0;
+  /** A CAN controller goes error-passive once either error counter reaches this. */
+  private static final int ERROR_PASSIVE_COUNT = 128;
+  /** A device is stale when its heartbeat is this many of its update periods old. */
+  private static final double STALE_HEARTBEAT_PERIODS = 5.0;
+  /** The shortest a device can go without reporting before it's stale, whatever its rate. */
+  private static final double MIN_STALE_SEC = 2.5 * SAMPLE_PERIOD_SEC;
+  /** How many samples in a row have to find a problem before the alert is raised. */
+  private static final int ALERT_SAMPLES = 2;
+
+  private static final int RIO = 0;
+  private static final int CANIVORE = 1;
+
+  private final CANdleManager m_candleManager;
+
+  private final DoubleArrayPublisher[] m_busPublishers = {
+    GreyDashClient.createCANBusPublisher("rio"),
+    GreyDashClient.createCANBusPublisher(RobotInfo.CANIVORE_NAME)
+  };
+  // [utilization percent, bus-off count, TX full count, RX error count, TX error count] per bus
+  private final double[][] m_busStatus = new double[2][5];
+  private final int[] m_lastBusOffCount = {-1, -1};
+
+  private final String[] m_deviceNames;
+  private final List<BaseStatusSignalValue> m_heartbeats;
+  private final double[] m_staleThresholdSec;
+  private final double[] m_stalenessMs;
+
+  private double m_lastSampleSec = Double.NEGATIVE_INFINITY;
+  private boolean m_newSample = false;
+  private int m_unhealthySamples = 0;
+  @Getter private boolean m_alert = false;
+  @Getter private String m_alertReason = "";
+
+  // Telemetry
+  private final StringEntry m_alertReasonEntry = Telemetry.stringEntry("CAN Alert", Tier.Operator);
+
+  /**
+   * Creates a new CANBusMonitor. Construct it after every device, so all heartbeats are registered.
+   *
+   * @param candleManager The CANdle that shows the bus alert.
+   */
+  public CANBusMonitor(CANdleManager candleManager) {
+    m_candleManager = candleManager;
+
+    m_deviceNames = SignalRegistry.getHeartbeatDevices().toArray(new String[0]);
+    m_heartbeats = SignalRegistry.getHeartbeatSignals();
+    m_staleThresholdSec = new double[m_deviceNames.length];
+    m_stalenessMs = new double[m_deviceNames.length];
+    for (int i = 0; i < m_deviceNames.length; i++) {
+      // A heartbeat that was never planned is assumed to be as slow as a debug signal
+      final double rateHz = SignalPlanner.getFrequencyHz(m_heartbeats.get(i));
+      final double periodSec = 1.0 / (rateHz > 0.0 ? rateHz : SignalRate.Debug.getFrequencyHz());
+      m_staleThresholdSec[i] = Math.max(MIN_STALE_SEC, STALE_HEARTBEAT_PERIODS * periodSec);
+    }
+  }
+
+  /**
+   * Records a bus's status.
+   *
+   * @return The reason the bus is unhealthy, or null if it is healthy.
+   */
+  private String updateBus(
+      int bus,
+      String name,
+      double utilizationPercent,
+      int busOffCount,
+      int txFullCount,
+      int rxErrorCount,
+      int txErrorCount) {
+    final double[] status = m_busStatus[bus];
+    status[0] = utilizationPercent;
+    status[1] = busOffCount;
+    status[2] = txFullCount;
+    status[3] = rxErrorCount;
+    status[4] = txErrorCount;
+
+    final int lastBusOffCount = m_lastBusOffCount[bus];
+    m_lastBusOffCount[bus] = busOffCount;
+
+    if (lastBusOffCount >= 0 && busOffCount > lastBusOffCount) {
+      return name + " bus-off";
+    } else if (rxErrorCount >= ERROR_PASSIVE_COUNT || txErrorCount >= ERROR_PASSIVE_COUNT) {
+      return name + " error-passive";
+    } else if (utilizationPercent > UTILIZATION_ALERT_PERCENT) {
+      return name + " utilization";
+    }
+    return null;
+  }
+
+  @Override
+  public void debugDashboardUpdate() {
+    m_alertReasonEntry.set(m_alertReason);
+  }
+
+  @Override
+  public void dashboardUpdate() {
+    if (!m_newSample) {
+      return;
+    }
+    m_newSample = false;
+
+    m_busPublishers[RIO].set(m_busStatus[RIO]);
+    m_busPublishers[CANIVORE].set(m_busStatus[CANIVORE]);
+    GreyDashClient.setCANDeviceStatus(m_deviceNames, m_stalenessMs, m_alert);
+  }
+
+  @Override
+  public void update() {
+    final double now = Timer.getFPGATimestamp();
+    if (now - m_lastSampleSec < SAMPLE_PERIOD_SEC) {
+      return;
+    }
+    m_lastSampleSec = now;
+    m_newSample = true;
+
+    final CANStatus rio = RobotController.getCANStatus();
+    String reason =
+        updateBus(
+            RIO,
+            "rio",
+            rio.percentBusUtilization * 100.0,
+            rio.busOffCount,
+            rio.txFullCount,
+            rio.receiveErrorCount,
+            rio.transmitErrorCount);
+
+    final CANBusStatus canivore = CANBus.getStatus(RobotInfo.CANIVORE_NAME);
+    final String canivoreReason =
+        updateBus(
+            CANIVORE,
+            RobotInfo.CANIVORE_NAME,
+            canivore.BusUtilization * 100.0,
+            canivore.BusOffCount,
+            canivore.TxFullCount,
+            canivore.REC,
+            canivore.TEC);
+    if (reason == null) {
+      reason = canivoreReason;
+    }
+
+    // Heartbeat timestamps are on Phoenix's clock, not the FPGA's
+    final double phoenixNow = Utils.getCurrentTimeSeconds();
+    for (int i = 0; i < m_deviceNames.length; i++) {
+      final double ageSec = phoenixNow - m_heartbeats.get(i).getTimestamp().getTime();
+      m_stalenessMs[i] = ageSec * 1000.0;
+      if (reason == null && ageSec > m_staleThresholdSec[i]) {
+        reason = m_deviceNames[i] + " stale";
+      }
+    }
+
+    m_unhealthySamples = reason != null ? m_unhealthySamples + 1 : 0;
+    m_alert = m_unhealthySamples >= ALERT_SAMPLES;
+    m_alertReason = m_alert ? reason : "";
+    m_candleManager.setBusAlert(m_alert);
+  }
+
+  @Override
+  public void reset() {
+    m_unhealthySamples = 0;
+  }
+}
@@ -4,12 +4,24 @@ import static frc.robot.shared.RobotInfo.*;
 
 import frc.robot.devices.GreyTalonFX;
 import frc.robot.devices.GreyTalonFX.ControlMode;
+import frc.robot.devices.SignalRate;
+import frc.robot.replay.LoggedValues;
+import frc.robot.replay.ReplayLog;
 import frc.robot.shared.RobotInfo;
 import frc.robot.shared.Subsystem;
 import frc.robot.subsystems.Superstructure.GamePiece;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.Telemetry.Tier;
+import frc.robot.telemetry.TelemetryEntry.BooleanEntry;
+import frc.robot.telemetry.TelemetryEntry.DoubleEntry;
 
+import com.ctre.phoenixpro.sim.TalonFXSimState;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.FlywheelSim;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -23,6 +35,14 @@ public class Claw implements Subsystem {
   private final DigitalInput m_cubeSensor;
   private final DigitalInput m_coneSensor;
 
+  /** The game piece sensors, as read at the start of the cycle. */
+  public static final class Inputs extends LoggedValues {
+    public boolean cubeSensor;
+    public boolean coneSensor;
+  }
+
+  private final Inputs m_inputs = new Inputs();
+
   private GamePiece m_lastGamePiece = GamePiece.None;
   @Getter private boolean m_hasGamePiece = false;
 
@@ -31,6 +51,29 @@ public class Claw implements Subsystem {
   private double m_statorCurrentLimit = 70.0;
   private double m_supplyCurrentLimit = 100.0;
 
+  // Simulation
+  private static final double SIM_ROLLER_MOI = 0.0005;
+  /** How long the rollers run in before a game piece is picked up. */
+  private static final double SIM_INTAKE_TIME_SEC = 0.4;
+  /** How long the rollers run out before a game piece is let go. */
+  private static final double SIM_OUTTAKE_TIME_SEC = 0.15;
+
+  private FlywheelSim m_rollerSim;
+  private DIOSim m_cubeSensorSim;
+  private DIOSim m_coneSensorSim;
+  private GamePiece m_simGamePiece = GamePiece.None;
+  private double m_simIntakeTimeSec = 0.0;
+  /** Game pieces let go of while scoring, rather than tossed. */
+  @Getter private int m_simScoredGamePieces = 0;
+
+  // Telemetry
+  private final DoubleEntry m_statorEntry = Telemetry.doubleEntry("Intake Stator");
+  private final DoubleEntry m_supplyEntry = Telemetry.doubleEntry("Intake Supply");
+  private final DoubleEntry m_velocityEntry = Telemetry.doubleEntry("Intake Velocity");
+  private final BooleanEntry m_gamePieceEntry = Telemetry.booleanEntry("Game Piece", Tier.Critical);
+  private final BooleanEntry m_cubeSensorEntry = Telemetry.booleanEntry("Cube Sensor");
+  private final BooleanEntry m_coneSensorEntry = Telemetry.booleanEntry("Cone Sensor");
+
   public enum IntakeState {
     In,
     Out,
@@ -43,10 +86,16 @@ public class Claw implements Subsystem {
     m_intakeMotor = new GreyTalonFX(ClawInfo.INTAKE_FX_ID, RobotInfo.CANIVORE_NAME);
     m_cubeSensor = new DigitalInput(ClawInfo.CUBE_SENSOR_ID);
     m_coneSensor = new DigitalInput(ClawInfo.CONE_SENSOR_ID);
+    ReplayLog.registerInputs("Claw", m_inputs, this::sampleInputs);
 
     configIntakeMotor();
   }
 
+  private void sampleInputs() {
+    m_inputs.cubeSensor = m_cubeSensor.get();
+    m_inputs.coneSensor = m_coneSensor.get();
+  }
+
   private void configIntakeMotor() {
     var motorConfig = m_intakeMotor.getCurrentConfig();
 
@@ -57,6 +106,11 @@ public class Claw implements Subsystem {
     motorConfig.CurrentLimits.StatorCurrentLimitEnable = true;
 
     m_intakeMotor.setConfig(motorConfig);
+
+    var signalRates = new GreyTalonFX.SignalRates();
+    signalRates.rotorVelocity = SignalRate.Control;
+    signalRates.statorCurrent = SignalRate.Control;
+    m_intakeMotor.setSignalRates(signalRates);
   }
 
   public boolean checkForGamePiece() {
@@ -77,27 +131,27 @@ public class Claw implements Subsystem {
   }
 
   private boolean getCubeSensor() {
-    return m_cubeSensor.get();
+    return m_inputs.cubeSensor;
   }
 
   public boolean getConeSensor() {
-    return m_coneSensor.get();
+    return m_inputs.coneSensor;
   }
 
   public void dashboardUpdate() {}
 
   public void debugDashboardUpdate() {
-    SmartDashboard.putNumber("Intake Stator", m_intakeStator);
-    SmartDashboard.putNumber("Intake Supply", m_intakeMotor.getSupplyCurrent().getValue());
-    SmartDashboard.putNumber("Intake Velocity", m_intakeMotor.getVelocity().getValue());
-    SmartDashboard.putBoolean("Game Piece", m_hasGamePiece);
-    SmartDashboard.putBoolean("Cube Sensor", getCubeSensor());
-    SmartDashboard.putBoolean("Cone Sensor", getConeSensor());
+    m_statorEntry.set(m_intakeStator);
+    m_supplyEntry.set(m_intakeMotor.getSupplyCurrentAmps());
+    m_velocityEntry.set(m_intakeMotor.getVelocityRotationsPerSec());
+    m_gamePieceEntry.set(m_hasGamePiece);
+    m_cubeSensorEntry.set(getCubeSensor());
+    m_coneSensorEntry.set(getConeSensor());
   }
 
   public void update() {
     GamePiece currentGamePiece = Superstructure.getCurrentGamePiece();
-    m_intakeStator = m_intakeMotor.getStatorCurrent().getValue();
+    m_intakeStator = m_intakeMotor.getStatorCurrentAmps();
     checkForGamePiece();
 
     if (currentGamePiece != m_lastGamePiece || currentGamePiece == GamePiece.None) {
@@ -148,4 +202,56 @@ public class Claw implements Subsystem {
   public void reset() {
     setIntakeState(IntakeState.Neutral);
   }
+
+  public void simulationInit() {
+    m_rollerSim = new FlywheelSim(DCMotor.getFalcon500(1), 1.0, SIM_ROLLER_MOI);
+    m_cubeSensorSim = new DIOSim(m_cubeSensor);
+    m_coneSensorSim = new DIOSim(m_coneSensor);
+    simulationUpdate(0.0);
+  }
+
+  /**
+   * Simulates the rollers and game piece sensors. Running the rollers in for a while picks up the
+   * current game piece, which trips its sensor and stalls the rollers so the stator current rises.
+   * Running them out briefly lets it go.
+   */
+  public void simulationUpdate(double dtSec) {
+    final TalonFXSimState motorSim = m_intakeMotor.getSimState();
+    motorSim.setSupplyVoltage(RobotController.getBatteryVoltage());
+    final double volts = motorSim.getMotorVoltage();
+
+    // Cubes are pulled in with negative output, cones with positive
+    final GamePiece gamePiece = Superstructure.getCurrentGamePiece();
+    final double intakeDirection = gamePiece == GamePiece.Cube ? -1.0 : 1.0;
+    final boolean intaking = gamePiece != GamePiece.None && volts * intakeDirection > 1.0;
+    final boolean outtaking = volts * intakeDirection < -1.0;
+
+    final boolean holding = m_simGamePiece != GamePiece.None;
+    if (intaking && !holding || outtaking && holding) {
+      m_simIntakeTimeSec += dtSec;
+    } else {
+      m_simIntakeTimeSec = 0.0;
+    }
+    if (m_simIntakeTimeSec > (holding ? SIM_OUTTAKE_TIME_SEC : SIM_INTAKE_TIME_SEC)) {
+      if (outtaking && m_intakeState == IntakeState.Out) {
+        m_simScoredGamePieces++;
+      }
+      m_simGamePiece = intaking ? gamePiece : GamePiece.None;
+      m_simIntakeTimeSec = 0.0;
+    }
+
+    // A held game piece stops the rollers
+    if (intaking && m_simGamePiece != GamePiece.None) {
+      m_rollerSim.setState(VecBuilder.fill(0.0));
+    } else {
+      m_rollerSim.setInputVoltage(volts);
+      m_rollerSim.update(dtSec);
+    }
+    final double rotorVelocity = m_rollerSim.getAngularVelocityRPM() / 60.0;
+    motorSim.setRotorVelocity(rotorVelocity);
+    motorSim.addRotorPosition(rotorVelocity * dtSec);
+
+    m_cubeSensorSim.setValue(m_simGamePiece == GamePiece.Cube);
+    m_coneSensorSim.setValue(m_simGamePiece == GamePiece.Cone);
+  }
 }
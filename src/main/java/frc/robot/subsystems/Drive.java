@@ -2,26 +2,30 @@ package frc.robot.subsystems;
 
 import frc.robot.devices.GreyPigeon;
 import frc.robot.greydash.GreyDashClient;
+import frc.robot.replay.LoggedValues;
+import frc.robot.replay.ReplayLog;
 import frc.robot.shared.RobotInfo.DriveInfo;
 import frc.robot.shared.Subsystem;
+import frc.robot.subsystems.swerve.SwerveKinematicsMath;
 import frc.robot.subsystems.swerve.SwerveModule;
+import frc.robot.subsystems.swerve.SwerveOdometryThread;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.Telemetry.Tier;
+import frc.robot.telemetry.TelemetryEntry.DoubleArrayEntry;
+import frc.robot.telemetry.TelemetryEntry.DoubleEntry;
 
-import com.google.common.collect.ImmutableList;
+import com.ctre.phoenixpro.sim.Pigeon2SimState;
 import edu.wpi.first.math.controller.HolonomicDriveController;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
-import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
-import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.trajectory.Trajectory.State;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.RobotController;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -37,9 +41,46 @@ public class Drive implements Subsystem {
     new Translation2d(-DriveInfo.TRACKWIDTH_METERS / 2.0, -DriveInfo.WHEELBASE_METERS / 2.0)
   };
 
-  private final SwerveDriveOdometry m_swerveOdometry;
+  /** The pose from the odometry thread, as of the start of the cycle. */
+  public static final class Inputs extends LoggedValues {
+    public double xMeters;
+    public double yMeters;
+    public double rotationRadians;
+
+    private Pose2d m_pose = new Pose2d();
+
+    private void setPose(Pose2d pose) {
+      m_pose = pose;
+      xMeters = pose.getX();
+      yMeters = pose.getY();
+      rotationRadians = pose.getRotation().getRadians();
+    }
+
+    @Override
+    protected void onReplay() {
+      m_pose = new Pose2d(xMeters, yMeters, new Rotation2d(rotationRadians));
+    }
+  }
+
+  /** The chassis speeds sent to the modules. */
+  public static final class Outputs extends LoggedValues {
+    public double vxMetersPerSecond;
+    public double vyMetersPerSecond;
+    public double omegaRadiansPerSecond;
+  }
+
+  /** How far ahead the chassis speeds are discretized, see {@link #update()}. */
+  private static final double DISCRETIZE_PERIOD_SEC = 0.03;
+
+  private final SwerveOdometryThread m_odometryThread;
   private final SwerveModule[] m_swerveModules;
   private ChassisSpeeds m_currentChassisSpeeds;
+  private final Inputs m_inputs = new Inputs();
+  private final Outputs m_outputs = new Outputs();
+
+  // Module setpoints, indexed by module number and reused every loop
+  private final double[] m_moduleSpeeds = new double[MODULE_LOCATIONS.length];
+  private final double[] m_moduleAnglesDegrees = new double[MODULE_LOCATIONS.length];
 
   @Getter private final GreyPigeon m_pigeon;
 
@@ -68,6 +109,26 @@ public class Drive implements Subsystem {
 
   private final HolonomicDriveController m_controller;
 
+  // Telemetry
+  private final DoubleEntry[] m_cancoderEntries = new DoubleEntry[4];
+  private final DoubleEntry[] m_integratedEntries = new DoubleEntry[4];
+  private final DoubleEntry[] m_velocityEntries = new DoubleEntry[4];
+  private final DoubleEntry[] m_driveStatorEntries = new DoubleEntry[4];
+  private final DoubleEntry[] m_driveSupplyEntries = new DoubleEntry[4];
+  private final DoubleArrayEntry m_setpointsEntry =
+      Telemetry.doubleArrayEntry("swerve/setpoints", 8, Tier.Critical);
+  private final DoubleArrayEntry m_actualEntry =
+      Telemetry.doubleArrayEntry("swerve/actual", 8, Tier.Critical);
+  private final DoubleArrayEntry m_odometryEntry =
+      Telemetry.doubleArrayEntry("swerve/odometry", 3, Tier.Operator);
+  private final DoubleEntry m_pitchEntry = Telemetry.doubleEntry("pitch", Tier.Operator);
+  private final DoubleEntry m_rollEntry = Telemetry.doubleEntry("roll", Tier.Operator);
+  private final DoubleEntry m_angleTargetEntry =
+      Telemetry.doubleEntry("Drive Angle Target", Tier.Operator);
+  private final DoubleEntry m_angleEntry = Telemetry.doubleEntry("Drive Angle", Tier.Critical);
+  private final DoubleEntry m_odometryRateEntry = Telemetry.doubleEntry("Odometry Rate");
+  private final DoubleEntry m_odometryJitterEntry = Telemetry.doubleEntry("Odometry Jitter");
+
   public Drive(GreyPigeon pigeon) {
     m_pigeon = pigeon;
 
@@ -79,10 +140,24 @@ public class Drive implements Subsystem {
           new SwerveModule(3, DriveInfo.BACK_RIGHT_CONSTANTS)
         };
 
+    for (SwerveModule mod : m_swerveModules) {
+      final String prefix = "Mod " + mod.moduleNumber;
+      m_cancoderEntries[mod.moduleNumber] = Telemetry.doubleEntry(prefix + " Cancoder");
+      m_integratedEntries[mod.moduleNumber] = Telemetry.doubleEntry(prefix + " Integrated");
+      m_velocityEntries[mod.moduleNumber] = Telemetry.doubleEntry(prefix + " Velocity");
+      m_driveStatorEntries[mod.moduleNumber] = Telemetry.doubleEntry(prefix + " Drive Stator");
+      m_driveSupplyEntries[mod.moduleNumber] = Telemetry.doubleEntry(prefix + " Drive Supply");
+    }
+
     m_currentChassisSpeeds = new ChassisSpeeds();
 
-    m_swerveOdometry =
-        new SwerveDriveOdometry(DriveInfo.SWERVE_KINEMATICS, m_pigeon.getYaw(), getPositions());
+    m_odometryThread = new SwerveOdometryThread(m_swerveModules, m_pigeon);
+    // While replaying, the pose comes from the log
+    if (!ReplayLog.isReplaying()) {
+      m_odometryThread.start();
+    }
+    ReplayLog.registerInputs("Drive", m_inputs, this::sampleInputs);
+    ReplayLog.registerOutputs("Drive", m_outputs);
 
     m_controller =
         new HolonomicDriveController(
@@ -96,26 +171,28 @@ public class Drive implements Subsystem {
                     DriveInfo.MAX_ANGULAR_VELOCITY_RADIANS_PER_SECOND, 7.0)));
   }
 
+  private void sampleInputs() {
+    final Pose2d pose = m_odometryThread.getPose();
+    // The thread publishes a new pose object with every update
+    if (pose != m_inputs.m_pose) {
+      m_inputs.setPose(pose);
+    }
+  }
+
   /** Balance the robot on the charge station */
   public void balanceDrive() {
-    var pitch = m_pigeon.getPitch();
-    var roll = m_pigeon.getRoll();
-    var yaw = m_pigeon.getNormalizedYaw();
+    final double pitch = m_pigeon.getPitchDegrees();
+    final double roll = m_pigeon.getRollDegrees();
+    final double yawRadians = Math.toRadians(m_pigeon.getNormalizedYawDegrees());
+    final boolean level = m_pigeon.isLevel(BALANCE_CUTOFF_THRESHOLD);
 
     // Determine the sign for pitch and roll based on the yaw angle
-    double pitchSign = Math.signum(yaw.getCos());
-    double rollSign = Math.signum(yaw.getSin());
+    double pitchSign = Math.signum(Math.cos(yawRadians));
+    double rollSign = Math.signum(Math.sin(yawRadians));
 
     // Calculate the pitch and roll output using the determined signs
-    double pitchOutput =
-        !m_pigeon.isLevel(BALANCE_CUTOFF_THRESHOLD)
-            ? m_balancePitchController.calculate(pitch.getDegrees(), 0.0) * pitchSign
-            : 0.0;
-
-    double rollOutput =
-        !m_pigeon.isLevel(BALANCE_CUTOFF_THRESHOLD)
-            ? m_balanceRollController.calculate(roll.getDegrees(), 0.0) * rollSign
-            : 0.0;
+    double pitchOutput = !level ? m_balancePitchController.calculate(pitch, 0.0) * pitchSign : 0.0;
+    double rollOutput = !level ? m_balanceRollController.calculate(roll, 0.0) * rollSign : 0.0;
 
     // Apply the translation to the holonomic drive with a zero rotation value
     driveInput(new Translation2d(pitchOutput + rollOutput, 0.0), 0.0, true);
@@ -163,28 +240,50 @@ public class Drive implements Subsystem {
 
   /* Used by Auto */
   public void setModuleStates(SwerveModuleState[] desiredStates) {
-    SwerveDriveKinematics.desaturateWheelSpeeds(
-        desiredStates, DriveInfo.MAX_VELOCITY_METERS_PER_SECOND);
+    for (int i = 0; i < desiredStates.length; i++) {
+      m_moduleSpeeds[i] = desiredStates[i].speedMetersPerSecond;
+      m_moduleAnglesDegrees[i] = desiredStates[i].angle.getDegrees();
+    }
+    applyModuleSetpoints();
+  }
+
+  /** Desaturates the module setpoints and sends them to the modules. */
+  private void applyModuleSetpoints() {
+    // Same as SwerveDriveKinematics.desaturateWheelSpeeds
+    double maxSpeed = 0.0;
+    for (double speed : m_moduleSpeeds) {
+      maxSpeed = Math.max(maxSpeed, Math.abs(speed));
+    }
+    if (maxSpeed > DriveInfo.MAX_VELOCITY_METERS_PER_SECOND) {
+      for (int i = 0; i < m_moduleSpeeds.length; i++) {
+        m_moduleSpeeds[i] = m_moduleSpeeds[i] / maxSpeed * DriveInfo.MAX_VELOCITY_METERS_PER_SECOND;
+      }
+    }
 
-    double states[] = new double[8];
     int index = 0;
     for (SwerveModule mod : m_swerveModules) {
-      mod.setDesiredState(desiredStates[mod.moduleNumber]);
-      states[index] = desiredStates[mod.moduleNumber].angle.getDegrees();
-      states[index + 1] = desiredStates[mod.moduleNumber].speedMetersPerSecond;
+      final double speed = m_moduleSpeeds[mod.moduleNumber];
+      final double angleDegrees = m_moduleAnglesDegrees[mod.moduleNumber];
+      mod.setDesiredState(speed, angleDegrees, false);
+      m_setpointsEntry.set(index, angleDegrees);
+      m_setpointsEntry.set(index + 1, speed);
       index += 2;
     }
-
-    SmartDashboard.putNumberArray("swerve/setpoints", states);
   }
 
+  /**
+   * Returns the pose as of the start of the cycle, or the last reset since.
+   *
+   * @return The robot's pose.
+   */
   public Pose2d getPose() {
-    return m_swerveOdometry.getPoseMeters();
+    return m_inputs.m_pose;
   }
 
   public void resetOdometry(Pose2d pose) {
     m_pigeon.setYawOffset(pose.getRotation());
-    m_swerveOdometry.resetPosition(m_pigeon.getYaw(), getPositions(), pose);
+    m_odometryThread.resetPose(pose);
+    m_inputs.setPose(pose);
   }
 
   public void resetModules() {
@@ -193,14 +292,6 @@ public class Drive implements Subsystem {
     }
   }
 
-  private SwerveModulePosition[] getPositions() {
-    var positions = new SwerveModulePosition[4];
-    for (var mod : m_swerveModules) {
-      positions[mod.moduleNumber] = mod.getPosition();
-    }
-    return positions;
-  }
-
   public void enableBrakeMode() {
     for (var mod : m_swerveModules) {
       mod.driveBrake();
@@ -214,60 +305,58 @@ public class Drive implements Subsystem {
   }
 
   public void dashboardUpdate() {
-    GreyDashClient.setGyroAngle(m_pigeon.getYaw().getDegrees());
+    GreyDashClient.setGyroAngle(m_pigeon.getYawDegrees());
   }
 
   public void debugDashboardUpdate() {
-    double states[] = new double[8];
     int index = 0;
 
     for (SwerveModule mod : m_swerveModules) {
-      SmartDashboard.putNumber(
-          "Mod " + mod.moduleNumber + " Cancoder", mod.getCanCoder().getDegrees());
-      SmartDashboard.putNumber(
-          "Mod " + mod.moduleNumber + " Integrated", mod.getState().angle.getDegrees());
-      SmartDashboard.putNumber(
-          "Mod " + mod.moduleNumber + " Velocity", mod.getState().speedMetersPerSecond);
-      SmartDashboard.putNumber(
-          "Mod " + mod.moduleNumber + " Drive Stator", mod.getDriveStatorCurrent());
-      SmartDashboard.putNumber(
-          "Mod " + mod.moduleNumber + " Drive Supply", mod.getDriveSupplyCurrent());
-      states[index] = mod.getState().angle.getDegrees();
-      states[index + 1] = mod.getState().speedMetersPerSecond;
+      final SwerveModuleState state = mod.getState();
+      m_cancoderEntries[mod.moduleNumber].set(mod.getCanCoder().getDegrees());
+      m_integratedEntries[mod.moduleNumber].set(state.angle.getDegrees());
+      m_velocityEntries[mod.moduleNumber].set(state.speedMetersPerSecond);
+      m_driveStatorEntries[mod.moduleNumber].set(mod.getDriveStatorCurrent());
+      m_driveSupplyEntries[mod.moduleNumber].set(mod.getDriveSupplyCurrent());
+      m_actualEntry.set(index, state.angle.getDegrees());
+      m_actualEntry.set(index + 1, state.speedMetersPerSecond);
       index += 2;
     }
-    SmartDashboard.putNumberArray("swerve/actual", states);
-    SmartDashboard.putNumber("pitch", m_pigeon.getPitch().getDegrees());
-    SmartDashboard.putNumber("roll", m_pigeon.getRoll().getDegrees());
-    SmartDashboard.putNumberArray(
-        "swerve/odometry",
-        ImmutableList.of(
-                getPose().getTranslation().getX(),
-                getPose().getTranslation().getY(),
-                getPose().getRotation().getDegrees())
-            .toArray(Double[]::new));
-
-    SmartDashboard.putNumber("Drive Angle Target", m_targetRobotAngle.getDegrees());
-    SmartDashboard.putNumber("Drive Angle", m_pigeon.getYaw().getDegrees());
+    m_pitchEntry.set(m_pigeon.getPitchDegrees());
+    m_rollEntry.set(m_pigeon.getRollDegrees());
+
+    final Pose2d pose = getPose();
+    m_odometryEntry.set(0, pose.getTranslation().getX());
+    m_odometryEntry.set(1, pose.getTranslation().getY());
+    m_odometryEntry.set(2, pose.getRotation().getDegrees());
+
+    m_angleTargetEntry.set(m_targetRobotAngle.getDegrees());
+    m_angleEntry.set(m_pigeon.getYawDegrees());
+    m_odometryRateEntry.set(m_odometryThread.getRateHz());
+    m_odometryJitterEntry.set(m_odometryThread.getJitterMs());
   }
 
+  /**
+   * Converts the current chassis speeds into module setpoints and applies them.
+   *
+   * <p>This runs every loop, so it is written with primitives only and does not allocate. See
+   * {@link SwerveKinematicsMath#toModuleSetpoints}.
+   */
   public void update() {
-    m_swerveOdometry.update(m_pigeon.getYaw(), getPositions());
-
-    Pose2d robot_pose_vel =
-        new Pose2d(
-            m_currentChassisSpeeds.vxMetersPerSecond * 0.03,
-            m_currentChassisSpeeds.vyMetersPerSecond * 0.03,
-            new Rotation2d(m_currentChassisSpeeds.omegaRadiansPerSecond * 0.03));
-    Pose2d robot_cur_pose = new Pose2d();
-    Twist2d twist_vel = robot_cur_pose.log(robot_pose_vel);
-    ChassisSpeeds updated_chassis_speeds =
-        new ChassisSpeeds(twist_vel.dx / 0.03, twist_vel.dy / 0.03, twist_vel.dtheta / 0.03);
-
-    SwerveModuleState[] swerveModuleStates =
-        DriveInfo.SWERVE_KINEMATICS.toSwerveModuleStates(updated_chassis_speeds);
-
-    setModuleStates(swerveModuleStates);
+    m_outputs.vxMetersPerSecond = m_currentChassisSpeeds.vxMetersPerSecond;
+    m_outputs.vyMetersPerSecond = m_currentChassisSpeeds.vyMetersPerSecond;
+    m_outputs.omegaRadiansPerSecond = m_currentChassisSpeeds.omegaRadiansPerSecond;
+
+    SwerveKinematicsMath.toModuleSetpoints(
+        m_currentChassisSpeeds.vxMetersPerSecond,
+        m_currentChassisSpeeds.vyMetersPerSecond,
+        m_currentChassisSpeeds.omegaRadiansPerSecond,
+        DISCRETIZE_PERIOD_SEC,
+        MODULE_LOCATIONS,
+        m_moduleSpeeds,
+        m_moduleAnglesDegrees);
+
+    applyModuleSetpoints();
   }
 
   public void reset() {
@@ -275,4 +364,27 @@ public class Drive implements Subsystem {
     m_targetRobotAngle = m_pigeon.getYaw();
     resetOdometry(new Pose2d());
   }
+
+  public void simulationInit() {
+    for (SwerveModule mod : m_swerveModules) {
+      mod.simulationInit();
+    }
+  }
+
+  /**
+   * Simulates the modules, and turns the robot's rotation from the simulated module states into
+   * gyro yaw. The charge station isn't simulated, so pitch and roll stay at zero.
+   */
+  public void simulationUpdate(double dtSec) {
+    final SwerveModuleState[] states = new SwerveModuleState[m_swerveModules.length];
+    for (SwerveModule mod : m_swerveModules) {
+      mod.simulationUpdate(dtSec);
+      states[mod.moduleNumber] = mod.getSimulatedState();
+    }
+
+    final ChassisSpeeds speeds = DriveInfo.SWERVE_KINEMATICS.toChassisSpeeds(states);
+    final Pigeon2SimState pigeonSim = m_pigeon.getSimState();
+    pigeonSim.setSupplyVoltage(RobotController.getBatteryVoltage());
+    pigeonSim.addYaw(Math.toDegrees(speeds.omegaRadiansPerSecond * dtSec));
+  }
 }
@@ -4,15 +4,27 @@ import static frc.robot.shared.RobotInfo.*;
 
 import frc.robot.devices.GreyTalonFX;
 import frc.robot.devices.GreyTalonFX.ControlMode;
+import frc.robot.devices.SignalRate;
+import frc.robot.replay.LoggedValues;
+import frc.robot.replay.ReplayLog;
 import frc.robot.shared.RobotInfo;
 import frc.robot.shared.Subsystem;
 import frc.robot.shared.mechanisms.LinearMechanism;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.Telemetry.Tier;
+import frc.robot.telemetry.TelemetryEntry.BooleanEntry;
+import frc.robot.telemetry.TelemetryEntry.DoubleEntry;
 
 import com.ctre.phoenixpro.controls.Follower;
 import com.ctre.phoenixpro.signals.InvertedValue;
+import com.ctre.phoenixpro.sim.TalonFXSimState;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.ElevatorSim;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -25,6 +37,14 @@ public class Elevator implements Subsystem {
   private final DigitalInput m_bottomHall;
   private final DigitalInput m_topHall;
 
+  /** The hall sensors, as read at the start of the cycle. They are active low. */
+  public static final class Inputs extends LoggedValues {
+    public boolean bottomHall;
+    public boolean topHall;
+  }
+
+  private final Inputs m_inputs = new Inputs();
+
   private double m_elevatorOutput = 0.0;
   private double m_targetPosition = 0.0;
 
@@ -42,11 +62,35 @@ public class Elevator implements Subsystem {
 
   private static final double STOW_OFFSET = 7.628;
   private static final double MAX_HEIGHT = 27.58;
-  private static final double POSITION_TARGET_TOLERANCE = 0.5;
+  public static final double POSITION_TARGET_TOLERANCE = 0.5;
+
+  // Simulation
+  private static final DCMotor SIM_GEARBOX = DCMotor.getFalcon500(2);
+  /** Chosen so holding the carriage up takes the same 0.43 V as the real feedforward. */
+  private static final double SIM_CARRIAGE_MASS_KG = 12.9;
+  /** How close to the end of travel the hall sensors trip, in inches. */
+  private static final double SIM_HALL_TOLERANCE = 0.25;
+
+  private ElevatorSim m_elevatorSim;
+  private DIOSim m_bottomHallSim;
+  private DIOSim m_topHallSim;
+  private double m_simGravityVolts;
 
   @Getter @Setter private ElevatorState m_elevatorState = ElevatorState.ClosedLoop;
   @Getter private Preset m_preset = Preset.Stow;
 
+  // Telemetry
+  private final DoubleEntry m_positionEntry = Telemetry.doubleEntry("Elevator Position");
+  private final DoubleEntry m_targetPositionEntry =
+      Telemetry.doubleEntry("Elevator Target Position");
+  private final DoubleEntry m_velocityEntry = Telemetry.doubleEntry("Elevator Velocity");
+  private final DoubleEntry m_heightEntry = Telemetry.doubleEntry("Elevator Height", Tier.Operator);
+  private final BooleanEntry m_bottomHallEntry = Telemetry.booleanEntry("Elevator Bottom Hall");
+  private final BooleanEntry m_topHallEntry = Telemetry.booleanEntry("Elevator Top Hall");
+  private final DoubleEntry m_ratioEntry = Telemetry.doubleEntry("Elevator Ratio");
+  private final DoubleEntry m_supplyCurrentEntry = Telemetry.doubleEntry("Elevator Supply Current");
+  private final DoubleEntry m_statorCurrentEntry = Telemetry.doubleEntry("Elevator Stator Current");
+
   public enum ElevatorState {
     /** Manually control the motors with the joystick */
     Manual,
@@ -81,6 +125,7 @@ public class Elevator implements Subsystem {
     m_elevatorFollowerMotor = new GreyTalonFX(ElevatorInfo.FOLLOWER_FX_ID, RobotInfo.CANIVORE_NAME);
     m_bottomHall = new DigitalInput(ElevatorInfo.BOTTOM_HALL_SENSOR_ID);
     m_topHall = new DigitalInput(ElevatorInfo.TOP_HALL_SENSOR_ID);
+    ReplayLog.registerInputs("Elevator", m_inputs, this::sampleInputs);
 
     // Factory Default
     var motorConfig = m_elevatorMotor.getCurrentConfig();
@@ -106,9 +151,21 @@ public class Elevator implements Subsystem {
     m_elevatorMotor.setConfig(motorConfig);
     m_elevatorFollowerMotor.setControl(new Follower(ElevatorInfo.FX_ID, false));
 
+    var signalRates = new GreyTalonFX.SignalRates();
+    signalRates.rotorPosition = SignalRate.Control;
+    signalRates.rotorVelocity = SignalRate.Control;
+    signalRates.followedOutputs = SignalRate.Control;
+    m_elevatorMotor.setSignalRates(signalRates);
+    m_elevatorFollowerMotor.setSignalRates(new GreyTalonFX.SignalRates());
+
     m_elevatorMotor.setRotorPosition(0.0);
   }
 
+  private void sampleInputs() {
+    m_inputs.bottomHall = m_bottomHall.get();
+    m_inputs.topHall = m_topHall.get();
+  }
+
   public void setElevatorOutput(double percent) {
     m_elevatorOutput = percent;
   }
@@ -151,11 +208,11 @@ public class Elevator implements Subsystem {
   }
 
   public boolean getTopHall() {
-    return !m_topHall.get();
+    return !m_inputs.topHall;
   }
 
   public boolean getBottomHall() {
-    return !m_bottomHall.get();
+    return !m_inputs.bottomHall;
   }
 
   public boolean isAtHeight(double height) {
@@ -173,18 +230,15 @@ public class Elevator implements Subsystem {
   public void dashboardUpdate() {}
 
   public void debugDashboardUpdate() {
-    SmartDashboard.putNumber("Elevator Position", getPosition());
-    SmartDashboard.putNumber("Elevator Target Position", m_targetPosition);
-    SmartDashboard.putNumber("Elevator Velocity", m_elevatorMotor.getRotorVelocity().getValue());
-    SmartDashboard.putNumber("Elevator Height", getHeight());
-    SmartDashboard.putNumber("Elevator Position", getPosition());
-    SmartDashboard.putBoolean("Elevator Bottom Hall", getBottomHall());
-    SmartDashboard.putBoolean("Elevator Top Hall", getTopHall());
-    SmartDashboard.putNumber("Elevator Ratio", getMinimumToCurrentHeightRatio());
-    SmartDashboard.putNumber(
-        "Elevator Supply Current", m_elevatorMotor.getSupplyCurrent().getValue());
-    SmartDashboard.putNumber(
-        "Elevator Stator Current", m_elevatorMotor.getStatorCurrent().getValue());
+    m_positionEntry.set(getPosition());
+    m_targetPositionEntry.set(m_targetPosition);
+    m_velocityEntry.set(m_elevatorMotor.getRotorVelocityRotationsPerSec());
+    m_heightEntry.set(getHeight());
+    m_bottomHallEntry.set(getBottomHall());
+    m_topHallEntry.set(getTopHall());
+    m_ratioEntry.set(getMinimumToCurrentHeightRatio());
+    m_supplyCurrentEntry.set(m_elevatorMotor.getSupplyCurrentAmps());
+    m_statorCurrentEntry.set(m_elevatorMotor.getStatorCurrentAmps());
   }
 
   public void update() {
@@ -222,4 +276,52 @@ public class Elevator implements Subsystem {
     setElevatorOutput(0.0);
     m_elevatorMotor.setRotorPosition(0.0);
   }
+
+  public void simulationInit() {
+    final double drumRadiusMeters = Units.inchesToMeters(SPROCKET_PD / 2.0);
+    final double maxPositionMeters =
+        Units.inchesToMeters(getPositionFromHeight(MAX_HEIGHT - STOW_OFFSET));
+    // The carriage rides along the incline, so gravity is added by hand below
+    m_elevatorSim =
+        new ElevatorSim(
+            SIM_GEARBOX,
+            1.0 / GEAR_RATIO,
+            SIM_CARRIAGE_MASS_KG,
+            drumRadiusMeters,
+            0.0,
+            maxPositionMeters,
+            false);
+    final double gravityTorque = SIM_CARRIAGE_MASS_KG * 9.81 * SIN_OF_ANGLE * drumRadiusMeters;
+    m_simGravityVolts = gravityTorque * GEAR_RATIO / SIM_GEARBOX.KtNMPerAmp * SIM_GEARBOX.rOhms;
+
+    m_bottomHallSim = new DIOSim(m_bottomHall);
+    m_topHallSim = new DIOSim(m_topHall);
+    simulationUpdate(0.0);
+  }
+
+  public void simulationUpdate(double dtSec) {
+    final TalonFXSimState leaderSim = m_elevatorMotor.getSimState();
+    final TalonFXSimState followerSim = m_elevatorFollowerMotor.getSimState();
+    leaderSim.setSupplyVoltage(RobotController.getBatteryVoltage());
+    followerSim.setSupplyVoltage(RobotController.getBatteryVoltage());
+
+    // The leader is inverted, so positive output is negative motor voltage
+    final double volts = -leaderSim.getMotorVoltage();
+    m_elevatorSim.setInputVoltage(volts - m_simGravityVolts);
+    m_elevatorSim.update(dtSec);
+
+    final double position = Units.metersToInches(m_elevatorSim.getPositionMeters());
+    final double velocity = Units.metersToInches(m_elevatorSim.getVelocityMetersPerSecond());
+    final double rotorRotations = m_mechanism.getRotorRotationsFromOutputDistance(position);
+    final double rotorVelocity = m_mechanism.getRotorRotationsFromOutputDistance(velocity);
+    leaderSim.setRawRotorPosition(-rotorRotations);
+    leaderSim.setRotorVelocity(-rotorVelocity);
+    followerSim.setRawRotorPosition(-rotorRotations);
+    followerSim.setRotorVelocity(-rotorVelocity);
+
+    // The hall sensors are active low
+    final double maxPosition = getPositionFromHeight(MAX_HEIGHT - STOW_OFFSET);
+    m_bottomHallSim.setValue(position > SIM_HALL_TOLERANCE);
+    m_topHallSim.setValue(position < maxPosition - SIM_HALL_TOLERANCE);
+  }
 }
@@ -4,8 +4,10 @@ import frc.robot.shared.Conversions.Time;
 import frc.robot.shared.Subsystem;
 import frc.robot.subsystems.Claw.IntakeState;
 import frc.robot.subsystems.Wrist.WristPreset;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.Telemetry.Tier;
+import frc.robot.telemetry.TelemetryEntry.StringEntry;
 
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -48,6 +50,12 @@ public class Superstructure implements Subsystem {
 
   private double m_tossTimer = 0.0;
 
+  // Telemetry
+  private final StringEntry m_desiredGlobalStateEntry =
+      Telemetry.stringEntry("Desired Global State", Tier.Operator);
+  private final StringEntry m_intakeStateEntry =
+      Telemetry.stringEntry("Intake State", Tier.Operator);
+
   public void dashboardUpdate() {}
 
   public void update() {
@@ -155,7 +163,7 @@ public class Superstructure implements Subsystem {
   }
 
   public void debugDashboardUpdate() {
-    SmartDashboard.putString("Desired Global State", m_desiredGlobalState.toString());
-    SmartDashboard.putString("Intake State", String.valueOf(m_desiredIntakeState));
+    m_desiredGlobalStateEntry.set(m_desiredGlobalState);
+    m_intakeStateEntry.set(m_desiredIntakeState);
   }
 }
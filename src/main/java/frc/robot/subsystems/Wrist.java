@@ -3,11 +3,22 @@ package frc.robot.subsystems;
 import frc.robot.devices.GreyPigeon;
 import frc.robot.devices.GreyTalonFX;
 import frc.robot.devices.GreyTalonFX.ControlMode;
+import frc.robot.devices.SignalPlanner;
+import frc.robot.devices.SignalRate;
+import frc.robot.devices.SignalRegistry;
+import frc.robot.replay.LoggedValues;
+import frc.robot.replay.ReplayLog;
 import frc.robot.shared.RobotInfo;
 import frc.robot.shared.RobotInfo.ClawInfo;
 import frc.robot.shared.Subsystem;
 import frc.robot.subsystems.Superstructure.GamePiece;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.Telemetry.Tier;
+import frc.robot.telemetry.TelemetryEntry.BooleanEntry;
+import frc.robot.telemetry.TelemetryEntry.DoubleEntry;
+import frc.robot.telemetry.TelemetryEntry.StringEntry;
 
+import com.ctre.phoenixpro.StatusSignalValue;
 import com.ctre.phoenixpro.configs.CANcoderConfiguration;
 import com.ctre.phoenixpro.hardware.CANcoder;
 import com.ctre.phoenixpro.signals.AbsoluteSensorRangeValue;
@@ -15,8 +26,14 @@ import com.ctre.phoenixpro.signals.FeedbackSensorSourceValue;
 import com.ctre.phoenixpro.signals.InvertedValue;
 import com.ctre.phoenixpro.signals.NeutralModeValue;
 import com.ctre.phoenixpro.signals.SensorDirectionValue;
+import com.ctre.phoenixpro.sim.CANcoderSimState;
+import com.ctre.phoenixpro.sim.TalonFXSimState;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -27,20 +44,55 @@ public class Wrist implements Subsystem {
   private static final double WRIST_FF = 0.45;
   private static final double ENCODER_OFFSET = 304.189 - STOW_OFFSET;
 
+  // Simulation. The arm sim measures from horizontal, the wrist from straight up.
+  private static final double SIM_ARM_LENGTH_METERS = 0.4;
+  /** Chosen so holding the wrist level takes the same voltage as WRIST_FF. */
+  private static final double SIM_ARM_MASS_KG = 2.8;
+  private static final double SIM_MIN_ANGLE = -125.0;
+  private static final double SIM_MAX_ANGLE = 40.0;
+  /** How close to stow the hall sensor trips, in degrees. */
+  private static final double SIM_HALL_TOLERANCE = 2.0;
+
+  private SingleJointedArmSim m_armSim;
+  private DIOSim m_wristHallSim;
+
   @Setter @Getter private WristState m_state = WristState.ClosedLoop;
   @Getter private WristPreset m_preset = WristPreset.Stow;
 
   private final GreyPigeon m_pigeon;
   private final CANcoder m_encoder;
+  private final StatusSignalValue<Double> m_encoderPosition;
+  private final StatusSignalValue<Double> m_encoderVelocity;
   private final GreyTalonFX m_wristMotor;
 
   private final DigitalInput m_wristHall;
 
+  /** The encoder and hall sensor, as read at the start of the cycle. */
+  public static final class Inputs extends LoggedValues {
+    public double encoderPositionRotations;
+    public double encoderVelocityRotationsPerSec;
+    /** Active low. */
+    public boolean hall;
+  }
+
+  private final Inputs m_inputs = new Inputs();
+
   @Getter private double m_targetAngle = STOW_OFFSET;
 
   @Setter private double m_motorOutput = 0.0;
 
-  private final double ANGLE_TOLERANCE = 3.0; // degrees
+  public static final double ANGLE_TOLERANCE = 3.0; // degrees
+
+  // Telemetry
+  private final DoubleEntry m_angleEntry = Telemetry.doubleEntry("Wrist Angle", Tier.Operator);
+  private final DoubleEntry m_angleTargetEntry = Telemetry.doubleEntry("Wrist Angle Target");
+  private final StringEntry m_presetEntry = Telemetry.stringEntry("Wrist Preset", Tier.Operator);
+  private final DoubleEntry m_statorEntry = Telemetry.doubleEntry("Wrist Stator");
+  private final BooleanEntry m_sensorEntry = Telemetry.booleanEntry("Wrist Sensor");
+  private final DoubleEntry m_absoluteEncoderEntry =
+      Telemetry.doubleEntry("Wrist Absolute Encoder");
+  private final DoubleEntry m_rawAngleEntry = Telemetry.doubleEntry("Wrist Raw Angle");
+  private final DoubleEntry m_velocityEntry = Telemetry.doubleEntry("Wrist Velocity");
 
   public enum WristState {
     Manual,
@@ -82,11 +134,37 @@ public class Wrist implements Subsystem {
     m_pigeon = pigeon;
     m_encoder = new CANcoder(ClawInfo.WRIST_ENCODER_ID, RobotInfo.CANIVORE_NAME);
     configEncoder();
+    m_encoderPosition = m_encoder.getAbsolutePosition();
+    m_encoderVelocity = m_encoder.getVelocity();
+    SignalRegistry.register(RobotInfo.CANIVORE_NAME, m_encoderPosition, m_encoderVelocity);
+    SignalRegistry.registerHeartbeat("CANcoder " + ClawInfo.WRIST_ENCODER_ID, m_encoderPosition);
+    SignalPlanner.plan(
+        RobotInfo.CANIVORE_NAME, SignalRate.Control, m_encoderPosition, m_encoderVelocity);
+    SignalPlanner.plan(
+        RobotInfo.CANIVORE_NAME,
+        SignalRate.Off,
+        m_encoder.getPosition(),
+        m_encoder.getUnfilteredVelocity(),
+        m_encoder.getPositionSinceBoot(),
+        m_encoder.getMagnetHealth(),
+        m_encoder.getSupplyVoltage());
+    SignalPlanner.plan(
+        RobotInfo.CANIVORE_NAME,
+        SignalRate.Diagnostics,
+        m_encoder.getFaultField(),
+        m_encoder.getStickyFaultField());
 
     m_wristMotor = new GreyTalonFX(ClawInfo.WRIST_FX_ID, RobotInfo.CANIVORE_NAME);
     configWristMotor();
 
     m_wristHall = new DigitalInput(ClawInfo.WRIST_HALL_ID);
+    ReplayLog.registerInputs("Wrist", m_inputs, this::sampleInputs);
+  }
+
+  private void sampleInputs() {
+    m_inputs.encoderPositionRotations = m_encoderPosition.getValue();
+    m_inputs.encoderVelocityRotationsPerSec = m_encoderVelocity.getValue();
+    m_inputs.hall = m_wristHall.get();
   }
 
   private void configWristMotor() {
@@ -122,6 +200,10 @@ public class Wrist implements Subsystem {
     motorConfig.MotionMagic.MotionMagicAcceleration = 12;
     motorConfig.MotionMagic.MotionMagicCruiseVelocity = 30;
     m_wristMotor.setConfig(motorConfig);
+
+    var signalRates = new GreyTalonFX.SignalRates();
+    signalRates.rotorVelocity = SignalRate.Control;
+    m_wristMotor.setSignalRates(signalRates);
   }
 
   private void configEncoder() {
@@ -148,11 +230,11 @@ public class Wrist implements Subsystem {
   }
 
   public double getCurrentAngleDegrees() {
-    return (m_encoder.getAbsolutePosition().getValue() * 360.0) - ENCODER_OFFSET;
+    return (m_inputs.encoderPositionRotations * 360.0) - ENCODER_OFFSET;
   }
 
   private double getRawAngleDegrees() {
-    return m_encoder.getAbsolutePosition().getValue() * 360.0;
+    return m_inputs.encoderPositionRotations * 360.0;
   }
 
   public void setTargetAngleDegrees(double angle) {
@@ -160,11 +242,11 @@ public class Wrist implements Subsystem {
   }
 
   public double getVelocity() {
-    return m_encoder.getVelocity().getValue() * 360.0;
+    return m_inputs.encoderVelocityRotationsPerSec * 360.0;
   }
 
   public boolean getWristHall() {
-    return !m_wristHall.get();
+    return !m_inputs.hall;
   }
 
   public boolean isAtTargetAngle() {
@@ -174,14 +256,14 @@ public class Wrist implements Subsystem {
   public void dashboardUpdate() {}
 
   public void debugDashboardUpdate() {
-    SmartDashboard.putNumber("Wrist Angle", getCurrentAngleDegrees());
-    SmartDashboard.putNumber("Wrist Angle Target", m_targetAngle);
-    SmartDashboard.putString("Wrist Preset", m_preset.toString());
-    SmartDashboard.putNumber("Wrist Stator", m_wristMotor.getStatorCurrent().getValue());
-    SmartDashboard.putBoolean("Wrist Sensor", getWristHall());
-    SmartDashboard.putNumber("Wrist Absolute Encoder", m_encoder.getAbsolutePosition().getValue());
-    SmartDashboard.putNumber("Wrist Raw Angle", getRawAngleDegrees());
-    SmartDashboard.putNumber("Wrist Velocity", getVelocity());
+    m_angleEntry.set(getCurrentAngleDegrees());
+    m_angleTargetEntry.set(m_targetAngle);
+    m_presetEntry.set(m_preset);
+    m_statorEntry.set(m_wristMotor.getStatorCurrentAmps());
+    m_sensorEntry.set(getWristHall());
+    m_absoluteEncoderEntry.set(m_inputs.encoderPositionRotations);
+    m_rawAngleEntry.set(getRawAngleDegrees());
+    m_velocityEntry.set(getVelocity());
   }
 
   public void update() {
@@ -205,7 +287,7 @@ public class Wrist implements Subsystem {
         // If the original target angle is > 0, then don't gimbal. Make the max gimbaled angle 0
         var angle = m_targetAngle;
         if (m_targetAngle < 0) {
-          angle = Math.min(0, m_targetAngle + m_pigeon.getPitch().getDegrees());
+          angle = Math.min(0, m_targetAngle + m_pigeon.getPitchDegrees());
         }
 
         m_wristMotor.setControl(
@@ -222,4 +304,41 @@ public class Wrist implements Subsystem {
   public void reset() {
     setPreset(WristPreset.Stow);
   }
+
+  public void simulationInit() {
+    m_armSim =
+        new SingleJointedArmSim(
+            DCMotor.getFalcon500(1),
+            1.0 / ClawInfo.GEAR_RATIO,
+            SingleJointedArmSim.estimateMOI(SIM_ARM_LENGTH_METERS, SIM_ARM_MASS_KG),
+            SIM_ARM_LENGTH_METERS,
+            Math.toRadians(90.0 - SIM_MAX_ANGLE),
+            Math.toRadians(90.0 - SIM_MIN_ANGLE),
+            true);
+    m_armSim.setState(VecBuilder.fill(Math.toRadians(90.0 - STOW_OFFSET), 0.0));
+    m_wristHallSim = new DIOSim(m_wristHall);
+    simulationUpdate(0.0);
+  }
+
+  public void simulationUpdate(double dtSec) {
+    final TalonFXSimState motorSim = m_wristMotor.getSimState();
+    final CANcoderSimState encoderSim = m_encoder.getSimState();
+    motorSim.setSupplyVoltage(RobotController.getBatteryVoltage());
+    encoderSim.setSupplyVoltage(RobotController.getBatteryVoltage());
+
+    // The motor is inverted, so positive output is negative motor voltage. Positive wrist angles
+    // are negative arm sim angles.
+    m_armSim.setInputVoltage(motorSim.getMotorVoltage());
+    m_armSim.update(dtSec);
+
+    final double angleDegrees = 90.0 - Math.toDegrees(m_armSim.getAngleRads());
+    final double velocityDegrees = -Math.toDegrees(m_armSim.getVelocityRadPerSec());
+    encoderSim.setRawPosition((angleDegrees + ENCODER_OFFSET) / 360.0);
+    encoderSim.setVelocity(velocityDegrees / 360.0);
+    motorSim.setRawRotorPosition(-angleDegrees / 360.0 / ClawInfo.GEAR_RATIO);
+    motorSim.setRotorVelocity(-velocityDegrees / 360.0 / ClawInfo.GEAR_RATIO);
+
+    // The hall sensor is active low
+    m_wristHallSim.setValue(Math.abs(angleDegrees - STOW_OFFSET) > SIM_HALL_TOLERANCE);
+  }
 }
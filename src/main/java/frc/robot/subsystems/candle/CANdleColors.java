@@ -9,6 +9,7 @@ public final class CANdleColors {
   public static final RGBColor emergency = new RGBColor(255, 0, 0);
   public static final RGBColor autoWaiting = new RGBColor(0, 0, 255);
   public static final RGBColor balance = new RGBColor(244, 140, 0);
+  public static final RGBColor busAlert = new RGBColor(0, 255, 255);
   public static final RGBColor off = new RGBColor(0, 0, 0);
 
   public static RGBColor getColorFromGamePiece(GamePiece gamePiece) {
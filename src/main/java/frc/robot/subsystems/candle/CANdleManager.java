@@ -6,13 +6,15 @@ import frc.robot.shared.Conversions;
 import frc.robot.shared.CrashTracker;
 import frc.robot.shared.Subsystem;
 import frc.robot.subsystems.Superstructure;
+import frc.robot.telemetry.Telemetry;
+import frc.robot.telemetry.Telemetry.Tier;
+import frc.robot.telemetry.TelemetryEntry.StringEntry;
 
 import com.ctre.phoenix.led.CANdle;
 import com.ctre.phoenix.led.CANdle.LEDStripType;
 import com.ctre.phoenix.led.CANdle.VBatOutputMode;
 import com.ctre.phoenix.led.CANdleConfiguration;
 import com.ctre.phoenix.led.RainbowAnimation;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -28,10 +30,16 @@ public class CANdleManager implements Subsystem {
     Emergency,
     RainbowBarf,
     Off,
-    Balance
+    Balance,
+    BusAlert
   }
 
   @Setter @Getter private LightState m_lightState = LightState.Off;
+  /**
+   * Set by the CAN bus monitor. Only shown while the lights are Off, so it never hides what the
+   * driver needs to see.
+   */
+  @Setter @Getter private boolean m_busAlert = false;
   private final CANdle m_candle = new CANdle(CANdleInfo.ID, "rio");
 
   private boolean m_flashLEDsOn = false;
@@ -40,6 +48,9 @@ public class CANdleManager implements Subsystem {
   private static final double FLASH_DELAY_MSEC = 250.0;
   private static final double GOTIT_DELAY_MSEC = 80.0;
 
+  private final StringEntry m_lightStateEntry =
+      Telemetry.stringEntry("Candle State", Tier.Operator);
+
   public CANdleManager() {
     CANdleConfiguration configAll = new CANdleConfiguration();
     configAll.statusLedOffWhenActive = true;
@@ -88,7 +99,7 @@ public class CANdleManager implements Subsystem {
   public void dashboardUpdate() {}
 
   public void debugDashboardUpdate() {
-    SmartDashboard.putString("Candle State", m_lightState.toString());
+    m_lightStateEntry.set(m_lightState);
   }
 
   public void update() {
@@ -96,7 +107,10 @@ public class CANdleManager implements Subsystem {
       m_lightState = LightState.Emergency;
     }
 
-    switch (m_lightState) {
+    final LightState lightState =
+        m_busAlert && m_lightState == LightState.Off ? LightState.BusAlert : m_lightState;
+
+    switch (lightState) {
       case Cone:
         setColor(CANdleColors.cone);
         break;
@@ -115,6 +129,9 @@ public class CANdleManager implements Subsystem {
       case Balance:
         setColor(CANdleColors.balance);
         break;
+      case BusAlert:
+        setFlashing(CANdleColors.busAlert, FLASH_DELAY_MSEC);
+        break;
       case Off:
         setColor(CANdleColors.off);
         break;
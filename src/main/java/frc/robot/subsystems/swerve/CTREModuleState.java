@@ -15,15 +15,38 @@ public class CTREModuleState {
    */
   public static SwerveModuleState optimize(
       SwerveModuleState desiredState, Rotation2d currentAngle) {
-    double targetAngle =
-        placeInAppropriate0To360Scope(currentAngle.getDegrees(), desiredState.angle.getDegrees());
-    double targetSpeed = desiredState.speedMetersPerSecond;
-    double delta = targetAngle - currentAngle.getDegrees();
+    var optimized = new SwerveModuleSetpoint();
+    optimize(
+        desiredState.speedMetersPerSecond,
+        desiredState.angle.getDegrees(),
+        currentAngle.getDegrees(),
+        optimized);
+    return new SwerveModuleState(
+        optimized.speedMetersPerSecond, Rotation2d.fromDegrees(optimized.angleDegrees));
+  }
+
+  /**
+   * Same as {@link #optimize(SwerveModuleState, Rotation2d)}, but works on primitives and writes
+   * the result into an existing setpoint so it does not allocate.
+   *
+   * @param desiredSpeed The desired wheel speed.
+   * @param desiredAngleDegrees The desired module angle.
+   * @param currentAngleDegrees The current module angle.
+   * @param optimized The setpoint to write the optimized speed and angle to.
+   */
+  public static void optimize(
+      double desiredSpeed,
+      double desiredAngleDegrees,
+      double currentAngleDegrees,
+      SwerveModuleSetpoint optimized) {
+    double targetAngle = placeInAppropriate0To360Scope(currentAngleDegrees, desiredAngleDegrees);
+    double targetSpeed = desiredSpeed;
+    double delta = targetAngle - currentAngleDegrees;
     if (Math.abs(delta) > 90) {
       targetSpeed = -targetSpeed;
       targetAngle = delta > 90 ? (targetAngle -= 180) : (targetAngle += 180);
     }
-    return new SwerveModuleState(targetSpeed, Rotation2d.fromDegrees(targetAngle));
+    optimized.set(targetSpeed, targetAngle);
   }
 
   /**
@@ -31,7 +54,7 @@ public class CTREModuleState {
    * @param newAngle Target Angle
    * @return Closest angle within scope
    */
-  private static double placeInAppropriate0To360Scope(double scopeReference, double newAngle) {
+  static double placeInAppropriate0To360Scope(double scopeReference, double newAngle) {
     double lowerBound;
     double upperBound;
     double lowerOffset = scopeReference % 360;
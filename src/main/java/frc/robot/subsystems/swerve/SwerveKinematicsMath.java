@@ -0,0 +1,69 @@
+package frc.robot.subsystems.swerve;
+
+import java.util.Arrays;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Allocation-free chassis speed discretization and swerve inverse kinematics.
+ *
+ * <p>The math matches ChassisSpeeds.discretize (via Pose2d.log) followed by
+ * SwerveDriveKinematics.toSwerveModuleStates, but works on primitives and writes into arrays owned
+ * by the caller, so it can run every loop without creating garbage.
+ */
+public final class SwerveKinematicsMath {
+  private SwerveKinematicsMath() {}
+
+  /**
+   * Converts chassis speeds into module speeds and angles. When the chassis is stopped, the module
+   * speeds are zeroed and the angles are left as they were, so the modules keep their last angle.
+   *
+   * @param vxMetersPerSecond The forward speed of the chassis.
+   * @param vyMetersPerSecond The leftward speed of the chassis.
+   * @param omegaRadiansPerSecond The counterclockwise angular speed of the chassis.
+   * @param discretizePeriodSec How far ahead the speeds are discretized.
+   * @param moduleLocations The module locations relative to the center of the robot.
+   * @param moduleSpeeds Filled with the speed of each module.
+   * @param moduleAnglesDegrees Filled with the angle of each module.
+   */
+  public static void toModuleSetpoints(
+      double vxMetersPerSecond,
+      double vyMetersPerSecond,
+      double omegaRadiansPerSecond,
+      double discretizePeriodSec,
+      Translation2d[] moduleLocations,
+      double[] moduleSpeeds,
+      double[] moduleAnglesDegrees) {
+    // Discretize: find the twist from the origin to where the robot would be after
+    // discretizePeriodSec at the current speeds, so translating while rotating doesn't skew.
+    final double dx = vxMetersPerSecond * discretizePeriodSec;
+    final double dy = vyMetersPerSecond * discretizePeriodSec;
+    final double theta = omegaRadiansPerSecond * discretizePeriodSec;
+    final double dtheta = Math.atan2(Math.sin(theta), Math.cos(theta));
+
+    final double halfDtheta = dtheta / 2.0;
+    final double cosMinusOne = Math.cos(dtheta) - 1.0;
+    final double halfThetaByTanOfHalfDtheta =
+        Math.abs(cosMinusOne) < 1e-9
+            ? 1.0 - dtheta * dtheta / 12.0
+            : -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+
+    final double vx = (dx * halfThetaByTanOfHalfDtheta + dy * halfDtheta) / discretizePeriodSec;
+    final double vy = (dy * halfThetaByTanOfHalfDtheta - dx * halfDtheta) / discretizePeriodSec;
+    final double omega = dtheta / discretizePeriodSec;
+
+    // Inverse kinematics
+    if (vx == 0.0 && vy == 0.0 && omega == 0.0) {
+      Arrays.fill(moduleSpeeds, 0.0);
+      return;
+    }
+
+    for (int i = 0; i < moduleLocations.length; i++) {
+      final double moduleVx = vx - omega * moduleLocations[i].getY();
+      final double moduleVy = vy + omega * moduleLocations[i].getX();
+      moduleSpeeds[i] = Math.hypot(moduleVx, moduleVy);
+      moduleAnglesDegrees[i] =
+          moduleSpeeds[i] > 1e-6 ? Math.toDegrees(Math.atan2(moduleVy, moduleVx)) : 0.0;
+    }
+  }
+}
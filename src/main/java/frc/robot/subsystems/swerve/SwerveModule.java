@@ -2,6 +2,11 @@ package frc.robot.subsystems.swerve;
 
 import frc.robot.devices.GreyTalonFX;
 import frc.robot.devices.GreyTalonFX.ControlMode;
+import frc.robot.devices.SignalPlanner;
+import frc.robot.devices.SignalRate;
+import frc.robot.devices.SignalRegistry;
+import frc.robot.replay.LoggedValues;
+import frc.robot.replay.ReplayLog;
 import frc.robot.shared.RobotInfo;
 import frc.robot.shared.RobotInfo.DriveInfo;
 import frc.robot.shared.SwerveModuleConfig;
@@ -9,6 +14,7 @@ import frc.robot.shared.mechanisms.GearedMechanism;
 import frc.robot.shared.mechanisms.LinearMechanism;
 
 import com.ctre.phoenixpro.BaseStatusSignalValue;
+import com.ctre.phoenixpro.StatusSignalValue;
 import com.ctre.phoenixpro.configs.CANcoderConfiguration;
 import com.ctre.phoenixpro.configs.TalonFXConfiguration;
 import com.ctre.phoenixpro.hardware.CANcoder;
@@ -16,23 +22,45 @@ import com.ctre.phoenixpro.signals.AbsoluteSensorRangeValue;
 import com.ctre.phoenixpro.signals.InvertedValue;
 import com.ctre.phoenixpro.signals.NeutralModeValue;
 import com.ctre.phoenixpro.signals.SensorDirectionValue;
+import com.ctre.phoenixpro.sim.CANcoderSimState;
+import com.ctre.phoenixpro.sim.TalonFXSimState;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
 
 public class SwerveModule {
+  /** The absolute encoder, as read at the start of the cycle. */
+  public static final class Inputs extends LoggedValues {
+    public double canCoderRotations;
+  }
+
   public final int moduleNumber;
   private final Rotation2d m_angleOffset;
   private final GreyTalonFX m_angleMotor;
   private final GreyTalonFX m_driveMotor;
   private final CANcoder m_angleEncoder;
+  private final StatusSignalValue<Double> m_angleEncoderPosition;
+  private final Inputs m_inputs = new Inputs();
   private final LinearMechanism m_driveMechanism =
       new LinearMechanism(DriveInfo.DRIVE_GEAR_RATIO, DriveInfo.WHEEL_DIAMETER_METERS);
   private final GearedMechanism m_angleMechanism = new GearedMechanism(DriveInfo.ANGLE_GEAR_RATIO);
-  private SwerveModuleState m_lastState;
+  private final SwerveModuleSetpoint m_optimizedSetpoint = new SwerveModuleSetpoint();
+  private double m_lastSpeedMetersPerSecond;
+  private double m_lastAngleDegrees;
 
   private final TalonFXConfiguration m_driveMotorConfig;
 
+  // Simulation
+  /** A quarter of the robot's inertia, as seen by the wheel. */
+  private static final double SIM_DRIVE_MOI = 0.025;
+  private static final double SIM_ANGLE_MOI = 0.004;
+
+  private DCMotorSim m_driveSim;
+  private DCMotorSim m_angleSim;
+
   public SwerveModule(int moduleNumber, SwerveModuleConfig moduleConfig) {
     this.moduleNumber = moduleNumber;
     m_angleOffset = Rotation2d.fromDegrees(moduleConfig.angleOffset);
@@ -40,6 +68,9 @@ public class SwerveModule {
     /* Angle Encoder Config */
     m_angleEncoder = new CANcoder(moduleConfig.cancoderID, RobotInfo.CANIVORE_NAME);
     configAngleEncoder();
+    m_angleEncoderPosition = m_angleEncoder.getAbsolutePosition();
+    SignalRegistry.register(RobotInfo.CANIVORE_NAME, m_angleEncoderPosition);
+    SignalRegistry.registerHeartbeat("CANcoder " + moduleConfig.cancoderID, m_angleEncoderPosition);
 
     /* Angle Motor Config */
     m_angleMotor = new GreyTalonFX(moduleConfig.angleMotorID, RobotInfo.CANIVORE_NAME);
@@ -50,10 +81,18 @@ public class SwerveModule {
     m_driveMotorConfig = m_driveMotor.getCurrentConfig();
     configDriveMotor();
 
-    BaseStatusSignalValue.waitForAll(0.5, m_angleEncoder.getAbsolutePosition());
+    BaseStatusSignalValue.waitForAll(0.5, m_angleEncoderPosition);
+    ReplayLog.registerInputs(
+        "Swerve Module " + moduleNumber,
+        m_inputs,
+        () -> m_inputs.canCoderRotations = m_angleEncoderPosition.getValue());
     resetToAbsolute();
 
-    m_lastState = getState();
+    configSignals();
+
+    final SwerveModuleState initialState = getState();
+    m_lastSpeedMetersPerSecond = initialState.speedMetersPerSecond;
+    m_lastAngleDegrees = initialState.angle.getDegrees();
   }
 
   private void configAngleEncoder() {
@@ -63,6 +102,35 @@ public class SwerveModule {
     m_angleEncoder.getConfigurator().apply(encoderConfig);
   }
 
+  private void configSignals() {
+    var angleSignals = new GreyTalonFX.SignalRates();
+    angleSignals.rotorPosition = SignalRate.Odometry;
+    angleSignals.rotorVelocity = SignalRate.Control;
+    m_angleMotor.setSignalRates(angleSignals);
+
+    var driveSignals = new GreyTalonFX.SignalRates();
+    driveSignals.rotorPosition = SignalRate.Odometry;
+    driveSignals.rotorVelocity = SignalRate.Control;
+    m_driveMotor.setSignalRates(driveSignals);
+
+    // The absolute position is only needed to reset the angle motor, which happens at rest
+    SignalPlanner.plan(RobotInfo.CANIVORE_NAME, SignalRate.Debug, m_angleEncoderPosition);
+    SignalPlanner.plan(
+        RobotInfo.CANIVORE_NAME,
+        SignalRate.Off,
+        m_angleEncoder.getPosition(),
+        m_angleEncoder.getVelocity(),
+        m_angleEncoder.getUnfilteredVelocity(),
+        m_angleEncoder.getPositionSinceBoot(),
+        m_angleEncoder.getMagnetHealth(),
+        m_angleEncoder.getSupplyVoltage());
+    SignalPlanner.plan(
+        RobotInfo.CANIVORE_NAME,
+        SignalRate.Diagnostics,
+        m_angleEncoder.getFaultField(),
+        m_angleEncoder.getStickyFaultField());
+  }
+
   private void configAngleMotor() {
     var motorConfig = m_angleMotor.getCurrentConfig();
 
@@ -103,7 +171,7 @@ public class SwerveModule {
   }
 
   public Rotation2d getCanCoder() {
-    return Rotation2d.fromRotations(m_angleEncoder.getAbsolutePosition().getValue());
+    return Rotation2d.fromRotations(m_inputs.canCoderRotations);
   }
 
   public void resetToAbsolute() {
@@ -124,6 +192,16 @@ public class SwerveModule {
         m_angleMotor.getRotorPositionRotation2d());
   }
 
+  /**
+   * Returns the module angle without allocating.
+   *
+   * @return The module angle in degrees.
+   */
+  public double getAngleMotorDegrees() {
+    final double rotorRotations = m_angleMotor.getRotorPositionRotations();
+    return m_angleMechanism.getOutputRotationsFromRotorRotations(rotorRotations) * 360.0;
+  }
+
   public double getDriveMotorMeters() {
     return m_driveMechanism.getOutputDistanceFromRotorRotation(
         m_driveMotor.getRotorPositionRotation2d());
@@ -133,12 +211,51 @@ public class SwerveModule {
     return new SwerveModulePosition(getDriveMotorMeters(), getState().angle);
   }
 
+  /**
+   * Creates a copy of the drive motor position signal that can be refreshed from another thread.
+   *
+   * @return The cloned drive rotor position signal.
+   */
+  public StatusSignalValue<Double> cloneDrivePositionSignal() {
+    return m_driveMotor.getRotorPosition().clone();
+  }
+
+  /**
+   * Creates a copy of the angle motor position signal that can be refreshed from another thread.
+   *
+   * @return The cloned angle rotor position signal.
+   */
+  public StatusSignalValue<Double> cloneAnglePositionSignal() {
+    return m_angleMotor.getRotorPosition().clone();
+  }
+
+  /**
+   * Converts drive rotor rotations into wheel distance.
+   *
+   * @param rotorRotations The drive rotor position in rotations.
+   * @return The distance the wheel has travelled in meters.
+   */
+  public double getDriveMetersFromRotorRotations(double rotorRotations) {
+    return m_driveMechanism.getOutputDistanceFromRotorRotations(rotorRotations);
+  }
+
+  /**
+   * Converts angle rotor rotations into the module angle.
+   *
+   * @param rotorRotations The angle rotor position in rotations.
+   * @return The module angle.
+   */
+  public Rotation2d getAngleFromRotorRotations(double rotorRotations) {
+    return m_angleMechanism.getOutputRotationFromRotorRotation(
+        Rotation2d.fromRotations(rotorRotations));
+  }
+
   public double getDriveStatorCurrent() {
-    return m_driveMotor.getStatorCurrent().getValue();
+    return m_driveMotor.getStatorCurrentAmps();
   }
 
   public double getDriveSupplyCurrent() {
-    return m_driveMotor.getSupplyCurrent().getValue();
+    return m_driveMotor.getSupplyCurrentAmps();
   }
 
   /**
@@ -158,34 +275,45 @@ public class SwerveModule {
    *     state. Disables optimizations such as anti-jitter.
    */
   public void setDesiredState(SwerveModuleState desiredState, boolean ignoreJitter) {
+    setDesiredState(
+        desiredState.speedMetersPerSecond, desiredState.angle.getDegrees(), ignoreJitter);
+  }
+
+  /**
+   * Sets the desired state of the module without allocating.
+   *
+   * @param speedMetersPerSecond The desired wheel speed.
+   * @param angleDegrees The desired module angle.
+   * @param ignoreJitter If true, the module will be set to the desired state regardless of the
+   *     current state. Disables optimizations such as anti-jitter.
+   */
+  public void setDesiredState(
+      double speedMetersPerSecond, double angleDegrees, boolean ignoreJitter) {
     // Custom optimize command, since default WPILib optimize assumes continuous controller which
     // CTRE is not
-    desiredState = CTREModuleState.optimize(desiredState, getState().angle);
-
-    Rotation2d desiredFalconVelocityInRPS =
-        m_driveMechanism.getRotorRotationFromOutputDistance(desiredState.speedMetersPerSecond);
+    CTREModuleState.optimize(
+        speedMetersPerSecond, angleDegrees, getAngleMotorDegrees(), m_optimizedSetpoint);
+    final double speed = m_optimizedSetpoint.speedMetersPerSecond;
+    double angle = m_optimizedSetpoint.angleDegrees;
 
-    if (desiredState.speedMetersPerSecond != m_lastState.speedMetersPerSecond) {
+    if (speed != m_lastSpeedMetersPerSecond) {
       m_driveMotor.setControl(
-          ControlMode.VelocityVoltage, desiredFalconVelocityInRPS.getRotations());
+          ControlMode.VelocityVoltage, m_driveMechanism.getRotorRotationsFromOutputDistance(speed));
     }
 
     // Prevent rotating module if speed is less then 1%. Prevents jittering.
-    if (!ignoreJitter) {
-      desiredState.angle =
-          (Math.abs(desiredState.speedMetersPerSecond)
-                  <= (DriveInfo.MAX_VELOCITY_METERS_PER_SECOND * 0.01))
-              ? m_lastState.angle
-              : desiredState.angle;
+    if (!ignoreJitter && Math.abs(speed) <= (DriveInfo.MAX_VELOCITY_METERS_PER_SECOND * 0.01)) {
+      angle = m_lastAngleDegrees;
     }
 
     // Prevent module rotation if angle is the same as the previous angle.
-    if (desiredState.angle != m_lastState.angle) {
+    if (angle != m_lastAngleDegrees) {
       m_angleMotor.setControl(
           ControlMode.PositionVoltage,
-          m_angleMechanism.getRotorRotationFromOutputRotation(desiredState.angle).getRotations());
+          m_angleMechanism.getRotorRotationsFromOutputRotations(angle / 360.0));
     }
-    m_lastState = desiredState;
+    m_lastSpeedMetersPerSecond = speed;
+    m_lastAngleDegrees = angle;
   }
 
   public void driveBrake() {
@@ -197,4 +325,57 @@ public class SwerveModule {
     m_driveMotorConfig.MotorOutput.NeutralMode = NeutralModeValue.Coast;
     m_driveMotor.setConfig(m_driveMotorConfig);
   }
+
+  /** Sets up the simulated drive wheel and steering. */
+  public void simulationInit() {
+    m_driveSim =
+        new DCMotorSim(DCMotor.getFalcon500(1), 1.0 / DriveInfo.DRIVE_GEAR_RATIO, SIM_DRIVE_MOI);
+    m_angleSim =
+        new DCMotorSim(DCMotor.getFalcon500(1), 1.0 / DriveInfo.ANGLE_GEAR_RATIO, SIM_ANGLE_MOI);
+    simulationUpdate(0.0);
+  }
+
+  /**
+   * Updates the simulated drive wheel and steering from the motor outputs.
+   *
+   * @param dtSec The time since the last update, in seconds.
+   */
+  public void simulationUpdate(double dtSec) {
+    final TalonFXSimState driveSim = m_driveMotor.getSimState();
+    final TalonFXSimState angleSim = m_angleMotor.getSimState();
+    final CANcoderSimState encoderSim = m_angleEncoder.getSimState();
+    driveSim.setSupplyVoltage(RobotController.getBatteryVoltage());
+    angleSim.setSupplyVoltage(RobotController.getBatteryVoltage());
+    encoderSim.setSupplyVoltage(RobotController.getBatteryVoltage());
+
+    // Both motors are inverted, so positive output is negative motor voltage
+    m_driveSim.setInputVoltage(-driveSim.getMotorVoltage());
+    m_driveSim.update(dtSec);
+    m_angleSim.setInputVoltage(-angleSim.getMotorVoltage());
+    m_angleSim.update(dtSec);
+
+    final double wheelRotations = m_driveSim.getAngularPositionRotations();
+    final double wheelVelocity = m_driveSim.getAngularVelocityRPM() / 60.0;
+    driveSim.setRawRotorPosition(-wheelRotations / DriveInfo.DRIVE_GEAR_RATIO);
+    driveSim.setRotorVelocity(-wheelVelocity / DriveInfo.DRIVE_GEAR_RATIO);
+
+    // The simulated steering is the module angle, and the CANcoder reads it plus the offset
+    final double angleRotations = m_angleSim.getAngularPositionRotations();
+    final double angleVelocity = m_angleSim.getAngularVelocityRPM() / 60.0;
+    angleSim.setRawRotorPosition(-angleRotations / DriveInfo.ANGLE_GEAR_RATIO);
+    angleSim.setRotorVelocity(-angleVelocity / DriveInfo.ANGLE_GEAR_RATIO);
+    encoderSim.setRawPosition(angleRotations + m_angleOffset.getRotations());
+    encoderSim.setVelocity(angleVelocity);
+  }
+
+  /**
+   * Returns the state of the simulated module, straight from the physics model.
+   *
+   * @return The simulated module state.
+   */
+  public SwerveModuleState getSimulatedState() {
+    return new SwerveModuleState(
+        m_driveSim.getAngularVelocityRPM() / 60.0 * DriveInfo.WHEEL_CIRCUMFERENCE_METERS,
+        Rotation2d.fromRotations(m_angleSim.getAngularPositionRotations()));
+  }
 }
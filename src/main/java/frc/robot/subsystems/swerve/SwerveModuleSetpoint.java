@@ -0,0 +1,21 @@
+package frc.robot.subsystems.swerve;
+
+/**
+ * A mutable swerve module speed and angle. Unlike SwerveModuleState it holds the angle as a
+ * primitive, so it can be reused every loop without allocating.
+ */
+public class SwerveModuleSetpoint {
+  public double speedMetersPerSecond;
+  public double angleDegrees;
+
+  /**
+   * Sets the speed and angle.
+   *
+   * @param speedMetersPerSecond The speed of the wheel.
+   * @param angleDegrees The angle of the module.
+   */
+  public void set(double speedMetersPerSecond, double angleDegrees) {
+    this.speedMetersPerSecond = speedMetersPerSecond;
+    this.angleDegrees = angleDegrees;
+  }
+}
@@ -0,0 +1,167 @@
+package frc.robot.subsystems.swerve;
+
+import frc.robot.devices.GreyPigeon;
+import frc.robot.devices.SignalRate;
+import frc.robot.shared.RobotInfo.DriveInfo;
+
+import com.ctre.phoenixpro.BaseStatusSignalValue;
+import com.ctre.phoenixpro.StatusCode;
+import com.ctre.phoenixpro.StatusSignalValue;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/**
+ * Runs swerve odometry on its own thread, synchronized to the CAN signals.
+ *
+ * <p>The thread waits for fresh drive position, steer position and Pigeon2 yaw frames together with
+ * {@link BaseStatusSignalValue#waitForAll}, integrates them into a {@link SwerveDriveOdometry} and
+ * publishes the pose through a volatile reference, so the main loop never takes a lock to read it.
+ * Resets and updates are made under one lock, so an update never overwrites a newer reset.
+ * The thread uses its own clones of the status signals so it never races the main loop's refreshes.
+ * The devices publish these signals at {@link SignalRate#Odometry}, which paces the thread.
+ */
+@Accessors(prefix = "m_")
+public class SwerveOdometryThread {
+  private static final double UPDATE_PERIOD_SEC = 1.0 / SignalRate.Odometry.getFrequencyHz();
+  /** Weight of the newest sample in the rate and jitter averages. */
+  private static final double STATS_FILTER_GAIN = 0.02;
+
+  private final SwerveModule[] m_modules;
+  private final StatusSignalValue<Double>[] m_drivePositions;
+  private final StatusSignalValue<Double>[] m_anglePositions;
+  private final StatusSignalValue<Double> m_yaw;
+  private final BaseStatusSignalValue[] m_allSignals;
+
+  private final SwerveModulePosition[] m_positions;
+  private final SwerveDriveOdometry m_odometry;
+  private final Thread m_thread;
+
+  /** Held while resetting or updating the pose, so a reset is never overwritten by an update. */
+  private final Object m_poseLock = new Object();
+  /** A reset the odometry thread hasn't applied yet, guarded by m_poseLock. */
+  private Pose2d m_pendingReset = null;
+  private volatile Pose2d m_pose = new Pose2d();
+  /** Average rate the odometry is actually updated at. */
+  @Getter private volatile double m_rateHz = 0.0;
+  /** Average absolute deviation of the update period from its mean, in milliseconds. */
+  @Getter private volatile double m_jitterMs = 0.0;
+  /** Number of updates where the signals did not all arrive in time. */
+  @Getter private volatile long m_missedUpdates = 0;
+
+  /**
+   * Creates a new SwerveOdometryThread. Call {@link #start()} to begin updating.
+   *
+   * @param modules The swerve modules, indexed by module number.
+   * @param pigeon The gyro.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public SwerveOdometryThread(SwerveModule[] modules, GreyPigeon pigeon) {
+    m_modules = modules;
+    m_drivePositions = new StatusSignalValue[modules.length];
+    m_anglePositions = new StatusSignalValue[modules.length];
+    m_allSignals = new BaseStatusSignalValue[modules.length * 2 + 1];
+    m_positions = new SwerveModulePosition[modules.length];
+
+    for (int i = 0; i < modules.length; i++) {
+      m_drivePositions[i] = modules[i].cloneDrivePositionSignal();
+      m_anglePositions[i] = modules[i].cloneAnglePositionSignal();
+      m_allSignals[i * 2] = m_drivePositions[i];
+      m_allSignals[i * 2 + 1] = m_anglePositions[i];
+      m_positions[i] = new SwerveModulePosition();
+    }
+    m_yaw = pigeon.cloneYawSignal();
+    m_allSignals[modules.length * 2] = m_yaw;
+
+    BaseStatusSignalValue.waitForAll(0.5, m_allSignals);
+    updatePositions();
+    m_odometry = new SwerveDriveOdometry(DriveInfo.SWERVE_KINEMATICS, getYaw(), m_positions);
+
+    m_thread = new Thread(this::run, "Swerve Odometry");
+    m_thread.setDaemon(true);
+    m_thread.setPriority(Thread.MAX_PRIORITY);
+  }
+
+  /** Starts the odometry thread. */
+  public void start() {
+    m_thread.start();
+  }
+
+  /**
+   * Returns the latest pose.
+   *
+   * @return The latest pose.
+   */
+  public Pose2d getPose() {
+    return m_pose;
+  }
+
+  /**
+   * Resets the odometry to the given pose. The reset is applied on the odometry thread with its
+   * next sample, but {@link #getPose()} returns the new pose immediately.
+   *
+   * @param pose The new pose.
+   */
+  public void resetPose(Pose2d pose) {
+    synchronized (m_poseLock) {
+      m_pendingReset = pose;
+      m_pose = pose;
+    }
+  }
+
+  private void run() {
+    long lastUpdateNsec = System.nanoTime();
+    double meanPeriodSec = UPDATE_PERIOD_SEC;
+
+    while (!Thread.currentThread().isInterrupted()) {
+      StatusCode status = BaseStatusSignalValue.waitForAll(2.0 * UPDATE_PERIOD_SEC, m_allSignals);
+      if (status != StatusCode.OK) {
+        m_missedUpdates++;
+        // Signals that can't be synchronized (e.g. off the CANivore) still refresh, just unpaced.
+        try {
+          Thread.sleep((long) (UPDATE_PERIOD_SEC * 1000.0));
+        } catch (InterruptedException e) {
+          return;
+        }
+        BaseStatusSignalValue.refreshAll(m_allSignals);
+      }
+
+      updatePositions();
+      final Rotation2d yaw = getYaw();
+
+      synchronized (m_poseLock) {
+        if (m_pendingReset != null) {
+          m_odometry.resetPosition(yaw, m_positions, m_pendingReset);
+          m_pose = m_pendingReset;
+          m_pendingReset = null;
+        } else {
+          m_pose = m_odometry.update(yaw, m_positions);
+        }
+      }
+
+      final long now = System.nanoTime();
+      final double periodSec = (now - lastUpdateNsec) * 1e-9;
+      lastUpdateNsec = now;
+
+      meanPeriodSec += (periodSec - meanPeriodSec) * STATS_FILTER_GAIN;
+      m_rateHz = 1.0 / meanPeriodSec;
+      m_jitterMs += (Math.abs(periodSec - meanPeriodSec) * 1000.0 - m_jitterMs) * STATS_FILTER_GAIN;
+    }
+  }
+
+  private void updatePositions() {
+    for (int i = 0; i < m_modules.length; i++) {
+      m_positions[i].distanceMeters =
+          m_modules[i].getDriveMetersFromRotorRotations(m_drivePositions[i].getValue());
+      m_positions[i].angle =
+          m_modules[i].getAngleFromRotorRotations(m_anglePositions[i].getValue());
+    }
+  }
+
+  private Rotation2d getYaw() {
+    return Rotation2d.fromDegrees(m_yaw.getValue());
+  }
+}
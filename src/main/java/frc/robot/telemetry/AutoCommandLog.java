@@ -0,0 +1,26 @@
+package frc.robot.telemetry;
+
+import frc.robot.shared.AutoCommand;
+import frc.robot.shared.AutoCommandTracer;
+
+/**
+ * Records every auto command starting and finishing to the data log, so auto timelines can be
+ * rebuilt from a match log. Each event is written as {@link #STARTED}, {@link #FINISHED} or {@link
+ * #TIMED_OUT} followed by the command's class name.
+ */
+public final class AutoCommandLog implements AutoCommandTracer.Listener {
+  public static final String STARTED = "started ";
+  public static final String FINISHED = "finished ";
+  public static final String TIMED_OUT = "timed out ";
+
+  @Override
+  public void started(AutoCommand command) {
+    DataLogger.logAutoCommand(STARTED + command.getClass().getSimpleName());
+  }
+
+  @Override
+  public void finished(AutoCommand command, boolean interrupted) {
+    DataLogger.logAutoCommand(
+        (interrupted ? TIMED_OUT : FINISHED) + command.getClass().getSimpleName());
+  }
+}
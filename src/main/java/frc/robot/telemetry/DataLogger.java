@@ -0,0 +1,374 @@
+package frc.robot.telemetry;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import frc.robot.greydash.GreyDashConstants;
+import frc.robot.telemetry.TelemetryEntry.DoubleArrayEntry;
+
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.util.datalog.StringLogEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Records every telemetry value, crash tracker marker and auto command to a WPILib data log on the
+ * robot.
+ *
+ * <p>{@link Telemetry#commit()} copies each loop's snapshot into a bounded ring of pre-allocated
+ * snapshots. A low priority writer thread drains the ring and appends the values that changed to
+ * the log, timestamped with the loop they came from, so every loop is recorded without the main
+ * loop touching the file system. If the writer falls a whole ring behind, loops are dropped and
+ * counted rather than blocking the main loop. Every loop also appends its number to {@link
+ * #LOOP_ENTRY}, so the loop timing and any dropped loops can be recovered from the log.
+ *
+ * <p>Logs go to a USB drive when one is plugged in, otherwise to /home/lvuser/logs. A new file is
+ * started for each match, and only the newest {@link #MAX_LOG_FILES} files are kept.
+ */
+public final class DataLogger {
+  /** Two and a half seconds of loops. */
+  private static final int RING_CAPACITY = 128;
+
+  private static final int MARKER_CAPACITY = 64;
+  private static final long WRITE_PERIOD_MSEC = 100;
+  private static final int MAX_LOG_FILES = 30;
+
+  /** Prefix of the telemetry value entries, followed by the value's key. */
+  public static final String TELEMETRY_PREFIX = "Telemetry/";
+  /** The loop number, appended at the end of every loop that is written. */
+  public static final String LOOP_ENTRY = "DataLogger/Loop";
+  /** The crash tracker markers. */
+  public static final String MARKER_ENTRY = "CrashTracker";
+  /** Auto commands starting and finishing, see {@link AutoCommandLog}. */
+  public static final String AUTO_COMMAND_ENTRY = "Auto/Commands";
+
+  private static final String GREYDASH_PREFIX = "/" + GreyDashConstants.GREYDASH_TABLE + "/";
+
+  // Written by the main thread, read by the writer thread.
+  private static final TelemetrySnapshot[] m_ring = new TelemetrySnapshot[RING_CAPACITY];
+  private static final long[] m_ringTimestampsUsec = new long[RING_CAPACITY];
+  /** The number of each loop, counting dropped ones, so gaps show where loops were dropped. */
+  private static final long[] m_ringLoops = new long[RING_CAPACITY];
+  private static volatile long m_head = 0;
+  private static volatile long m_tail = 0;
+  private static volatile long m_droppedLoops = 0;
+
+  private static final ArrayBlockingQueue<Marker> m_markers =
+      new ArrayBlockingQueue<>(MARKER_CAPACITY);
+  private static volatile boolean m_matchStarted = false;
+
+  private static Thread m_writerThread = null;
+
+  private DataLogger() {}
+
+  /** A crash tracker marker or auto command event waiting to be written. */
+  private static final class Marker {
+    private final long m_timestampUsec;
+    private final String m_text;
+    private final boolean m_autoCommand;
+
+    private Marker(long timestampUsec, String text, boolean autoCommand) {
+      m_timestampUsec = timestampUsec;
+      m_text = text;
+      m_autoCommand = autoCommand;
+    }
+  }
+
+  /** Starts the writer thread and opens the first log. Call this once from robotInit. */
+  public static synchronized void start() {
+    if (m_writerThread != null) {
+      return;
+    }
+
+    for (int i = 0; i < RING_CAPACITY; i++) {
+      m_ring[i] = Telemetry.newSnapshot();
+    }
+
+    m_writerThread = new Thread(DataLogger::writeLoop, "Data Logger");
+    m_writerThread.setDaemon(true);
+    m_writerThread.setPriority(Thread.MIN_PRIORITY);
+    m_writerThread.start();
+  }
+
+  /**
+   * Starts a new log file named after the current match. Call this when a match starts, once the
+   * FMS is attached.
+   */
+  public static void startMatch() {
+    m_matchStarted = true;
+  }
+
+  /**
+   * Records a marker, such as a mode change or a caught exception. Safe to call from any thread.
+   *
+   * @param text The marker text.
+   */
+  public static void logMarker(String text) {
+    m_markers.offer(new Marker(RobotController.getFPGATime(), text, false));
+  }
+
+  /**
+   * Records an auto command event to {@link #AUTO_COMMAND_ENTRY}.
+   *
+   * @param text The event, see {@link AutoCommandLog}.
+   */
+  public static void logAutoCommand(String text) {
+    m_markers.offer(new Marker(RobotController.getFPGATime(), text, true));
+  }
+
+  /**
+   * Copies a loop's snapshot into the ring. Called by {@link Telemetry#commit()} on the main
+   * thread.
+   *
+   * @param snapshot The snapshot of this loop's values.
+   */
+  static void capture(TelemetrySnapshot snapshot) {
+    if (m_writerThread == null) {
+      return;
+    }
+
+    final long head = m_head;
+    if (head - m_tail >= RING_CAPACITY) {
+      m_droppedLoops++;
+      return;
+    }
+
+    final int slot = (int) (head % RING_CAPACITY);
+    m_ring[slot].copyFrom(snapshot);
+    m_ringTimestampsUsec[slot] = RobotController.getFPGATime();
+    m_ringLoops[slot] = head + m_droppedLoops;
+    m_head = head + 1;
+  }
+
+  private static void writeLoop() {
+    final File directory = getLogDirectory();
+    directory.mkdirs();
+
+    // The clock may not be set yet, so the process ID keeps names unique
+    final String startTime =
+        LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+    LogFile logFile =
+        new LogFile(directory, "robot_" + startTime + "_" + ProcessHandle.current().pid());
+
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        Thread.sleep(WRITE_PERIOD_MSEC);
+      } catch (InterruptedException e) {
+        break;
+      }
+
+      if (m_matchStarted) {
+        m_matchStarted = false;
+        // Loops from before the match go to the old file, markers go to the new one
+        drainLoops(logFile);
+        logFile.close();
+        logFile = new LogFile(directory, getMatchName());
+      }
+
+      drain(logFile);
+    }
+    logFile.close();
+  }
+
+  private static void drain(LogFile logFile) {
+    Marker marker;
+    while ((marker = m_markers.poll()) != null) {
+      final StringLogEntry entry =
+          marker.m_autoCommand ? logFile.m_autoCommandEntry : logFile.m_markerEntry;
+      entry.append(marker.m_text, marker.m_timestampUsec);
+    }
+
+    drainLoops(logFile);
+  }
+
+  private static void drainLoops(LogFile logFile) {
+    final long head = m_head;
+    for (long tail = m_tail; tail < head; tail++) {
+      final int slot = (int) (tail % RING_CAPACITY);
+      logFile.write(m_ring[slot], m_ringTimestampsUsec[slot], m_ringLoops[slot]);
+      m_tail = tail + 1;
+    }
+
+    logFile.writeDroppedLoops(m_droppedLoops);
+  }
+
+  /**
+   * Returns the directory logs are written to: a USB drive if one is plugged in, otherwise the
+   * roboRIO's home directory, or "logs" in simulation.
+   *
+   * @return The log directory.
+   */
+  public static File getLogDirectory() {
+    if (RobotBase.isSimulation()) {
+      return new File("logs");
+    }
+
+    final File usb = new File("/u");
+    if (usb.isDirectory() && usb.canWrite()) {
+      return new File(usb, "logs");
+    }
+    return new File("/home/lvuser/logs");
+  }
+
+  /**
+   * Returns a file name for the current match, from the event name, match type and number.
+   *
+   * @return The match's log name, without an extension.
+   */
+  public static String getMatchName() {
+    final String event = DriverStation.getEventName().replaceAll("[^A-Za-z0-9]", "");
+    return String.format(
+        "%s_%s_%d_%d",
+        event.isEmpty() ? "match" : event,
+        DriverStation.getMatchType(),
+        DriverStation.getMatchNumber(),
+        DriverStation.getReplayNumber());
+  }
+
+  /**
+   * Deletes the oldest logs so at most {@link #MAX_LOG_FILES} remain, counting a new one.
+   *
+   * @param directory The log directory.
+   * @param extension The extension of the logs to count, such as ".wpilog".
+   */
+  public static void deleteOldLogs(File directory, String extension) {
+    final File[] logs = directory.listFiles((dir, name) -> name.endsWith(extension));
+    if (logs == null || logs.length < MAX_LOG_FILES) {
+      return;
+    }
+
+    Arrays.sort(logs, Comparator.comparingLong(File::lastModified));
+    for (int i = 0; i <= logs.length - MAX_LOG_FILES; i++) {
+      if (!logs[i].delete()) {
+        System.err.println("Could not delete old log " + logs[i]);
+      }
+    }
+  }
+
+  /**
+   * One log file and its entries. Entries are created as telemetry values are registered, and after
+   * its first value, each value is only appended when it differs from the last one written.
+   */
+  private static final class LogFile {
+    private final DataLog m_log;
+    private final int m_greyDashLogHandle;
+    private final StringLogEntry m_markerEntry;
+    private final StringLogEntry m_autoCommandEntry;
+    private final IntegerLogEntry m_loopEntry;
+    private final IntegerLogEntry m_droppedLoopsEntry;
+    private long m_lastDroppedLoops = 0;
+
+    private final TelemetrySnapshot m_lastWritten = Telemetry.newSnapshot();
+    private final DoubleLogEntry[] m_doubleEntries =
+        new DoubleLogEntry[m_lastWritten.m_doubles.length];
+    private final BooleanLogEntry[] m_booleanEntries =
+        new BooleanLogEntry[m_lastWritten.m_booleans.length];
+    private final StringLogEntry[] m_stringEntries =
+        new StringLogEntry[m_lastWritten.m_strings.length];
+    private final List<DoubleArrayLogEntry> m_doubleArrayEntries = new ArrayList<>();
+    private final List<double[]> m_doubleArrayBuffers = new ArrayList<>();
+    private int m_numDoubles = 0;
+    private int m_numBooleans = 0;
+    private int m_numStrings = 0;
+
+    private LogFile(File directory, String name) {
+      deleteOldLogs(directory, ".wpilog");
+      m_log = new DataLog(directory.getAbsolutePath(), name + ".wpilog");
+      // NetworkTables writes the GreyDash values to the log from its own thread
+      m_greyDashLogHandle =
+          NetworkTableInstance.getDefault()
+              .startEntryDataLog(m_log, GREYDASH_PREFIX, "NT:" + GREYDASH_PREFIX);
+      m_markerEntry = new StringLogEntry(m_log, MARKER_ENTRY);
+      m_autoCommandEntry = new StringLogEntry(m_log, AUTO_COMMAND_ENTRY);
+      m_loopEntry = new IntegerLogEntry(m_log, LOOP_ENTRY);
+      m_droppedLoopsEntry = new IntegerLogEntry(m_log, "DataLogger/Dropped Loops");
+    }
+
+    private void write(TelemetrySnapshot snapshot, long timestampUsec, long loop) {
+      final int numDoubles = Telemetry.getNumDoubles();
+      for (int i = 0; i < numDoubles; i++) {
+        if (i >= m_numDoubles && Telemetry.getDoubleKey(i) != null) {
+          final String name = TELEMETRY_PREFIX + Telemetry.getDoubleKey(i);
+          m_doubleEntries[i] = new DoubleLogEntry(m_log, name);
+        } else if (m_doubleEntries[i] == null
+            || Double.compare(snapshot.m_doubles[i], m_lastWritten.m_doubles[i]) == 0) {
+          continue;
+        }
+        m_doubleEntries[i].append(snapshot.m_doubles[i], timestampUsec);
+      }
+      m_numDoubles = numDoubles;
+
+      final int numBooleans = Telemetry.getNumBooleans();
+      for (int i = 0; i < numBooleans; i++) {
+        if (i >= m_numBooleans) {
+          final String name = TELEMETRY_PREFIX + Telemetry.getBooleanKey(i);
+          m_booleanEntries[i] = new BooleanLogEntry(m_log, name);
+        } else if (snapshot.m_booleans[i] == m_lastWritten.m_booleans[i]) {
+          continue;
+        }
+        m_booleanEntries[i].append(snapshot.m_booleans[i], timestampUsec);
+      }
+      m_numBooleans = numBooleans;
+
+      final int numStrings = Telemetry.getNumStrings();
+      for (int i = 0; i < numStrings; i++) {
+        if (i >= m_numStrings) {
+          final String name = TELEMETRY_PREFIX + Telemetry.getStringKey(i);
+          m_stringEntries[i] = new StringLogEntry(m_log, name);
+        } else if (Objects.equals(snapshot.m_strings[i], m_lastWritten.m_strings[i])) {
+          continue;
+        }
+        if (snapshot.m_strings[i] != null) {
+          m_stringEntries[i].append(snapshot.m_strings[i], timestampUsec);
+        }
+      }
+      m_numStrings = numStrings;
+
+      final int numDoubleArrays = Telemetry.getNumDoubleArrays();
+      for (int i = 0; i < numDoubleArrays; i++) {
+        final DoubleArrayEntry entry = Telemetry.getDoubleArray(i);
+        final int from = entry.getOffset();
+        final int to = from + entry.getLength();
+        if (i >= m_doubleArrayEntries.size()) {
+          final String name = TELEMETRY_PREFIX + entry.getKey();
+          m_doubleArrayEntries.add(new DoubleArrayLogEntry(m_log, name));
+          m_doubleArrayBuffers.add(new double[entry.getLength()]);
+        } else if (Arrays.equals(snapshot.m_doubles, from, to, m_lastWritten.m_doubles, from, to)) {
+          continue;
+        }
+        final double[] buffer = m_doubleArrayBuffers.get(i);
+        System.arraycopy(snapshot.m_doubles, from, buffer, 0, buffer.length);
+        m_doubleArrayEntries.get(i).append(buffer, timestampUsec);
+      }
+
+      m_lastWritten.copyFrom(snapshot);
+      // Last, so a reader has seen all of the loop's values when it reaches this
+      m_loopEntry.append(loop, timestampUsec);
+    }
+
+    private void writeDroppedLoops(long droppedLoops) {
+      if (droppedLoops != m_lastDroppedLoops) {
+        m_droppedLoopsEntry.append(droppedLoops);
+        m_lastDroppedLoops = droppedLoops;
+      }
+    }
+
+    private void close() {
+      NetworkTableInstance.getDefault().stopEntryDataLog(m_greyDashLogHandle);
+      m_log.close();
+    }
+  }
+}
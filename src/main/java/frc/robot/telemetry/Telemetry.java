@@ -0,0 +1,475 @@
+package frc.robot.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import frc.robot.telemetry.TelemetryEntry.BooleanEntry;
+import frc.robot.telemetry.TelemetryEntry.DoubleArrayEntry;
+import frc.robot.telemetry.TelemetryEntry.DoubleEntry;
+import frc.robot.telemetry.TelemetryEntry.StringEntry;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Telemetry pipeline that keeps NetworkTables publishing off the main loop.
+ *
+ * <p>Subsystems register their values once at construction and then write primitives into a
+ * pre-allocated snapshot every loop. At the end of the loop {@link #commit()} hands the snapshot to
+ * a low priority publisher thread with a single atomic swap (triple buffering), so the main loop
+ * never blocks on NetworkTables or allocates for telemetry. Every loop's snapshot is also recorded
+ * to the on-robot log by the {@link DataLogger}.
+ *
+ * <p>Each value gets a typed SmartDashboard publisher when it is registered, so publishing never
+ * looks up a topic by name. Booleans and strings are only published when they change.
+ *
+ * <p>Each value is tagged with a {@link Tier}, and each tier is published at a rate that depends on
+ * the {@link Mode} the robot is in, so the field radio only carries what matters in a match while
+ * the pits still get the diagnostic values. Slower tiers are spread evenly across publish cycles
+ * rather than all published in the same one.
+ */
+public final class Telemetry {
+  private static final int MAX_DOUBLES = 256;
+  private static final int MAX_BOOLEANS = 64;
+  private static final int MAX_STRINGS = 32;
+
+  private static final int MAX_DOUBLE_ARRAYS = 32;
+
+  private static final long PUBLISH_PERIOD_MSEC = 20;
+  private static final double PUBLISH_RATE_HZ = 1000.0 / PUBLISH_PERIOD_MSEC;
+
+  /** How important a value is, which sets how often it is published. */
+  public enum Tier {
+    /** Values the drivers rely on while driving. */
+    Critical(50.0, 50.0, 50.0, 50.0),
+    /** Values the operator and drive coach watch, such as states and the gyro angle. */
+    Operator(10.0, 10.0, 10.0, 5.0),
+    /** Values for debugging in the pits, such as currents and raw sensor readings. */
+    Diagnostic(1.0, 1.0, 1.0, 0.0);
+
+    private final double[] m_defaultRatesHz;
+
+    Tier(double disabledHz, double autoHz, double teleopHz, double fmsHz) {
+      m_defaultRatesHz = new double[] {disabledHz, autoHz, teleopHz, fmsHz};
+    }
+  }
+
+  /** The state of the robot that picks each tier's publish rate. */
+  public enum Mode {
+    Disabled,
+    Auto,
+    Teleop,
+    /** The FMS is attached, whatever the robot is doing, so radio bandwidth is limited. */
+    FMS;
+
+    /**
+     * Returns the mode the driver station is currently in. Test mode counts as teleop.
+     *
+     * @return The current mode.
+     */
+    public static Mode fromDriverStation() {
+      if (DriverStation.isFMSAttached()) {
+        return FMS;
+      } else if (DriverStation.isDisabled()) {
+        return Disabled;
+      } else if (DriverStation.isAutonomous()) {
+        return Auto;
+      }
+      return Teleop;
+    }
+  }
+
+  private static final Tier[] TIERS = Tier.values();
+
+  private static final String[] m_doubleKeys = new String[MAX_DOUBLES];
+  private static final String[] m_booleanKeys = new String[MAX_BOOLEANS];
+  private static final String[] m_stringKeys = new String[MAX_STRINGS];
+  private static final List<DoubleArrayEntry> m_doubleArrays = new ArrayList<>();
+
+  private static final NetworkTable m_table =
+      NetworkTableInstance.getDefault().getTable("SmartDashboard");
+  private static final DoublePublisher[] m_doublePublishers = new DoublePublisher[MAX_DOUBLES];
+  private static final BooleanPublisher[] m_booleanPublishers = new BooleanPublisher[MAX_BOOLEANS];
+  private static final StringPublisher[] m_stringPublishers = new StringPublisher[MAX_STRINGS];
+  private static final List<DoubleArrayPublisher> m_doubleArrayPublishers = new ArrayList<>();
+
+  // Each value's tier, and its position among the values in that tier
+  private static final Tier[] m_doubleTiers = new Tier[MAX_DOUBLES];
+  private static final int[] m_doubleSlots = new int[MAX_DOUBLES];
+  private static final Tier[] m_booleanTiers = new Tier[MAX_BOOLEANS];
+  private static final int[] m_booleanSlots = new int[MAX_BOOLEANS];
+  private static final Tier[] m_stringTiers = new Tier[MAX_STRINGS];
+  private static final int[] m_stringSlots = new int[MAX_STRINGS];
+  private static final Tier[] m_doubleArrayTiers = new Tier[MAX_DOUBLE_ARRAYS];
+  private static final int[] m_doubleArraySlots = new int[MAX_DOUBLE_ARRAYS];
+  private static final int[] m_tierSizes = new int[TIERS.length];
+
+  // Publish rate of each tier in each mode, indexed by [mode][tier]
+  private static final double[][] m_ratesHz = new double[Mode.values().length][TIERS.length];
+  private static volatile Mode m_mode = Mode.Disabled;
+
+  static {
+    for (Mode mode : Mode.values()) {
+      for (Tier tier : TIERS) {
+        m_ratesHz[mode.ordinal()][tier.ordinal()] = tier.m_defaultRatesHz[mode.ordinal()];
+      }
+    }
+  }
+
+  // Written by the main thread during registration, read by the publisher thread.
+  private static volatile int m_numDoubles = 0;
+  private static volatile int m_numBooleans = 0;
+  private static volatile int m_numStrings = 0;
+  private static volatile int m_numDoubleArrays = 0;
+
+  private static TelemetrySnapshot m_writeBuffer = newSnapshot();
+  private static final AtomicReference<TelemetrySnapshot> m_handoff =
+      new AtomicReference<>(newSnapshot());
+  private static long m_sequence = 0;
+
+  private static Thread m_publisherThread = null;
+
+  private Telemetry() {}
+
+  /**
+   * Registers a numeric value in the diagnostic tier.
+   *
+   * @param key The SmartDashboard key of the value.
+   * @return The entry to set the value with.
+   */
+  public static DoubleEntry doubleEntry(String key) {
+    return doubleEntry(key, Tier.Diagnostic);
+  }
+
+  /**
+   * Registers a numeric value.
+   *
+   * @param key The SmartDashboard key of the value.
+   * @param tier The tier that sets how often the value is published.
+   * @return The entry to set the value with.
+   */
+  public static synchronized DoubleEntry doubleEntry(String key, Tier tier) {
+    final int index = reserveDoubles(key, 1);
+    m_doubleKeys[index] = key;
+    m_doubleTiers[index] = tier;
+    m_doubleSlots[index] = m_tierSizes[tier.ordinal()]++;
+    m_doublePublishers[index] = m_table.getDoubleTopic(key).publish();
+    m_numDoubles = index + 1;
+    return new DoubleEntry(key, index);
+  }
+
+  /**
+   * Registers a fixed-length numeric array value in the diagnostic tier.
+   *
+   * @param key The SmartDashboard key of the value.
+   * @param length The length of the array.
+   * @return The entry to set the array elements with.
+   */
+  public static DoubleArrayEntry doubleArrayEntry(String key, int length) {
+    return doubleArrayEntry(key, length, Tier.Diagnostic);
+  }
+
+  /**
+   * Registers a fixed-length numeric array value.
+   *
+   * @param key The SmartDashboard key of the value.
+   * @param length The length of the array.
+   * @param tier The tier that sets how often the value is published.
+   * @return The entry to set the array elements with.
+   */
+  public static synchronized DoubleArrayEntry doubleArrayEntry(String key, int length, Tier tier) {
+    final int index = m_doubleArrays.size();
+    if (index >= MAX_DOUBLE_ARRAYS) {
+      throw new IllegalStateException("Too many array telemetry entries, cannot add: " + key);
+    }
+    final int offset = reserveDoubles(key, length);
+    m_numDoubles = offset + length;
+
+    var entry = new DoubleArrayEntry(key, offset, length);
+    m_doubleArrayTiers[index] = tier;
+    m_doubleArraySlots[index] = m_tierSizes[tier.ordinal()]++;
+    m_doubleArrayPublishers.add(m_table.getDoubleArrayTopic(key).publish());
+    m_doubleArrays.add(entry);
+    m_numDoubleArrays = m_doubleArrays.size();
+    return entry;
+  }
+
+  /**
+   * Registers a boolean value in the diagnostic tier.
+   *
+   * @param key The SmartDashboard key of the value.
+   * @return The entry to set the value with.
+   */
+  public static BooleanEntry booleanEntry(String key) {
+    return booleanEntry(key, Tier.Diagnostic);
+  }
+
+  /**
+   * Registers a boolean value.
+   *
+   * @param key The SmartDashboard key of the value.
+   * @param tier The tier that sets how often the value is published.
+   * @return The entry to set the value with.
+   */
+  public static synchronized BooleanEntry booleanEntry(String key, Tier tier) {
+    final int index = m_numBooleans;
+    if (index >= MAX_BOOLEANS) {
+      throw new IllegalStateException("Too many boolean telemetry entries, cannot add: " + key);
+    }
+    m_booleanKeys[index] = key;
+    m_booleanTiers[index] = tier;
+    m_booleanSlots[index] = m_tierSizes[tier.ordinal()]++;
+    m_booleanPublishers[index] = m_table.getBooleanTopic(key).publish();
+    m_numBooleans = index + 1;
+    return new BooleanEntry(key, index);
+  }
+
+  /**
+   * Registers a string value in the diagnostic tier.
+   *
+   * @param key The SmartDashboard key of the value.
+   * @return The entry to set the value with.
+   */
+  public static StringEntry stringEntry(String key) {
+    return stringEntry(key, Tier.Diagnostic);
+  }
+
+  /**
+   * Registers a string value.
+   *
+   * @param key The SmartDashboard key of the value.
+   * @param tier The tier that sets how often the value is published.
+   * @return The entry to set the value with.
+   */
+  public static synchronized StringEntry stringEntry(String key, Tier tier) {
+    final int index = m_numStrings;
+    if (index >= MAX_STRINGS) {
+      throw new IllegalStateException("Too many string telemetry entries, cannot add: " + key);
+    }
+    m_stringKeys[index] = key;
+    m_stringTiers[index] = tier;
+    m_stringSlots[index] = m_tierSizes[tier.ordinal()]++;
+    m_stringPublishers[index] = m_table.getStringTopic(key).publish();
+    m_numStrings = index + 1;
+    return new StringEntry(key, index);
+  }
+
+  /** Starts the publisher thread. Call this once from robotInit. */
+  public static synchronized void start() {
+    if (m_publisherThread != null) {
+      return;
+    }
+
+    m_publisherThread = new Thread(Telemetry::publishLoop, "Telemetry Publisher");
+    m_publisherThread.setDaemon(true);
+    m_publisherThread.setPriority(Thread.MIN_PRIORITY);
+    m_publisherThread.start();
+  }
+
+  /**
+   * Sets the mode that picks each tier's publish rate. Every value is still recorded by the {@link
+   * DataLogger} every loop, whatever the mode.
+   *
+   * @param mode The current mode.
+   */
+  public static void setMode(Mode mode) {
+    m_mode = mode;
+  }
+
+  /**
+   * Sets how often a tier is published in a mode, overriding the tier's default.
+   *
+   * @param mode The mode the rate applies in.
+   * @param tier The tier to set the rate of.
+   * @param rateHz The publish rate, up to 50 Hz. Zero stops the tier from being published.
+   */
+  public static void setRate(Mode mode, Tier tier, double rateHz) {
+    m_ratesHz[mode.ordinal()][tier.ordinal()] = rateHz;
+  }
+
+  /**
+   * Hands this loop's values to the publisher thread and the data logger. Call this once at the end
+   * of every loop, from the main thread only.
+   */
+  public static void commit() {
+    final TelemetrySnapshot published = m_writeBuffer;
+    published.m_sequence = ++m_sequence;
+    DataLogger.capture(published);
+
+    final TelemetrySnapshot next = m_handoff.getAndSet(published);
+    // Carry over values that are not written every loop.
+    next.copyFrom(published);
+    m_writeBuffer = next;
+  }
+
+  /**
+   * Returns the snapshot the main loop is currently writing to.
+   *
+   * @return The current write buffer.
+   */
+  static TelemetrySnapshot writeBuffer() {
+    return m_writeBuffer;
+  }
+
+  /**
+   * Checks there is room for more numeric slots. The caller fills in the slots, then bumps the
+   * count, so the publisher thread never sees a slot before it is ready.
+   *
+   * @return The index of the first slot.
+   */
+  private static int reserveDoubles(String key, int count) {
+    final int index = m_numDoubles;
+    if (index + count > MAX_DOUBLES) {
+      throw new IllegalStateException("Too many numeric telemetry entries, cannot add: " + key);
+    }
+    return index;
+  }
+
+  /**
+   * Returns how many publish cycles apart a rate is.
+   *
+   * @return The period in cycles, or 0 if the rate is not published at all.
+   */
+  private static int getPeriodCycles(double rateHz) {
+    if (rateHz <= 0.0) {
+      return 0;
+    }
+    return (int) Math.max(1, Math.round(PUBLISH_RATE_HZ / rateHz));
+  }
+
+  /**
+   * Returns whether a value is due this cycle. Each value in a tier is offset by its position in
+   * the tier, so the tier's values are spread evenly over its period.
+   */
+  private static boolean isDue(int[] periods, Tier tier, int slot, long cycle) {
+    final int period = periods[tier.ordinal()];
+    return period > 0 && (cycle + slot) % period == 0;
+  }
+
+  static int getNumDoubles() {
+    return m_numDoubles;
+  }
+
+  static String getDoubleKey(int index) {
+    return m_doubleKeys[index];
+  }
+
+  static int getNumBooleans() {
+    return m_numBooleans;
+  }
+
+  static String getBooleanKey(int index) {
+    return m_booleanKeys[index];
+  }
+
+  static int getNumStrings() {
+    return m_numStrings;
+  }
+
+  static String getStringKey(int index) {
+    return m_stringKeys[index];
+  }
+
+  static int getNumDoubleArrays() {
+    return m_numDoubleArrays;
+  }
+
+  static synchronized DoubleArrayEntry getDoubleArray(int index) {
+    return m_doubleArrays.get(index);
+  }
+
+  private static synchronized DoubleArrayPublisher getDoubleArrayPublisher(int index) {
+    return m_doubleArrayPublishers.get(index);
+  }
+
+  static TelemetrySnapshot newSnapshot() {
+    return new TelemetrySnapshot(MAX_DOUBLES, MAX_BOOLEANS, MAX_STRINGS);
+  }
+
+  private static void publishLoop() {
+    TelemetrySnapshot readBuffer = newSnapshot();
+    long lastSequence = 0;
+    double[][] arrayBuffers = new double[0][];
+
+    // The last published booleans and strings
+    final TelemetrySnapshot published = newSnapshot();
+    final boolean[] booleanPublished = new boolean[MAX_BOOLEANS];
+
+    final int[] periods = new int[TIERS.length];
+    long cycle = 0;
+
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        Thread.sleep(PUBLISH_PERIOD_MSEC);
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      readBuffer = m_handoff.getAndSet(readBuffer);
+      // Swapping twice without a commit hands back the older snapshot
+      if (readBuffer.m_sequence <= lastSequence) {
+        continue;
+      }
+      lastSequence = readBuffer.m_sequence;
+
+      cycle++;
+      final double[] ratesHz = m_ratesHz[m_mode.ordinal()];
+      for (int i = 0; i < TIERS.length; i++) {
+        periods[i] = getPeriodCycles(ratesHz[i]);
+      }
+
+      final int numDoubles = m_numDoubles;
+      for (int i = 0; i < numDoubles; i++) {
+        if (m_doublePublishers[i] != null
+            && isDue(periods, m_doubleTiers[i], m_doubleSlots[i], cycle)) {
+          m_doublePublishers[i].set(readBuffer.m_doubles[i]);
+        }
+      }
+
+      final int numBooleans = m_numBooleans;
+      for (int i = 0; i < numBooleans; i++) {
+        final boolean value = readBuffer.m_booleans[i];
+        if ((!booleanPublished[i] || value != published.m_booleans[i])
+            && isDue(periods, m_booleanTiers[i], m_booleanSlots[i], cycle)) {
+          m_booleanPublishers[i].set(value);
+          published.m_booleans[i] = value;
+          booleanPublished[i] = true;
+        }
+      }
+
+      final int numStrings = m_numStrings;
+      for (int i = 0; i < numStrings; i++) {
+        final String value = readBuffer.m_strings[i];
+        if (value != null
+            && !value.equals(published.m_strings[i])
+            && isDue(periods, m_stringTiers[i], m_stringSlots[i], cycle)) {
+          m_stringPublishers[i].set(value);
+          published.m_strings[i] = value;
+        }
+      }
+
+      final int numDoubleArrays = m_numDoubleArrays;
+      if (arrayBuffers.length != numDoubleArrays) {
+        arrayBuffers = new double[numDoubleArrays][];
+      }
+      for (int i = 0; i < numDoubleArrays; i++) {
+        if (!isDue(periods, m_doubleArrayTiers[i], m_doubleArraySlots[i], cycle)) {
+          continue;
+        }
+        final DoubleArrayEntry entry = getDoubleArray(i);
+        if (arrayBuffers[i] == null) {
+          arrayBuffers[i] = new double[entry.getLength()];
+        }
+        System.arraycopy(
+            readBuffer.m_doubles, entry.getOffset(), arrayBuffers[i], 0, entry.getLength());
+        getDoubleArrayPublisher(i).set(arrayBuffers[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package frc.robot.telemetry;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+
+/** Handles to telemetry values. Create them once with {@link Telemetry}, set them each loop. */
+public final class TelemetryEntry {
+  private TelemetryEntry() {}
+
+  /** A numeric telemetry value. */
+  @Accessors(prefix = "m_")
+  public static final class DoubleEntry {
+    @Getter private final String m_key;
+    private final int m_index;
+
+    DoubleEntry(String key, int index) {
+      m_key = key;
+      m_index = index;
+    }
+
+    /**
+     * Sets the value for this loop.
+     *
+     * @param value The value.
+     */
+    public void set(double value) {
+      Telemetry.writeBuffer().m_doubles[m_index] = value;
+    }
+  }
+
+  /** A boolean telemetry value. */
+  @Accessors(prefix = "m_")
+  public static final class BooleanEntry {
+    @Getter private final String m_key;
+    private final int m_index;
+
+    BooleanEntry(String key, int index) {
+      m_key = key;
+      m_index = index;
+    }
+
+    /**
+     * Sets the value for this loop.
+     *
+     * @param value The value.
+     */
+    public void set(boolean value) {
+      Telemetry.writeBuffer().m_booleans[m_index] = value;
+    }
+  }
+
+  /**
+   * A string telemetry value. Only the reference is stored, so pass existing strings (such as enum
+   * names) rather than building new ones every loop.
+   */
+  @Accessors(prefix = "m_")
+  public static final class StringEntry {
+    @Getter private final String m_key;
+    private final int m_index;
+
+    StringEntry(String key, int index) {
+      m_key = key;
+      m_index = index;
+    }
+
+    /**
+     * Sets the value for this loop.
+     *
+     * @param value The value.
+     */
+    public void set(String value) {
+      Telemetry.writeBuffer().m_strings[m_index] = value;
+    }
+
+    /**
+     * Sets the value for this loop to the name of an enum constant.
+     *
+     * @param value The enum constant, may be null.
+     */
+    public void set(Enum<?> value) {
+      set(value == null ? null : value.toString());
+    }
+  }
+
+  /** A fixed-length numeric array telemetry value, stored as consecutive numeric slots. */
+  @Accessors(prefix = "m_")
+  public static final class DoubleArrayEntry {
+    @Getter private final String m_key;
+    private final int m_offset;
+    @Getter private final int m_length;
+
+    DoubleArrayEntry(String key, int offset, int length) {
+      m_key = key;
+      m_offset = offset;
+      m_length = length;
+    }
+
+    int getOffset() {
+      return m_offset;
+    }
+
+    /**
+     * Sets one element for this loop.
+     *
+     * @param index The element index.
+     * @param value The value.
+     */
+    public void set(int index, double value) {
+      if (index < 0 || index >= m_length) {
+        throw new IndexOutOfBoundsException(index);
+      }
+      Telemetry.writeBuffer().m_doubles[m_offset + index] = value;
+    }
+  }
+}
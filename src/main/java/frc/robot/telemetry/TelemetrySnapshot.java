@@ -0,0 +1,33 @@
+package frc.robot.telemetry;
+
+/**
+ * A pre-allocated buffer holding one loop's worth of telemetry values.
+ *
+ * <p>Only primitives and references to existing strings are stored, so writing to a snapshot never
+ * allocates. Snapshots are handed between the main loop and the publisher thread by {@link
+ * Telemetry}; a snapshot is only ever owned by one thread at a time.
+ */
+class TelemetrySnapshot {
+  final double[] m_doubles;
+  final boolean[] m_booleans;
+  final String[] m_strings;
+  long m_sequence = 0;
+
+  TelemetrySnapshot(int numDoubles, int numBooleans, int numStrings) {
+    m_doubles = new double[numDoubles];
+    m_booleans = new boolean[numBooleans];
+    m_strings = new String[numStrings];
+  }
+
+  /**
+   * Copies every value from another snapshot into this one.
+   *
+   * @param other The snapshot to copy from.
+   */
+  void copyFrom(TelemetrySnapshot other) {
+    System.arraycopy(other.m_doubles, 0, m_doubles, 0, m_doubles.length);
+    System.arraycopy(other.m_booleans, 0, m_booleans, 0, m_booleans.length);
+    System.arraycopy(other.m_strings, 0, m_strings, 0, m_strings.length);
+    m_sequence = other.m_sequence;
+  }
+}
@@ -0,0 +1,23 @@
+package frc.robot.auto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+class CompiledTrajectoriesTest {
+  @Test
+  void pathPlannerVersionMatchesVendordep() throws IOException {
+    final String vendordepVersion =
+        new ObjectMapper()
+            .readTree(new File("vendordeps/PathplannerLib.json"))
+            .get("version")
+            .asText();
+
+    // Otherwise compiled trajectories from an older PathPlannerLib would still pass the hash check
+    assertEquals(vendordepVersion, CompiledTrajectories.PATHPLANNER_VERSION);
+  }
+}
@@ -0,0 +1,63 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import frc.robot.devices.GreyPigeon;
+
+import com.sun.management.ThreadMXBean;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Translation2d;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class DriveTest {
+  /** Enough loops for the JIT to compile the path, so what's measured is what runs on the robot. */
+  private static final int WARMUP_LOOPS = 20_000;
+  private static final int MEASURED_LOOPS = 500;
+
+  private static Drive m_drive;
+
+  @BeforeAll
+  static void setup() {
+    assertTrue(HAL.initialize(500, 0), "HAL initialized");
+    m_drive = new Drive(new GreyPigeon());
+  }
+
+  /**
+   * Sets different chassis speeds every loop, fast enough to steer, so each update sends the
+   * motors new requests instead of skipping repeated ones.
+   */
+  private static void driveInput(int loop) {
+    final double t = loop * 0.02;
+    m_drive.driveInput(new Translation2d(2.0 * Math.cos(t), 2.0 * Math.sin(t)), 1.5, false);
+  }
+
+  @Test
+  void updateDoesNotAllocate() {
+    final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long threadId = Thread.currentThread().getId();
+
+    for (int i = 0; i < WARMUP_LOOPS; i++) {
+      driveInput(i);
+      m_drive.update();
+    }
+
+    // Reading the counter can allocate, so take that out of the measurement
+    long before = threads.getThreadAllocatedBytes(threadId);
+    final long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+
+    // Setting the input allocates its ChassisSpeeds, so only the updates are measured
+    long allocated = 0;
+    for (int i = 0; i < MEASURED_LOOPS; i++) {
+      driveInput(WARMUP_LOOPS + i);
+      before = threads.getThreadAllocatedBytes(threadId);
+      m_drive.update();
+      allocated += threads.getThreadAllocatedBytes(threadId) - before - overhead;
+    }
+
+    assertEquals(0L, allocated, "Bytes allocated by " + MEASURED_LOOPS + " Drive.update() calls");
+  }
+}
@@ -0,0 +1,99 @@
+package frc.robot.subsystems.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import org.junit.jupiter.api.Test;
+
+class SwerveKinematicsMathTest {
+  private static final double HALF_TRACK_METERS = 0.53975 / 2.0;
+  private static final Translation2d[] MODULE_LOCATIONS = {
+    new Translation2d(HALF_TRACK_METERS, HALF_TRACK_METERS),
+    new Translation2d(HALF_TRACK_METERS, -HALF_TRACK_METERS),
+    new Translation2d(-HALF_TRACK_METERS, HALF_TRACK_METERS),
+    new Translation2d(-HALF_TRACK_METERS, -HALF_TRACK_METERS)
+  };
+  private static final double DISCRETIZE_PERIOD_SEC = 0.03;
+  /** Enough calls for the JIT to compile the path, so what's measured is what runs on the robot. */
+  private static final int WARMUP_CALLS = 50_000;
+
+  private final double[] m_speeds = new double[MODULE_LOCATIONS.length];
+  private final double[] m_anglesDegrees = new double[MODULE_LOCATIONS.length];
+  private final SwerveModuleSetpoint m_optimized = new SwerveModuleSetpoint();
+
+  /** One loop of the drive's control path: kinematics, then optimizing each module. */
+  private void controlLoop(double vx, double vy, double omega, double currentAngleDegrees) {
+    SwerveKinematicsMath.toModuleSetpoints(
+        vx, vy, omega, DISCRETIZE_PERIOD_SEC, MODULE_LOCATIONS, m_speeds, m_anglesDegrees);
+    for (int i = 0; i < MODULE_LOCATIONS.length; i++) {
+      CTREModuleState.optimize(m_speeds[i], m_anglesDegrees[i], currentAngleDegrees, m_optimized);
+    }
+  }
+
+  @Test
+  void controlPathDoesNotAllocate() {
+    final ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long threadId = Thread.currentThread().getId();
+
+    for (int i = 0; i < WARMUP_CALLS; i++) {
+      controlLoop(i % 7 - 3.0, i % 5 - 2.0, i % 3 - 1.0, i % 720 - 360.0);
+    }
+
+    // Reading the counter can allocate, so take that out of the measurement
+    long before = threads.getThreadAllocatedBytes(threadId);
+    final long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+
+    before = threads.getThreadAllocatedBytes(threadId);
+    controlLoop(2.5, -1.0, 3.0, 170.0);
+    controlLoop(0.0, 0.0, 0.0, -45.0);
+    final long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+    assertEquals(0L, allocated, "Bytes allocated by the control path");
+  }
+
+  @Test
+  void matchesWpilibKinematics() {
+    final SwerveDriveKinematics kinematics = new SwerveDriveKinematics(MODULE_LOCATIONS);
+    final double[][] speeds = {
+      {1.0, 0.0, 0.0}, {2.5, -1.0, 3.0}, {0.0, 0.0, -4.0}, {-3.0, 2.0, 1.5}
+    };
+
+    for (double[] speed : speeds) {
+      // How Drive.update() did it before the math was done with primitives
+      final Pose2d end =
+          new Pose2d(
+              speed[0] * DISCRETIZE_PERIOD_SEC,
+              speed[1] * DISCRETIZE_PERIOD_SEC,
+              new Rotation2d(speed[2] * DISCRETIZE_PERIOD_SEC));
+      final Twist2d twist = new Pose2d().log(end);
+      final ChassisSpeeds discretized =
+          new ChassisSpeeds(
+              twist.dx / DISCRETIZE_PERIOD_SEC,
+              twist.dy / DISCRETIZE_PERIOD_SEC,
+              twist.dtheta / DISCRETIZE_PERIOD_SEC);
+      final SwerveModuleState[] expected = kinematics.toSwerveModuleStates(discretized);
+
+      SwerveKinematicsMath.toModuleSetpoints(
+          speed[0],
+          speed[1],
+          speed[2],
+          DISCRETIZE_PERIOD_SEC,
+          MODULE_LOCATIONS,
+          m_speeds,
+          m_anglesDegrees);
+      for (int i = 0; i < MODULE_LOCATIONS.length; i++) {
+        assertEquals(expected[i].speedMetersPerSecond, m_speeds[i], 1e-9);
+        assertEquals(expected[i].angle.getDegrees(), m_anglesDegrees[i], 1e-9);
+      }
+    }
+  }
+}